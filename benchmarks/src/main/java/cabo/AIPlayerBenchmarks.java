@@ -0,0 +1,64 @@
+package cabo;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The AIPlayerBenchmarks class times what a computer player works out from what it knows: its
+ * blind estimate of its own hand, and the queries its strategy makes on every turn. The AI sits
+ * at a four-player game a few rounds in.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AIPlayerBenchmarks {
+
+  // data fields
+  private AIPlayer ai;
+  private Player other; // the player the AI spies on and switches with
+  private int label;
+
+  /**
+   * Plays a game for a few rounds
+   */
+  @Setup
+  public void setUp() {
+    Player[] players = Games.midGame(new SplittableRandom(42), 4).getPlayers();
+    ai = (AIPlayer) players[1];
+    other = players[2];
+  }
+
+  /**
+   * Estimates the AI's hand from the cards it knows and the expected value of the others
+   *
+   * @return the estimate
+   */
+  @Benchmark
+  public int calcHandBlind() {
+    return ai.calcHandBlind();
+  }
+
+  /**
+   * Makes every knowledge query a strategy makes on a turn
+   *
+   * @return the sum of the answers
+   */
+  @Benchmark
+  public int knowledgeQueries() {
+    return ai.getWorstCardIndex() + ai.getUnknownCardIndex() + ai.getSpyIndex(other)
+        + ai.getLowestIndex(other) + ai.getHighestIndex() + ai.countKnown(label++ & 3);
+  }
+}
@@ -0,0 +1,90 @@
+package cabo;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The CardBenchmarks class times building and shuffling a deck, and the operations on a hand:
+ * swapping a card in, switching cards with another hand and scoring it. The hands are taken from
+ * a four-player game a few rounds in.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CardBenchmarks {
+
+  // data fields
+  private final SplittableRandom random = new SplittableRandom(42);
+  private Hand[] hands; // the hands of the four players
+  private BaseCard card; // the card swapped in and out of the first hand
+  private int slot;
+
+  /**
+   * Deals the hands
+   */
+  @Setup
+  public void setUp() {
+    Player[] players = Games.midGame(random, 4).getPlayers();
+    hands = new Hand[players.length];
+    for (int i = 0; i < hands.length; i++) {
+      hands[i] = players[i].getHand();
+    }
+    card = new BaseCard(5, "Hearts");
+  }
+
+  /**
+   * Builds and shuffles a deck
+   *
+   * @return the code of its top card
+   */
+  @Benchmark
+  public int createDeck() {
+    return Deck.createDeck(random).get(0).getCode();
+  }
+
+  /**
+   * Swaps a card into the first hand, taking out the card that was there
+   *
+   * @return the code of the card taken out
+   */
+  @Benchmark
+  public int swap() {
+    card = hands[0].swap(card, slot++ & 3);
+    return card.getCode();
+  }
+
+  /**
+   * Switches a card of the first hand with one of the second
+   *
+   * @return the code of the card switched in
+   */
+  @Benchmark
+  public int switchCards() {
+    int i = slot++;
+    hands[0].switchCards(i & 3, hands[1], (i >>> 2) & 3);
+    return hands[0].getCardAtIndex(i & 3).getCode();
+  }
+
+  /**
+   * Scores one of the hands
+   *
+   * @return the score
+   */
+  @Benchmark
+  public int calcHand() {
+    return hands[slot++ & 3].calcHand();
+  }
+}
@@ -0,0 +1,134 @@
+package cabo;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The GameBenchmarks class times whole games and turns of AI-only tables of 2 to 16 players: one
+ * AI turn, a full game from the deal, and capturing and restoring a game in progress.
+ *
+ * A turn changes the game it is played on, and a game that ends cannot take another turn, so one
+ * invocation of the turn benchmark plays one turn on each of TURN_BATCH games dealt beforehand
+ * and JMH divides its time by TURN_BATCH.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class GameBenchmarks {
+
+  private static final int TURN_BATCH = 1_000; // games that each play one turn per invocation
+
+  /**
+   * The Table class is one game a few rounds in, with two captures of it a turn apart
+   */
+  @State(Scope.Thread)
+  public static class Table {
+    @Param({"2", "4", "8", "16"})
+    private int players;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private CaboEngine engine;
+    private GameSnapshot[] snapshots;
+    private int next; // the snapshot to restore next
+
+    /**
+     * Plays the game a few rounds and captures it before and after one more turn
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+      engine = Games.midGame(random, players);
+      snapshots = new GameSnapshot[2];
+      snapshots[0] = engine.capture();
+      engine.performAITurn();
+      snapshots[1] = engine.capture();
+    }
+  }
+
+  /**
+   * The TurnBatch class is TURN_BATCH games a few rounds in, dealt again before every invocation
+   */
+  @State(Scope.Thread)
+  public static class TurnBatch {
+    @Param({"2", "4", "8", "16"})
+    private int players;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final CaboEngine[] games = new CaboEngine[TURN_BATCH];
+
+    /**
+     * Deals the games for the next batch of turns
+     */
+    @Setup(Level.Invocation)
+    public void setUp() {
+      for (int i = 0; i < games.length; i++) {
+        games[i] = Games.midGame(random, players);
+      }
+    }
+  }
+
+  /**
+   * Plays one AI turn on each game of the batch
+   *
+   * @param batch the games
+   * @return the sum of the players whose turn it is next
+   */
+  @Benchmark
+  @OperationsPerInvocation(TURN_BATCH)
+  public int aiTurn(TurnBatch batch) {
+    int sum = 0;
+    for (CaboEngine game : batch.games) {
+      game.performAITurn();
+      sum += game.getCurrentPlayer();
+    }
+    return sum;
+  }
+
+  /**
+   * Deals a game and plays it to the end
+   *
+   * @param table supplies the number of players and the randomness
+   * @return the winner plus the number of turns
+   */
+  @Benchmark
+  public int fullGame(Table table) {
+    CaboEngine game = Games.newGame(table.random, table.players);
+    game.playToEnd();
+    return game.getWinner() + game.getTurnCount();
+  }
+
+  /**
+   * Captures the game in progress
+   *
+   * @param table the game
+   * @return the size of the captured deck
+   */
+  @Benchmark
+  public int capture(Table table) {
+    return table.engine.capture().getDeckSize();
+  }
+
+  /**
+   * Restores the game in progress from one of its two captures
+   *
+   * @param table the game
+   * @return the player whose turn it is after the restore
+   */
+  @Benchmark
+  public int restore(Table table) {
+    table.engine.restore(table.snapshots[table.next++ & 1]);
+    return table.engine.getCurrentPlayer();
+  }
+}
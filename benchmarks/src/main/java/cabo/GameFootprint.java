@@ -0,0 +1,44 @@
+package cabo;
+
+import java.util.SplittableRandom;
+
+/**
+ * The GameFootprint class measures the heap a game in progress takes, cards and players included,
+ * at tables of 2 to 16 players. JMH times operations rather than retained memory, so this runs on
+ * its own: it keeps many games alive and compares the used heap before and after.
+ *
+ * Usage: java -cp target/benchmarks.jar cabo.GameFootprint
+ */
+public class GameFootprint {
+
+  private static final int[] TABLE_SIZES = {2, 4, 8, 16}; // players
+  private static final int GAMES = 2_000; // games kept alive for each table size
+
+  /**
+   * Prints the heap taken by a game and by each of its players, for every table size
+   *
+   * @param args unused
+   */
+  public static void main(String[] args) {
+    SplittableRandom random = new SplittableRandom(42);
+    Runtime runtime = Runtime.getRuntime();
+    long turns = 0;
+    for (int size : TABLE_SIZES) {
+      CaboEngine[] games = new CaboEngine[GAMES];
+      System.gc();
+      long before = runtime.totalMemory() - runtime.freeMemory();
+      for (int i = 0; i < games.length; i++) {
+        games[i] = Games.midGame(random, size);
+      }
+      System.gc();
+      long after = runtime.totalMemory() - runtime.freeMemory();
+      turns += games[games.length - 1].getTurnCount(); // keeps the games alive until here
+      double perGame = (double) (after - before) / games.length;
+      System.out.printf("%2d players: %,9.0f bytes/game %,9.0f bytes/player%n", size, perGame,
+          perGame / size);
+    }
+    if (turns < 0) { // never true; uses the games after the measurement
+      System.out.println();
+    }
+  }
+}
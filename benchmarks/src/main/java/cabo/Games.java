@@ -0,0 +1,49 @@
+package cabo;
+
+import java.util.SplittableRandom;
+
+/**
+ * The Games class creates the games the benchmarks measure: AI-only tables, fresh or played for a
+ * few rounds so the AIs have some knowledge.
+ */
+final class Games {
+
+  private Games() {}
+
+  /**
+   * Creates a game of computer players with hands of four, from a shoe with two decks for every
+   * eight players or part of eight, with message logging off
+   *
+   * @param random     the source of randomness for the deal
+   * @param numPlayers the number of players
+   * @return the new game
+   */
+  static CaboEngine newGame(SplittableRandom random, int numPlayers) {
+    Player[] players = new Player[numPlayers];
+    for (int i = 0; i < players.length; i++) {
+      players[i] = new AIPlayer("AI " + i, i, true);
+    }
+    int numDecks = numPlayers <= 4 ? 1 : (numPlayers + 7) / 8 * 2;
+    CaboEngine engine = new CaboEngine(players, random.nextLong(), numDecks);
+    engine.setLogMessages(false);
+    return engine;
+  }
+
+  /**
+   * Creates a game that has been played for a few rounds, so the AIs have some knowledge
+   *
+   * @param random     the source of randomness for the game
+   * @param numPlayers the number of players
+   * @return a game in progress
+   */
+  static CaboEngine midGame(SplittableRandom random, int numPlayers) {
+    CaboEngine engine;
+    do {
+      engine = newGame(random, numPlayers);
+      for (int turn = 0; turn < 3 * numPlayers / 2 && !engine.isGameOver(); turn++) {
+        engine.performAITurn();
+      }
+    } while (engine.isGameOver());
+    return engine;
+  }
+}
@@ -0,0 +1,118 @@
+package cabo;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The ViewBenchmarks class times the work done for each frame, click and spectator update:
+ * hit-testing a click, encoding the change to a table as a spectator frame, and recording a
+ * latency.
+ *
+ * Encoding a frame consumes the change it encodes, so one invocation of the encoder benchmark
+ * encodes one turn of each of FRAME_BATCH games played beforehand and JMH divides its time by
+ * FRAME_BATCH.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ViewBenchmarks {
+
+  private static final int FRAME_BATCH = 1_000; // games that each encode one frame per invocation
+
+  // data fields
+  private final SplittableRandom random = new SplittableRandom(42);
+  private HitGrid grid;
+  private LatencyHistogram histogram;
+  private int next;
+
+  /**
+   * The FrameBatch class is FRAME_BATCH games, each with one turn not yet encoded, played again
+   * before every invocation
+   */
+  @State(Scope.Thread)
+  public static class FrameBatch {
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final CaboEngine[] games = new CaboEngine[FRAME_BATCH];
+    private final TableDeltaEncoder[] encoders = new TableDeltaEncoder[FRAME_BATCH];
+
+    /**
+     * Encodes a frame of each game, then plays one more turn on it
+     */
+    @Setup(Level.Invocation)
+    public void setUp() {
+      for (int i = 0; i < games.length; i++) {
+        games[i] = Games.midGame(random, 4);
+        games[i].setLogMessages(true);
+        encoders[i] = new TableDeltaEncoder(32, false);
+        encoders[i].next(games[i]);
+        games[i].performAITurn();
+      }
+    }
+  }
+
+  /**
+   * Lays out the hands of a game in the hit grid
+   */
+  @Setup
+  public void setUp() {
+    grid = new HitGrid(1000, 800);
+    Player[] players = Games.midGame(random, 4).getPlayers();
+    for (int p = 0; p < players.length; p++) {
+      players[p].getHand().addTo(grid, 60 + 150 * p, 4 * p);
+    }
+    histogram = new LatencyHistogram();
+  }
+
+  /**
+   * Finds the card under a random point of the window
+   *
+   * @return the id of the card, or -1
+   */
+  @Benchmark
+  public int hitGridFind() {
+    return grid.find(random.nextInt(1000), random.nextInt(800));
+  }
+
+  /**
+   * Encodes the last turn of each game of the batch as a spectator frame
+   *
+   * @param batch the games and their encoders
+   * @return the total length of the frames
+   */
+  @Benchmark
+  @OperationsPerInvocation(FRAME_BATCH)
+  public int encodeFrame(FrameBatch batch) {
+    int sum = 0;
+    for (int i = 0; i < batch.games.length; i++) {
+      byte[] frame = batch.encoders[i].next(batch.games[i]);
+      sum += frame == null ? 0 : frame.length;
+    }
+    return sum;
+  }
+
+  /**
+   * Records one latency, spread over the first 20 buckets
+   *
+   * @return the number of latencies recorded
+   */
+  @Benchmark
+  public long recordLatency() {
+    histogram.record((next++ * 0x9E3779B9L) & 0xFFFFF);
+    return histogram.getCount();
+  }
+}
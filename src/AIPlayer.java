@@ -1,4 +1,4 @@
-
+import java.util.Arrays;
 
 /**
  * PROVIDED, but will not compile until the Player class has been created
@@ -11,8 +11,21 @@
  */
 public class AIPlayer extends Player {
 
-  private final boolean[][] cardKnowledge; // Tracks whether the player knows the rank of a card in
-                                           // the game
+  private int[] cardKnowledge; // Tracks whether the player knows the rank of a card in the
+                               // game: bit i of cardKnowledge[label] is set if the AI knows
+                               // card i of that player's hand
+  private final int fullHand; // a mask with one bit set for every slot of a hand
+  private int[] keptCards; // bit i of keptCards[label] is set if that player swapped a drawn
+                           // card into slot i, which suggests the card there is low
+
+  private static final AIStrategy DEFAULT_STRATEGY = new GreedyStrategy();
+  private AIStrategy strategy; // decides this AI's moves
+
+  // belief model: the cards this AI has not seen yet, kept up to date one event at a time
+  private long[] seenCards; // bit i of word i / 64 is set once the AI has seen the card with id i
+  private int shoeSize; // number of cards in the game
+  private int unseenCount; // number of cards the AI has not seen
+  private int unseenTotal; // total score value of the cards the AI has not seen
 
   /**
    * Constructs an AIPlayer with the specified name, label, and computer status. The AI player
@@ -23,36 +36,147 @@ public class AIPlayer extends Player {
    * @param isComputer true if the player is a computer-controlled AI, false otherwise.
    */
   public AIPlayer(String name, int label, boolean isComputer) {
-    super(name, label, isComputer);
+    this(name, label, isComputer, 4);
+  }
+
+  /**
+   * Constructs an AIPlayer for a table with hands of another size than four. Until a game calls
+   * startGame(), the AI is prepared for a table of four players (or enough to seat its label) and
+   * one deck.
+   *
+   * @param name       the name of the player.
+   * @param label      the player's label, which uniquely identifies them in the game.
+   * @param isComputer true if the player is a computer-controlled AI, false otherwise.
+   * @param handSize   the number of cards in every hand
+   */
+  public AIPlayer(String name, int label, boolean isComputer, int handSize) {
+    super(name, label, isComputer, handSize);
+    this.fullHand = (1 << getHand().getHandSize()) - 1;
+    this.strategy = DEFAULT_STRATEGY;
+    startGame(Math.max(4, label + 1), 1);
+  }
+
+  /**
+   * Forgets everything from any earlier game and sizes the AI's knowledge for a new table. The AI
+   * knows the first two cards in its own hand and nothing else, and has seen none of the cards.
+   * The engine calls this before dealing.
+   *
+   * @param numPlayers the number of players at the table
+   * @param numDecks   the number of decks in the shoe
+   */
+  public void startGame(int numPlayers, int numDecks) {
+    if (cardKnowledge == null || cardKnowledge.length != numPlayers) {
+      cardKnowledge = new int[numPlayers];
+      keptCards = new int[numPlayers];
+    } else {
+      Arrays.fill(cardKnowledge, 0);
+      Arrays.fill(keptCards, 0);
+    }
+    cardKnowledge[getLabel()] = 0b11; // The AI knows the first and second cards in its hand
+
+    // Initially every card of the shoe is unseen
+    shoeSize = numDecks * CardCodes.DECK_SIZE;
+    seenCards = new long[(shoeSize + 63) / 64];
+    unseenCount = shoeSize;
+    unseenTotal = 0;
+    for (int code = 0; code < CardCodes.DECK_SIZE; code++) {
+      unseenTotal += numDecks * CardCodes.SCORE[code];
+    }
+  }
+
+  /**
+   * Sets the strategy this AI uses to choose its moves. Every AI starts with the greedy strategy.
+   *
+   * @param strategy the strategy to use
+   */
+  public void setStrategy(AIStrategy strategy) {
+    this.strategy = strategy;
+  }
+
+  /**
+   * Accesses the strategy this AI uses to choose its moves
+   *
+   * @return this AI's strategy
+   */
+  public AIStrategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * Records that the AI has seen a card (it was discarded face-up, drawn, peeked at or spied on).
+   * The card is removed from the AI's pool of unseen cards the first time it is seen; seeing it
+   * again changes nothing. This takes constant time.
+   *
+   * @param card the card the AI has seen
+   */
+  public void observe(BaseCard card) {
+    int id = card.getId();
+    if ((seenCards[id >>> 6] & (1L << id)) == 0) {
+      seenCards[id >>> 6] |= 1L << id;
+      unseenCount--;
+      unseenTotal -= card.getRank();
+    }
+  }
 
-    // Initialize the card knowledge for all players; the AI knows its first two cards by default
-    this.cardKnowledge = new boolean[4][4];
-    this.cardKnowledge[label][0] = true; // The AI knows the first card in its hand
-    this.cardKnowledge[label][1] = true; // The AI knows the second card in its hand
+  /**
+   * Returns the expected value of a card the AI does not know: the average score of all the cards
+   * it has not seen yet.
+   *
+   * @return the expected value of an unknown card
+   */
+  public double getExpectedUnknownValue() {
+    if (unseenCount == 0) {
+      return 0.0;
+    }
+    return (double) unseenTotal / unseenCount;
+  }
+
+  /**
+   * Returns the value the AI believes the card at the given index of its hand has: its rank if the
+   * AI knows it, or the expected value of an unknown card otherwise.
+   *
+   * @param index the index of the card in the AI's hand
+   * @return the believed value of that card
+   */
+  public double getBelievedValue(int index) {
+    if ((cardKnowledge[getLabel()] & (1 << index)) == 0) {
+      return getExpectedUnknownValue();
+    }
+    return getHand().getRankAtIndex(index);
+  }
+
+  /**
+   * Returns the index of the card in the AI's hand with the highest believed value, i.e. the card
+   * the AI would most like to get rid of. Ties go to the first such card.
+   *
+   * @return the index of the card with the highest believed value
+   */
+  public int getWorstCardIndex() {
+    int worstIndex = 0;
+    for (int i = 1; i < getHand().size(); ++i) {
+      if (getBelievedValue(i) > getBelievedValue(worstIndex)) {
+        worstIndex = i;
+      }
+    }
+    return worstIndex;
   }
 
   /**
    * Calculates the "blind" total value of the AI player's hand. If the AI doesn't know the value of
-   * a card in its hand, it assumes an average value of 8 for that card. Otherwise, it uses the
-   * actual rank of the known cards.
+   * a card in its hand, it uses the expected value of an unknown card, given every card it has seen
+   * so far. Otherwise, it uses the actual rank of the known cards.
    *
-   * @return the total value of the AI's hand, with unknown cards estimated at a value of 8.
+   * @return the total value of the AI's hand, rounded to the nearest integer.
    */
   public int calcHandBlind() {
-    int total = 0;
+    double total = 0;
 
     // Iterate over the cards in the player's hand
-    for (int i = 0; i < 4; ++i) {
-      // If the AI doesn't know the card's value, assume it has a value of 8
-      if (!this.cardKnowledge[getLabel()][i]) {
-        total += 8;
-      } else {
-        // Use the actual card value if known
-        total += getHand().getRankAtIndex(i);
-      }
+    for (int i = 0; i < getHand().size(); ++i) {
+      total += getBelievedValue(i);
     }
 
-    return total;
+    return (int) Math.round(total);
   }
 
   /**
@@ -62,12 +186,7 @@ public class AIPlayer extends Player {
    * @return the index of the first unknown card in the AI's hand, or -1 if all cards are known.
    */
   public int getUnknownCardIndex() {
-    for (int i = 0; i < 4; ++i) {
-      if (!cardKnowledge[getLabel()][i]) {
-        return i;
-      }
-    }
-    return -1;
+    return getFirstUnknownIndex(getLabel());
   }
 
   /**
@@ -78,28 +197,61 @@ public class AIPlayer extends Player {
    *         known.
    */
   public int getSpyIndex() {
-    for (int i = 0; i < 4; ++i) {
-      if (!cardKnowledge[0][i]) {
-        return i;
-      }
-    }
-    return -1;
+    return getFirstUnknownIndex(0);
+  }
+
+  /**
+   * Returns the index of the first card in the given player's hand that is unknown to the AI. This
+   * is the general form of getSpyIndex() for games where the spy target is not player 0 (e.g. an
+   * all-AI simulation).
+   *
+   * @param player the player whose hand is being spied on.
+   * @return the index of the first unknown card in that player's hand, or -1 if all cards are
+   *         known.
+   */
+  public int getSpyIndex(Player player) {
+    return getFirstUnknownIndex(player.getLabel());
+  }
+
+  /**
+   * Returns the index of the first card in the given player's hand that is unknown to the AI, as
+   * the lowest clear bit of that player's knowledge mask.
+   *
+   * @param label the label of the player whose hand is checked.
+   * @return the index of the first unknown card, or -1 if all cards are known.
+   */
+  public int getFirstUnknownIndex(int label) {
+    int unknown = ~cardKnowledge[label] & fullHand;
+    return unknown == 0 ? -1 : Integer.numberOfTrailingZeros(unknown);
+  }
+
+  /**
+   * Counts how many cards of the given player's hand are known to the AI
+   *
+   * @param label the label of the player whose hand is checked.
+   * @return the number of known cards in that hand
+   */
+  public int countKnown(int label) {
+    return Integer.bitCount(cardKnowledge[label]);
   }
 
   /**
    * Returns the index of the lowest-ranked card in the specified player's hand that is known to the
    * AI. The method searches for the card with the lowest rank in the player's hand where the AI has
-   * card knowledge.
+   * card knowledge, considering only cards worth less than an unknown card is expected to be.
    *
    * @param player the player whose hand is being evaluated.
-   * @return the index of the lowest-ranked known card, or -1 if no cards are known.
+   * @return the index of the lowest-ranked known card, or -1 if no such card is known.
    */
   public int getLowestIndex(Player player) {
-    int lowestValue = 8; // Assuming 8 is the average or maximum value for unknown cards
+    double lowestValue = getExpectedUnknownValue(); // only known cards better than a blind pick
     int lowestIndex = -1;
-    for (int i = 0; i < 4; ++i) {
-      if (cardKnowledge[0][i] && player.getHand().getRankAtIndex(i) < lowestValue) {
-        lowestValue = player.getHand().getRankAtIndex(i);
+    // visit only the known cards, lowest set bit first
+    for (int known = cardKnowledge[player.getLabel()]; known != 0; known &= known - 1) {
+      int i = Integer.numberOfTrailingZeros(known);
+      int rank = player.getHand().getRankAtIndex(i);
+      if (rank < lowestValue) {
+        lowestValue = rank;
         lowestIndex = i;
       }
     }
@@ -116,7 +268,153 @@ public class AIPlayer extends Player {
    *                  otherwise.
    */
   public void setCardKnowledge(int label, int index, boolean knowledge) {
-    cardKnowledge[label][index] = knowledge;
+    if (knowledge) {
+      cardKnowledge[label] |= 1 << index;
+    } else {
+      cardKnowledge[label] &= ~(1 << index);
+    }
+  }
+
+  /**
+   * Moves the AI's knowledge of two cards along with the cards when they are switched between two
+   * hands: whatever the AI knew about each slot now applies to the other slot.
+   *
+   * @param label      the label of the first player
+   * @param index      the index of the card in the first player's hand
+   * @param otherLabel the label of the second player
+   * @param otherIndex the index of the card in the second player's hand
+   */
+  public void transferKnowledge(int label, int index, int otherLabel, int otherIndex) {
+    int bit = (cardKnowledge[label] >>> index) & 1;
+    int otherBit = (cardKnowledge[otherLabel] >>> otherIndex) & 1;
+    if (bit != otherBit) { // only differing bits change anything; flip both
+      cardKnowledge[label] ^= 1 << index;
+      cardKnowledge[otherLabel] ^= 1 << otherIndex;
+    }
+    bit = (keptCards[label] >>> index) & 1;
+    otherBit = (keptCards[otherLabel] >>> otherIndex) & 1;
+    if (bit != otherBit) { // a kept card stays a kept card wherever it goes
+      keptCards[label] ^= 1 << index;
+      keptCards[otherLabel] ^= 1 << otherIndex;
+    }
+  }
+
+  /**
+   * Records that a player chose to swap their drawn card into the given slot. The AI does not know
+   * the card, but a player only keeps a card they think is better than the one it replaced.
+   *
+   * @param label the label of the player who swapped
+   * @param index the slot the drawn card was placed in
+   */
+  public void markKeptCard(int label, int index) {
+    keptCards[label] |= 1 << index;
+  }
+
+  /**
+   * Accesses the slots of a player's hand that hold a card the player chose to keep
+   *
+   * @param label the label of the player
+   * @return a mask in which bit i is set if slot i holds a card swapped in by choice
+   */
+  public int getKeptCardMask(int label) {
+    return keptCards[label];
+  }
+
+  /**
+   * Accesses the AI's knowledge of a player's hand as a bit mask
+   *
+   * @param label the label of the player whose hand is checked.
+   * @return a mask in which bit i is set if the AI knows card i of that hand
+   */
+  public int getKnowledgeMask(int label) {
+    return cardKnowledge[label];
+  }
+
+  /**
+   * Checks whether the AI has seen a card
+   *
+   * @param id the id of the card (see BaseCard.getId())
+   * @return true if the AI has seen that card
+   */
+  public boolean hasSeen(int id) {
+    return (seenCards[id >>> 6] & (1L << id)) != 0;
+  }
+
+  /**
+   * Copies the set of cards the AI has seen
+   *
+   * @param words  the array to copy into; bit i of words[offset + i / 64] is set if the AI has
+   *               seen the card with id i
+   * @param offset the index of the first word to write
+   */
+  public void copySeenCardsTo(long[] words, int offset) {
+    System.arraycopy(seenCards, 0, words, offset, seenCards.length);
+  }
+
+  /**
+   * Replaces the AI's knowledge of one player's hand, e.g. when restoring a GameSnapshot
+   *
+   * @param label         the label of the player holding the hand
+   * @param knowledgeMask the new mask, as getKnowledgeMask()
+   * @param keptMask      the new mask, as getKeptCardMask()
+   */
+  public void setKnowledgeMasks(int label, int knowledgeMask, int keptMask) {
+    cardKnowledge[label] = knowledgeMask;
+    keptCards[label] = keptMask;
+  }
+
+  /**
+   * Replaces the set of cards the AI has seen, and recounts the cards it has not seen
+   *
+   * @param words  the set, as written by copySeenCardsTo()
+   * @param offset the index of the first word to read
+   */
+  public void setSeenCards(long[] words, int offset) {
+    unseenCount = 0;
+    unseenTotal = 0;
+    for (int w = 0; w < seenCards.length; w++) {
+      seenCards[w] = words[offset + w];
+      long unseen = ~seenCards[w];
+      if (shoeSize - 64 * w < 64) { // the last word only holds the end of the shoe
+        unseen &= (1L << (shoeSize - 64 * w)) - 1;
+      }
+      unseenCount += Long.bitCount(unseen);
+      for (; unseen != 0; unseen &= unseen - 1) {
+        unseenTotal += CardCodes.SCORE[(64 * w + Long.numberOfTrailingZeros(unseen))
+            % CardCodes.DECK_SIZE];
+      }
+    }
+  }
+
+  /**
+   * Counts the words of the set of cards the AI has seen
+   *
+   * @return the number of longs copySeenCardsTo() writes
+   */
+  public int getSeenCardWords() {
+    return seenCards.length;
+  }
+
+  /**
+   * Replaces the AI's knowledge and beliefs with those of another AI player, e.g. when cloning a
+   * game for search. This copies only a few small arrays.
+   *
+   * @param other the AI player whose knowledge is copied
+   */
+  public void copyKnowledgeFrom(AIPlayer other) {
+    if (cardKnowledge.length != other.cardKnowledge.length) {
+      cardKnowledge = new int[other.cardKnowledge.length];
+      keptCards = new int[other.keptCards.length];
+    }
+    if (seenCards.length != other.seenCards.length) {
+      seenCards = new long[other.seenCards.length];
+    }
+    System.arraycopy(other.cardKnowledge, 0, cardKnowledge, 0, cardKnowledge.length);
+    System.arraycopy(other.keptCards, 0, keptCards, 0, keptCards.length);
+    System.arraycopy(other.seenCards, 0, seenCards, 0, seenCards.length);
+    shoeSize = other.shoeSize;
+    unseenCount = other.unseenCount;
+    unseenTotal = other.unseenTotal;
   }
 
   /**
@@ -127,13 +425,14 @@ public class AIPlayer extends Player {
    * @return {@code true} if the AI or player knows the card's value, {@code false} otherwise.
    */
   public boolean getCardKnowledge(int label, int index) {
-    return cardKnowledge[label][index];
+    return (cardKnowledge[label] & (1 << index)) != 0;
   }
 
   /**
    * Returns the index of the highest-ranked card in the AI's hand that is known. The method
    * searches for the card with the highest rank in the AI's hand, considering only the cards that
-   * the AI knows. If no card has a rank greater than or equal to 8, the method returns -1.
+   * the AI knows. If no known card is worth at least as much as an unknown card is expected to be,
+   * the method returns -1.
    *
    * @return the index of the highest-ranked known card in the AI's hand, or -1 if no suitable card
    *         is found.
@@ -142,16 +441,18 @@ public class AIPlayer extends Player {
     int highestValue = -1;
     int highestIndex = -1;
 
-    // Loop through the AI's hand and find the highest-ranked known card
-    for (int i = 0; i < 4; ++i) {
-      if (cardKnowledge[getLabel()][i] && getHand().getRankAtIndex(i) >= highestValue) {
-        highestValue = getHand().getRankAtIndex(i);
+    // Loop through the AI's known cards and find the highest-ranked one
+    for (int known = cardKnowledge[getLabel()]; known != 0; known &= known - 1) {
+      int i = Integer.numberOfTrailingZeros(known);
+      int rank = getHand().getRankAtIndex(i);
+      if (rank >= highestValue) {
+        highestValue = rank;
         highestIndex = i;
       }
     }
 
-    // Return -1 if no card with rank >= 8 is found
-    if (highestValue < 8) {
+    // Return -1 if no card at least as bad as an unknown card is found
+    if (highestValue < getExpectedUnknownValue()) {
       highestIndex = -1;
     }
 
@@ -0,0 +1,30 @@
+
+import java.util.SplittableRandom;
+
+/**
+ * The AIStrategy interface is the decision-making part of a computer player. The engine draws a
+ * card for the AI and hands the rest of the turn to its strategy, which must resolve the drawn card
+ * (swap it, use its action, or discard it) and may declare CABO. The engine ends the turn.
+ *
+ * A strategy holds no per-game state of its own; everything it knows about a game comes from the
+ * AIPlayer it plays for. The same strategy object may therefore be shared by several players, and
+ * by games running on different threads.
+ */
+public interface AIStrategy {
+
+  /**
+   * Accesses the name of this strategy, as shown in tournament tables
+   *
+   * @return a short name for this strategy
+   */
+  String getName();
+
+  /**
+   * Plays the rest of the current turn for an AI player that has just drawn a card
+   *
+   * @param engine the game in progress; the current player is the AI and it holds a drawn card
+   * @param ai     the AI player whose turn it is
+   * @param random the game's source of randomness
+   */
+  void playTurn(CaboEngine engine, AIPlayer ai, SplittableRandom random);
+}
@@ -0,0 +1,222 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The AITurnScheduler class plays the computer players' turns off the render thread. When it is a
+ * computer player's turn, the player's strategy decides the whole turn on a snapshot of the game,
+ * on a background thread. The moves it made come back as a queue of events, which the window then
+ * applies to the real game one at a time, at a readable pace. The window never waits for a
+ * decision, however long the strategy searches, so every frame costs the same.
+ */
+public class AITurnScheduler {
+
+  /** The default time between two moves of a computer player, in milliseconds */
+  public static final long DEFAULT_PACE = 300;
+
+  private static final int USE_ACTION = 15; // move type of an announced action; not a record event
+
+  // data fields
+  private final long PACE_NANOS;
+  private final ExecutorService executor;
+  private Future<MoveQueue> pending; // the turn being decided, or null
+  private ArrayDeque<int[]> moves; // the moves of the decided turn not applied yet, or null
+  private long lastMove; // the System.nanoTime() of the last move shown
+  private GameMetrics metrics; // receives every decision time, or null
+
+  /**
+   * The MoveQueue class collects the moves a computer player makes on the snapshot of a game. Each
+   * move is stored as its GameRecordWriter event type followed by the event's arguments.
+   */
+  private static class MoveQueue implements GameEventListener {
+    private final ArrayDeque<int[]> moves = new ArrayDeque<>();
+    private long decisionNanos; // how long the strategy took to play the turn
+
+    @Override
+    public void deal(CaboEngine engine) {}
+
+    @Override
+    public void draw(int actor, int code) {
+      moves.add(new int[] {GameRecordWriter.DRAW, code});
+    }
+
+    @Override
+    public void swap(int actor, int index) {
+      moves.add(new int[] {GameRecordWriter.SWAP, index});
+    }
+
+    @Override
+    public void discard(int actor) {
+      moves.add(new int[] {GameRecordWriter.DISCARD});
+    }
+
+    @Override
+    public void useAction(int actor, int actionType) {
+      moves.add(new int[] {USE_ACTION});
+    }
+
+    @Override
+    public void peek(int actor, int index) {
+      moves.add(new int[] {GameRecordWriter.PEEK, index});
+    }
+
+    @Override
+    public void spy(int actor, int label, int index) {
+      moves.add(new int[] {GameRecordWriter.SPY, label, index});
+    }
+
+    @Override
+    public void switchCards(int actor, int myIndex, int otherLabel, int otherIndex) {
+      moves.add(new int[] {GameRecordWriter.SWITCH, myIndex, otherLabel, otherIndex});
+    }
+
+    @Override
+    public void cabo(int actor) {
+      moves.add(new int[] {GameRecordWriter.CABO});
+    }
+
+    @Override
+    public void endTurn(int actor) {
+      moves.add(new int[] {GameRecordWriter.END_TURN});
+    }
+
+    @Override
+    public void scores(int[] scores) {
+      if (moves.isEmpty()) { // the deck ran out: the failed draw is what ends the game
+        moves.add(new int[] {GameRecordWriter.DRAW, -1});
+      }
+    }
+  }
+
+  /**
+   * Creates a scheduler with its own background thread
+   *
+   * @param paceMillis the time between two moves shown, in milliseconds
+   */
+  public AITurnScheduler(long paceMillis) {
+    this.PACE_NANOS = paceMillis * 1_000_000L;
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "ai-turns");
+      thread.setDaemon(true); // never keeps the game window alive
+      return thread;
+    });
+  }
+
+  /**
+   * Records how long every computer player's turn takes to decide, on the background thread
+   *
+   * @param metrics the metrics whose ai_decision histogram receives the times, or null for none
+   */
+  public void setMetrics(GameMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Advances the computer players' turns; call this once per frame. If it is a computer player's
+   * turn, this starts deciding it, or applies the next decided move to the game once the previous
+   * one has been shown for long enough.
+   *
+   * @param engine the game shown in the window
+   * @return true while a computer player's turn is in progress, so the window should keep drawing
+   *         frames; false when it is the human player's turn or the game is over
+   */
+  public boolean update(CaboEngine engine) {
+    if (engine.isGameOver()) {
+      return false;
+    }
+    if (moves == null) {
+      if (pending == null) {
+        if (!engine.getPlayers()[engine.getCurrentPlayer()].isComputer()) {
+          return false;
+        }
+        engine.logEvent(GameLog.Type.TAKING_TURN, engine.getCurrentPlayer(), 0, 0, 0);
+        CaboEngine snapshot = engine.snapshot();
+        pending = executor.submit(() -> decide(snapshot));
+        lastMove = System.nanoTime();
+        return true;
+      }
+      if (!pending.isDone()) {
+        return true;
+      }
+      MoveQueue decided = collect(pending);
+      pending = null;
+      moves = decided.moves;
+      if (metrics != null) {
+        metrics.getAiDecisions().record(decided.decisionNanos);
+      }
+    }
+    long now = System.nanoTime();
+    if (now - lastMove >= PACE_NANOS) {
+      lastMove = now;
+      apply(engine, moves.poll());
+      if (moves.isEmpty()) {
+        moves = null;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Plays the current computer player's turn on a snapshot; runs on the background thread
+   *
+   * @param snapshot a copy of the game, owned by this task
+   * @return the moves of the turn, in order, and the time taken to decide them
+   */
+  private static MoveQueue decide(CaboEngine snapshot) {
+    MoveQueue queue = new MoveQueue();
+    snapshot.setRecorder(queue);
+    long start = System.nanoTime();
+    snapshot.performAITurn();
+    queue.decisionNanos = System.nanoTime() - start;
+    return queue;
+  }
+
+  /**
+   * Gets the moves of a decided turn
+   *
+   * @param decided the finished background task
+   * @return its moves
+   * @throws IllegalStateException if the strategy failed
+   */
+  private static MoveQueue collect(Future<MoveQueue> decided) {
+    try {
+      return decided.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while collecting a computer player's turn", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("A computer player's turn failed", e.getCause());
+    }
+  }
+
+  /**
+   * Applies one move of the decided turn to the game
+   *
+   * @param engine the game shown in the window
+   * @param move   the event type of the move followed by its arguments
+   * @throws IllegalStateException if the game no longer matches the snapshot the turn was decided
+   *                               on
+   */
+  private static void apply(CaboEngine engine, int[] move) {
+    switch (move[0]) {
+      case GameRecordWriter.DRAW -> {
+        engine.drawFromDeck();
+        BaseCard drawn = engine.getDrawnCard();
+        if ((drawn == null ? -1 : drawn.getCode()) != move[1]) {
+          throw new IllegalStateException("The game changed while a computer player was deciding");
+        }
+      }
+      case GameRecordWriter.SWAP -> engine.swapDrawnCard(move[1]);
+      case GameRecordWriter.DISCARD -> engine.discardDrawnCard();
+      case USE_ACTION -> engine.announceAction();
+      case GameRecordWriter.PEEK -> engine.peek(move[1]);
+      case GameRecordWriter.SPY -> engine.spy(move[1], move[2]);
+      case GameRecordWriter.SWITCH -> engine.switchCards(move[1], move[2], move[3]);
+      case GameRecordWriter.CABO -> engine.declareCabo();
+      case GameRecordWriter.END_TURN -> engine.nextTurn();
+      default -> throw new IllegalStateException("Unknown move type " + move[0]);
+    }
+  }
+}
@@ -2,7 +2,7 @@
 public class ActionCard extends BaseCard {
 
   // data field
-  private String actionType;
+  private final ActionType actionType;
 
 
   /**
@@ -11,19 +11,39 @@ public class ActionCard extends BaseCard {
    * 
    * @param rank       the rank of the card (e.g., 1 for Ace, 13 for King).
    * @param suit       the suit of the card (e.g., "Hearts", "Diamonds")
-   * @param actionType the type of action associated with this card: "peek", "spy", or "switch"
+   * @param actionType the type of action associated with this card
    */
-  public ActionCard(int rank, String suit, String actionType) {
+  public ActionCard(int rank, String suit, ActionType actionType) {
     super(rank, suit);
     this.actionType = actionType;
   }
 
+  /**
+   * Constructs an ActionCard for the given card identity, using the action from the card registry.
+   * 
+   * @param identity the shared identity of this card; must be a rank 7 to 12 card
+   */
+  public ActionCard(CardIdentity identity) {
+    this(identity, 0);
+  }
+
+  /**
+   * Constructs an ActionCard for the given card identity, as one of the decks of a multi-deck shoe
+   * 
+   * @param identity the shared identity of this card; must be a rank 7 to 12 card
+   * @param copy     the deck of the shoe this card belongs to, from 0
+   */
+  public ActionCard(CardIdentity identity, int copy) {
+    super(identity, copy);
+    this.actionType = identity.getActionType();
+  }
+
   /**
    * Gets the type of action associated with this card.
    * 
-   * @return the action type as a String: "peek", "spy", or "switch".
+   * @return the action type: PEEK, SPY, or SWITCH.
    */
-  public String getActionType() {
+  public ActionType getActionType() {
     return actionType;
 
   }
@@ -0,0 +1,74 @@
+
+/**
+ * Enum representing the actions an action card can grant. Each action knows its button label and
+ * the prompt shown to a human player, and resolves itself against a CaboEngine once its targets
+ * have been chosen, so the human click handlers and the AI share one dispatch.
+ */
+public enum ActionType {
+  /** Cards 7 and 8: look at one of your own cards */
+  PEEK("PEEK", "Click a card in your hand to peek at it.") {
+    @Override
+    public void perform(CaboEngine engine, int myIndex, int otherLabel, int otherIndex) {
+      engine.peek(myIndex);
+    }
+  },
+  /** Cards 9 and 10: look at one of another player's cards */
+  SPY("SPY", "Click a card in another player's hand to spy on it.") {
+    @Override
+    public void perform(CaboEngine engine, int myIndex, int otherLabel, int otherIndex) {
+      engine.spy(otherLabel, otherIndex);
+    }
+  },
+  /** Cards 11 and 12: switch one of your cards with one of another player's cards */
+  SWITCH("SWITCH",
+      "Click a card from your hand, then a card from another Kingdom's hand to switch.") {
+    @Override
+    public void perform(CaboEngine engine, int myIndex, int otherLabel, int otherIndex) {
+      engine.switchCards(myIndex, otherLabel, otherIndex);
+    }
+  };
+
+  // data fields
+  private final String label; // the label of the Use Action button for this action
+  private final String prompt; // the instruction shown to a human player using this action
+
+  /**
+   * Creates an action with the given button label and prompt
+   *
+   * @param label  the label of the Use Action button for this action
+   * @param prompt the instruction shown to a human player using this action
+   */
+  ActionType(String label, String prompt) {
+    this.label = label;
+    this.prompt = prompt;
+  }
+
+  /**
+   * Accesses the button label for this action
+   *
+   * @return the label, e.g. "PEEK"
+   */
+  public String getLabel() {
+    return label;
+  }
+
+  /**
+   * Accesses the instruction shown to a human player using this action
+   *
+   * @return the prompt message
+   */
+  public String getPrompt() {
+    return prompt;
+  }
+
+  /**
+   * Resolves this action for the current player of the given game, using up the drawn card. Each
+   * action only reads the targets it needs.
+   *
+   * @param engine     the game in which the action is used
+   * @param myIndex    the index of the card in the current player's hand (PEEK, SWITCH)
+   * @param otherLabel the label of the targeted player (SPY, SWITCH)
+   * @param otherIndex the index of the card in the targeted player's hand (SPY, SWITCH)
+   */
+  public abstract void perform(CaboEngine engine, int myIndex, int otherLabel, int otherIndex);
+}
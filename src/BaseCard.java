@@ -1,20 +1,16 @@
 
-
-
-
-import java.io.File;
-
-
 public class BaseCard {
   // data fields
   private static processing.core.PImage cardBack;
   private processing.core.PImage cardImage;
   protected boolean faceUp;
-  private final int HEIGHT = 70;
+  /** The height of a card on screen, in pixels */
+  public static final int HEIGHT = 70;
   protected static processing.core.PApplet processing;
-  protected int rank;
-  protected String suit;
-  private final int WIDTH = 50;
+  protected final CardIdentity identity; // the shared, immutable rank/suit/score of this card
+  private final int copy; // which deck of a multi-deck shoe this card comes from, from 0
+  /** The width of a card on screen, in pixels */
+  public static final int WIDTH = 50;
   private int x;
   private int y;
 
@@ -22,29 +18,47 @@ public class BaseCard {
 
   /**
    * Constructs a new BaseCard with the specified rank and suit. The card is initialized to be face
-   * down by default. You may assume that the provided rank and suit are valid. This method should
-   * also initialize the cardImage, and initialize cardBack if that has not yet been done by any
-   * other constructor call.
+   * down by default. You may assume that the provided rank and suit are valid.
    * 
    * @param rank the rank of the card (e.g., 1 for Ace, 13 for King).
    * @param suit the suit of the card (e.g., "Hearts", "Diamonds").
    */
   public BaseCard(int rank, String suit) {
-    if (processing == null) {
-      throw new IllegalStateException("Processing not set");
-    }
-    faceUp = false;
-    this.rank = rank;
-    this.suit = suit;
-    cardImage = processing
-        .loadImage("images" + File.separator + rank + "_of_" + suit.toLowerCase() + ".png");
-    cardBack = processing.loadImage("images" + File.separator + "back.png");
+    this(CardIdentity.of(rank, Suit.fromName(suit)));
+  }
 
+  /**
+   * Constructs a new face-down BaseCard for the given card identity. If a Processing environment
+   * has been set, this method also initializes the cardImage and cardBack from the shared
+   * ImageCache, so each PNG is decoded only once per process; otherwise the card is created
+   * headless (no images) so it can be used by the CaboEngine without a window.
+   * 
+   * @param identity the shared identity of this card
+   */
+  public BaseCard(CardIdentity identity) {
+    this(identity, 0);
+  }
+
+  /**
+   * Constructs a new face-down BaseCard for the given card identity, as one of the decks of a
+   * multi-deck shoe. Cards of different decks look alike and score alike; only their id differs.
+   * 
+   * @param identity the shared identity of this card
+   * @param copy     the deck of the shoe this card belongs to, from 0
+   */
+  public BaseCard(CardIdentity identity, int copy) {
+    faceUp = false;
+    this.identity = identity;
+    this.copy = copy;
+    if (processing != null) { // headless cards never load images
+      cardImage = ImageCache.getFace(processing, identity);
+      cardBack = ImageCache.getBack(processing);
+    }
   }
 
   /**
    * Sets the Processing environment to be used for drawing and interacting with cards. This method
-   * must be called before creating any BaseCard objects.
+   * must be called before creating any BaseCard objects that will be drawn.
    * 
    * @param processing the Processing PApplet environment.
    */
@@ -58,11 +72,35 @@ public class BaseCard {
    * @return the rank of the card, or -1 for the King of Diamonds
    */
   public int getRank() {
-    if (rank == 13 && suit.toLowerCase().equals("diamonds")) {
-      return -1;
-    }
+    return identity.getScore(); // precomputed by the card registry
+  }
+
+  /**
+   * Accesses the shared identity (rank, suit, score and action) of this card
+   * 
+   * @return the card's identity
+   */
+  public CardIdentity getIdentity() {
+    return identity;
+  }
 
-    return rank;
+  /**
+   * Returns the one-byte code of this card, as defined by CardCodes
+   * 
+   * @return the card's code, between 0 and 51
+   */
+  public byte getCode() {
+    return identity.getCode();
+  }
+
+  /**
+   * Returns the id of this card, which tells it apart from the same card of the other decks of a
+   * shoe: copy * CardCodes.DECK_SIZE + code. In a single deck the id is the code.
+   * 
+   * @return the card's id, between 0 and the size of the shoe minus 1
+   */
+  public int getId() {
+    return copy * CardCodes.DECK_SIZE + identity.getCode();
   }
 
   /**
@@ -74,6 +112,15 @@ public class BaseCard {
     this.faceUp = faceUp;
   }
 
+  /**
+   * Checks whether the card is face-up
+   * 
+   * @return true if the card is face-up, false if it is face-down
+   */
+  public boolean isFaceUp() {
+    return faceUp;
+  }
+
   /**
    * Returns a string representation of the card, showing its suit and rank.
    * 
@@ -81,7 +128,7 @@ public class BaseCard {
    */
   @Override
   public String toString() {
-    return suit + " " + rank;
+    return identity.toString();
   }
 
   /**
@@ -84,6 +84,16 @@ public class Button {
     return active;
   }
 
+  /**
+   * Adds the region of this button to a hit grid
+   *
+   * @param grid the grid to add this button to
+   * @param id   the id the grid returns for points on this button
+   */
+  public void addTo(HitGrid grid, int id) {
+    grid.add(x, y, width, height, id);
+  }
+
   /**
    * Checks if the mouse is currently over this button.
    * 
@@ -0,0 +1,168 @@
+
+import java.util.SplittableRandom;
+
+/**
+ * The ByteDeck class is a compact stack of card codes (see CardCodes), backed by a byte array and a
+ * top pointer. A full deck fits in one byte array, so copying a deck for search is a single array
+ * copy and no BaseCard objects are involved.
+ */
+public class ByteDeck {
+  // data fields
+  private final byte[] cards; // cards[0..top-1] hold the deck; the top card is cards[top-1]
+  private int top; // the number of cards in the deck
+
+  /**
+   * Creates an empty deck that can hold up to the given number of cards
+   *
+   * @param capacity the maximum number of cards this deck can hold
+   */
+  public ByteDeck(int capacity) {
+    cards = new byte[capacity];
+    top = 0;
+  }
+
+  /**
+   * Creates a full deck of all 52 card codes, in code order (not shuffled)
+   *
+   * @return a new full deck
+   */
+  public static ByteDeck createFullDeck() {
+    ByteDeck deck = new ByteDeck(CardCodes.DECK_SIZE);
+    for (int code = 0; code < CardCodes.DECK_SIZE; code++) {
+      deck.cards[code] = (byte) code;
+    }
+    deck.top = CardCodes.DECK_SIZE;
+    return deck;
+  }
+
+  /**
+   * Encodes the cards of a Deck, keeping their order
+   *
+   * @param deck the deck to encode
+   * @return a new ByteDeck with the same cards, which can hold a full deck
+   */
+  public static ByteDeck fromDeck(Deck deck) {
+    ByteDeck codes = new ByteDeck(Math.max(CardCodes.DECK_SIZE, deck.size()));
+    for (int i = 0; i < deck.size(); i++) {
+      codes.cards[i] = deck.cardAt(i).getCode();
+    }
+    codes.top = deck.size();
+    return codes;
+  }
+
+  /**
+   * Shuffles the cards currently in the deck (Fisher-Yates)
+   *
+   * @param random the source of randomness
+   */
+  public void shuffle(SplittableRandom random) {
+    for (int i = top - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      byte card = cards[i];
+      cards[i] = cards[j];
+      cards[j] = card;
+    }
+  }
+
+  /**
+   * Draws the top card of the deck
+   *
+   * @return the code of the top card, or -1 if the deck is empty
+   */
+  public int drawCard() {
+    if (top == 0) {
+      return -1;
+    }
+    return cards[--top];
+  }
+
+  /**
+   * Returns the top card of the deck without removing it
+   *
+   * @return the code of the top card, or -1 if the deck is empty
+   */
+  public int peekTop() {
+    if (top == 0) {
+      return -1;
+    }
+    return cards[top - 1];
+  }
+
+  /**
+   * Adds a card to the top of the deck
+   *
+   * @param code the code of the card to add
+   * @throws IllegalStateException if the deck is full
+   */
+  public void addCard(int code) {
+    if (top == cards.length) {
+      throw new IllegalStateException("Deck is full");
+    }
+    cards[top++] = (byte) code;
+  }
+
+  /**
+   * Accesses the card at the given position, counting from the bottom of the deck
+   *
+   * @param index the position of the card, between 0 and size()-1
+   * @return the code of that card
+   */
+  public int get(int index) {
+    return cards[index];
+  }
+
+  /**
+   * Gets the current number of cards in the deck
+   *
+   * @return the size of the deck
+   */
+  public int size() {
+    return top;
+  }
+
+  /**
+   * Accesses the number of cards this deck can hold
+   *
+   * @return the capacity of the deck
+   */
+  public int capacity() {
+    return cards.length;
+  }
+
+  /**
+   * Checks if the deck is empty
+   *
+   * @return true if the deck is empty, false otherwise
+   */
+  public boolean isEmpty() {
+    return top == 0;
+  }
+
+  /**
+   * Removes every card from the deck
+   */
+  public void clear() {
+    top = 0;
+  }
+
+  /**
+   * Creates an independent copy of this deck
+   *
+   * @return a new deck with the same cards and capacity
+   */
+  public ByteDeck copy() {
+    ByteDeck copy = new ByteDeck(cards.length);
+    copy.copyFrom(this);
+    return copy;
+  }
+
+  /**
+   * Overwrites this deck with the contents of another deck of the same capacity, without allocating
+   *
+   * @param other the deck to copy
+   */
+  public void copyFrom(ByteDeck other) {
+    System.arraycopy(other.cards, 0, cards, 0, other.top);
+    top = other.top;
+  }
+}
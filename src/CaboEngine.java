@@ -0,0 +1,862 @@
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * The CaboEngine class holds the complete rules of the card game CABO: the deck, discard pile,
+ * players, turn order and scoring. It has no dependency on Processing, so it can be driven by the
+ * CaboGame window or run headless (e.g. by a simulation) without loading any images.
+ */
+public class CaboEngine {
+
+  /** The fewest players a game can have */
+  public static final int MIN_PLAYERS = 2;
+  /** The most players a game can have; a game record stores a player's label in four bits */
+  public static final int MAX_PLAYERS = 16;
+  /** The most cards a hand can hold; the AI's knowledge of a hand is a bit mask */
+  public static final int MAX_HAND_SIZE = 16;
+  /** The most decks a shoe can have */
+  public static final int MAX_DECKS = 8;
+
+  // data fields
+  private Deck deck;
+  private Deck discard;
+
+  private Player[] players;
+  private int numDecks; // the number of decks shuffled together into the deck
+  private boolean handsShown; // true if a card in a hand may be face-up, so nextTurn() hides them
+  private int currentPlayer;
+  private boolean gameOver;
+  private int caboPlayer;
+  private BaseCard drawnCard;
+  private long seed; // the seed this game was created from; replaying it gives the same game
+  private final SplittableRandom random; // this game's own stream, used for every random choice
+  private int turnCount; // number of turns that have been completed so far
+  private int caboTurn; // the turn on which CABO was declared, or -1
+  private long version; // incremented by every change to the game, so views know when to redraw
+
+  // tracking the players' moves through the game; disabled for headless simulations
+  private static final int LOG_CAPACITY = 256; // number of most recent log entries kept
+  private final GameLog log = new GameLog(LOG_CAPACITY);
+  private boolean logMessages = true;
+  private GameEventListener recorder; // receives every event of this game; null if not recorded
+
+  /**
+   * Constructs a new game for the given players with a freshly shuffled deck, and deals four cards
+   * to each player. Human players see the first two cards of their hand face-up. The game's seed is
+   * chosen at random; see getSeed().
+   *
+   * @param players the players taking part in this game, seated in turn order; each player's label
+   *                must be equal to its index in this array.
+   */
+  public CaboEngine(Player[] players) {
+    this(players, new SplittableRandom().nextLong());
+  }
+
+  /**
+   * Constructs a new game for the given players from an explicit seed, and deals four cards to each
+   * player. All of the game's randomness (the shuffle and the computer players' decisions) comes
+   * from one stream created from the seed, so the same seed and the same human moves replay the
+   * same game exactly.
+   *
+   * @param players the players taking part in this game, seated in turn order; each player's label
+   *                must be equal to its index in this array.
+   * @param seed    the seed of this game's random stream
+   */
+  public CaboEngine(Player[] players, long seed) {
+    this(players, seed, 1);
+  }
+
+  /**
+   * Constructs a new game for any number of players, from a shoe of one or more decks shuffled
+   * together. Every player is dealt as many cards as their hand holds, which must be the same for
+   * every player. With one deck and hands of four this is the same game as CaboEngine(players,
+   * seed).
+   *
+   * @param players  the players taking part in this game, seated in turn order; each player's
+   *                 label must be equal to its index in this array.
+   * @param seed     the seed of this game's random stream
+   * @param numDecks the number of decks in the shoe
+   * @throws IllegalArgumentException if the number of players, the hand size or the number of
+   *                                  decks is out of range, or the shoe cannot deal every hand and
+   *                                  leave a card to draw
+   */
+  public CaboEngine(Player[] players, long seed, int numDecks) {
+    int handSize = checkTable(players, numDecks);
+    this.players = players;
+    this.numDecks = numDecks;
+    this.seed = seed;
+    this.random = new SplittableRandom(seed);
+    deck = new Deck(Deck.createDeck(numDecks, random));
+    discard = new Deck(new ArrayList<BaseCard>());
+    drawnCard = null;
+    caboPlayer = -1;
+    caboTurn = -1;
+    currentPlayer = 0;
+    for (Player player : players) {
+      if (player instanceof AIPlayer) {
+        ((AIPlayer) player).startGame(players.length, numDecks);
+      }
+    }
+
+    // distributing cards to each player
+    for (int i = 0; i < handSize; i++) {
+      for (int j = 0; j < players.length; j++) {
+        players[j].addCardToHand(deck.drawCard());
+      }
+    }
+
+    // every player gets to look at their first two cards
+    for (int j = 0; j < players.length; j++) {
+      if (players[j] instanceof AIPlayer) {
+        ((AIPlayer) players[j]).observe(players[j].getHand().getCardAtIndex(0));
+        ((AIPlayer) players[j]).observe(players[j].getHand().getCardAtIndex(1));
+      } else {
+        players[j].getHand().setFaceUp(0, true);
+        players[j].getHand().setFaceUp(1, true);
+        handsShown = true;
+      }
+    }
+  }
+
+  /**
+   * Checks that a table can be dealt
+   *
+   * @param players  the players, with empty hands
+   * @param numDecks the number of decks in the shoe
+   * @return the hand size
+   * @throws IllegalArgumentException if the table cannot be dealt
+   */
+  private static int checkTable(Player[] players, int numDecks) {
+    if (players.length < MIN_PLAYERS || players.length > MAX_PLAYERS) {
+      throw new IllegalArgumentException("A game needs " + MIN_PLAYERS + " to " + MAX_PLAYERS
+          + " players");
+    }
+    int handSize = players[0].getHand().getHandSize();
+    for (Player player : players) {
+      if (player.getHand().getHandSize() != handSize) {
+        throw new IllegalArgumentException("Every hand must hold the same number of cards");
+      }
+    }
+    if (handSize < 2 || handSize > MAX_HAND_SIZE) {
+      throw new IllegalArgumentException("A hand holds 2 to " + MAX_HAND_SIZE + " cards");
+    }
+    if (numDecks < 1 || numDecks > MAX_DECKS) {
+      throw new IllegalArgumentException("A shoe holds 1 to " + MAX_DECKS + " decks");
+    }
+    if (players.length * handSize >= numDecks * CardCodes.DECK_SIZE) {
+      throw new IllegalArgumentException(players.length + " hands of " + handSize
+          + " need more than " + numDecks + " deck(s)");
+    }
+    return handSize;
+  }
+
+  /**
+   * Constructs an independent copy of a game, for playing ahead on another thread. The copy has its
+   * own players, hands, deck and discard pile, holding the same card objects, and its own copy of
+   * every computer player's knowledge. It shares the original's random stream, so a turn played on
+   * the copy and replayed on the original draws exactly the numbers the original would have. Its
+   * log is off and it is not recorded.
+   *
+   * @param other the game to copy
+   */
+  private CaboEngine(CaboEngine other) {
+    players = new Player[other.players.length];
+    int handSize = other.players[0].getHand().getHandSize();
+    for (int i = 0; i < players.length; i++) {
+      Player player = other.players[i];
+      if (player instanceof AIPlayer) {
+        AIPlayer ai = new AIPlayer(player.getName(), i, true, handSize);
+        ai.copyKnowledgeFrom((AIPlayer) player);
+        ai.setStrategy(((AIPlayer) player).getStrategy());
+        players[i] = ai;
+      } else {
+        players[i] = new Player(player.getName(), i, player.isComputer(), handSize);
+      }
+      for (int j = 0; j < player.getHand().size(); j++) {
+        players[i].addCardToHand(player.getHand().getCardAtIndex(j));
+      }
+    }
+    deck = new Deck(new ArrayList<BaseCard>(other.deck.cardList));
+    discard = new Deck(new ArrayList<BaseCard>(other.discard.cardList));
+    numDecks = other.numDecks;
+    handsShown = other.handsShown;
+    currentPlayer = other.currentPlayer;
+    gameOver = other.gameOver;
+    caboPlayer = other.caboPlayer;
+    drawnCard = other.drawnCard;
+    seed = other.seed;
+    random = other.random;
+    turnCount = other.turnCount;
+    caboTurn = other.caboTurn;
+    version = other.version;
+    logMessages = false;
+  }
+
+  /**
+   * Copies this game so that a computer player's turn can be decided on another thread while this
+   * game stays with the window. Only one of the two games may be played at a time, since they share
+   * their random stream.
+   *
+   * @return an independent copy of this game
+   */
+  public CaboEngine snapshot() {
+    return new CaboEngine(this);
+  }
+
+  /**
+   * Resumes a game from a GameSnapshot, e.g. one read back from a save file. New cards are created
+   * for it. Its random stream is derived from the snapshot's seed and turn, since the position in
+   * the original stream is not saved; resuming the same snapshot twice plays the same way.
+   *
+   * @param players  the players taking part, seated as in the snapshot, with empty hands; each
+   *                 player's label must be equal to its index in this array
+   * @param snapshot the game to resume
+   * @throws IllegalArgumentException if the players do not match the snapshot's seats
+   */
+  public CaboEngine(Player[] players, GameSnapshot snapshot) {
+    this.players = players;
+    this.random = new SplittableRandom(
+        snapshot.getSeed() ^ (snapshot.getTurnCount() + 1) * 0x9E3779B97F4A7C15L);
+    deck = new Deck(new ArrayList<BaseCard>());
+    discard = new Deck(new ArrayList<BaseCard>());
+    numDecks = snapshot.getNumDecks();
+    checkTable(players, numDecks);
+    checkSeats(snapshot);
+    for (Player player : players) {
+      if (player instanceof AIPlayer) {
+        ((AIPlayer) player).startGame(players.length, numDecks);
+      }
+    }
+    BaseCard[] cards = new BaseCard[snapshot.getCardCount()];
+    for (int i = 0; i < cards.length; i++) {
+      cards[i] = Deck.createCard(snapshot.getId(i));
+    }
+    int handSize = snapshot.getHandSize();
+    for (int i = 0; i < players.length * handSize; i++) {
+      players[i / handSize].addCardToHand(cards[i]);
+    }
+    restore(snapshot, cards);
+  }
+
+  /**
+   * Captures the complete state of this game as a compact value; see GameSnapshot. This only copies
+   * a few small arrays, so it is cheap enough to call on every move of a search.
+   *
+   * @return the snapshot
+   */
+  public GameSnapshot capture() {
+    return new GameSnapshot(this);
+  }
+
+  /**
+   * Puts this game back into the state of a snapshot, reusing this game's own cards. The random
+   * stream, the log and the recorder are left as they are. Only one game's cards can be moved
+   * this way, so the snapshot must come from a game with the same seats and the same set of cards,
+   * such as an earlier capture() of this game.
+   *
+   * @param snapshot the state to restore
+   * @throws IllegalArgumentException if this game's seats or cards do not match the snapshot's
+   */
+  public void restore(GameSnapshot snapshot) {
+    checkSeats(snapshot);
+    BaseCard[] byId = new BaseCard[numDecks * CardCodes.DECK_SIZE];
+    for (Player player : players) {
+      for (int slot = 0; slot < player.getHand().size(); slot++) {
+        BaseCard card = player.getHand().getCardAtIndex(slot);
+        byId[card.getId()] = card;
+      }
+    }
+    for (BaseCard card : deck.cardList) {
+      byId[card.getId()] = card;
+    }
+    for (BaseCard card : discard.cardList) {
+      byId[card.getId()] = card;
+    }
+    if (drawnCard != null) {
+      byId[drawnCard.getId()] = drawnCard;
+    }
+    int count = deck.size() + discard.size() + (drawnCard == null ? 0 : 1)
+        + players.length * players[0].getHand().size();
+    BaseCard[] cards = new BaseCard[snapshot.getCardCount()];
+    for (int i = 0; i < cards.length; i++) {
+      cards[i] = snapshot.getId(i) < byId.length ? byId[snapshot.getId(i)] : null;
+      if (cards[i] == null || cards.length != count) {
+        throw new IllegalArgumentException("The snapshot is of a game with other cards");
+      }
+    }
+    restore(snapshot, cards);
+  }
+
+  /**
+   * Checks that a snapshot can be restored onto this game's players
+   *
+   * @param snapshot the snapshot
+   * @throws IllegalArgumentException if the number of players, the hand size or the computer seats
+   *                                  do not match
+   */
+  private void checkSeats(GameSnapshot snapshot) {
+    if (snapshot.getNumPlayers() != players.length
+        || snapshot.getHandSize() != players[0].getHand().getHandSize()
+        || snapshot.getNumDecks() != numDecks) {
+      throw new IllegalArgumentException("The snapshot is of a game with other seats");
+    }
+    for (int i = 0; i < players.length; i++) {
+      if (snapshot.isComputerSeat(i) != players[i] instanceof AIPlayer) {
+        throw new IllegalArgumentException("Seat " + i + " does not match the snapshot");
+      }
+    }
+  }
+
+  /**
+   * Lays out a snapshot's cards and copies its state and every computer player's knowledge
+   *
+   * @param snapshot the snapshot
+   * @param cards    the card objects, in the snapshot's order; the hands already hold theirs
+   */
+  private void restore(GameSnapshot snapshot, BaseCard[] cards) {
+    int position = 0;
+    for (Player player : players) {
+      for (int slot = 0; slot < snapshot.getHandSize(); slot++) {
+        player.getHand().swap(cards[position++], slot);
+      }
+    }
+    deck.cardList.clear();
+    for (int i = 0; i < snapshot.getDeckSize(); i++) {
+      deck.cardList.add(cards[position++]);
+    }
+    discard.cardList.clear();
+    for (int i = 0; i < snapshot.getDiscardSize(); i++) {
+      discard.cardList.add(cards[position++]);
+    }
+    drawnCard = snapshot.isCardDrawn() ? cards[position] : null;
+    for (int i = 0; i < cards.length; i++) {
+      cards[i].setFaceUp(snapshot.isFaceUp(i));
+    }
+    handsShown = true;
+
+    for (int p = 0; p < players.length; p++) {
+      if (players[p] instanceof AIPlayer) {
+        AIPlayer ai = (AIPlayer) players[p];
+        for (int label = 0; label < players.length; label++) {
+          ai.setKnowledgeMasks(label, snapshot.getKnowledgeMask(p, label),
+              snapshot.getKeptCardMask(p, label));
+        }
+        snapshot.copySeenCardsTo(p, ai);
+      }
+    }
+    seed = snapshot.getSeed();
+    currentPlayer = snapshot.getCurrentPlayer();
+    gameOver = snapshot.isGameOver();
+    caboPlayer = snapshot.getCaboPlayer();
+    turnCount = snapshot.getTurnCount();
+    caboTurn = snapshot.getCaboTurn();
+    version++;
+  }
+
+  ///////////////////////////////////////////// ACCESSORS /////////////////////////////////////////
+
+  /**
+   * Accesses the players of this game, in turn order
+   *
+   * @return a reference to the players array
+   */
+  public Player[] getPlayers() {
+    return players;
+  }
+
+  /**
+   * Accesses the number of decks shuffled together into this game's deck
+   *
+   * @return the number of decks in the shoe
+   */
+  public int getNumDecks() {
+    return numDecks;
+  }
+
+  /**
+   * Accesses the label of the player whose turn it currently is
+   *
+   * @return the current player's label
+   */
+  public int getCurrentPlayer() {
+    return currentPlayer;
+  }
+
+  /**
+   * Accesses the deck that cards are drawn from
+   *
+   * @return a reference to the deck
+   */
+  public Deck getDeck() {
+    return deck;
+  }
+
+  /**
+   * Accesses the discard pile
+   *
+   * @return a reference to the discard pile
+   */
+  public Deck getDiscard() {
+    return discard;
+  }
+
+  /**
+   * Accesses the card the current player has drawn this turn
+   *
+   * @return the drawn card, or null if no card has been drawn yet
+   */
+  public BaseCard getDrawnCard() {
+    return drawnCard;
+  }
+
+  /**
+   * Accesses the label of the player who declared CABO
+   *
+   * @return the label of the player who declared CABO, or -1 if nobody has yet
+   */
+  public int getCaboPlayer() {
+    return caboPlayer;
+  }
+
+  /**
+   * Accesses the turn on which CABO was declared, counting from 0
+   *
+   * @return the number of turns completed before CABO was declared, or -1 if nobody has yet
+   */
+  public int getCaboTurn() {
+    return caboTurn;
+  }
+
+  /**
+   * Reports whether this game has finished
+   *
+   * @return true if the game is over, false otherwise
+   */
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+  /**
+   * Accesses the number of turns that have been completed in this game
+   *
+   * @return the number of completed turns
+   */
+  public int getTurnCount() {
+    return turnCount;
+  }
+
+  /**
+   * Accesses the version of the game state. The version changes whenever a transition changes the
+   * table or adds to the log, so a view only needs to redraw when it differs from the version it
+   * last drew.
+   *
+   * @return the current version
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Accesses the log of the most recent game events
+   *
+   * @return a reference to the message log
+   */
+  public GameLog getLog() {
+    return log;
+  }
+
+  /**
+   * Accesses the seed this game was created from, or that of the game it was restored from
+   *
+   * @return the seed that replays this game
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Records this game's events from now on, starting with the deal. Call this before the first
+   * turn, so the record is complete.
+   *
+   * @param recorder the listener to send this game's events to, such as a GameRecordWriter
+   */
+  public void setRecorder(GameEventListener recorder) {
+    this.recorder = recorder;
+    recorder.deal(this);
+  }
+
+  /**
+   * Enables or disables the message log. Headless simulations turn it off so that nothing is logged
+   * while playing.
+   *
+   * @param logMessages true to record game messages, false to skip them
+   */
+  public void setLogMessages(boolean logMessages) {
+    this.logMessages = logMessages;
+  }
+
+  /**
+   * Checks whether game messages are being recorded
+   *
+   * @return true if the message log is enabled
+   */
+  public boolean isLogMessages() {
+    return logMessages;
+  }
+
+  /**
+   * Sets the current game status message, adding it to the message log as free text. Once the log
+   * is full, the oldest entry is overwritten.
+   *
+   * @param message the message to set as the current game status.
+   */
+  public void setGameStatus(String message) {
+    if (logMessages) {
+      version++;
+      log.addStatus(message);
+    }
+  }
+
+  /**
+   * Adds a game event to the message log. Its text is only built if it is displayed.
+   *
+   * @param type  the type of event
+   * @param actor the label of the acting player
+   * @param arg0  the first argument of the event, or 0 if it has none
+   * @param arg1  the second argument of the event, or 0 if it has none
+   * @param arg2  the third argument of the event, or 0 if it has none
+   */
+  public void logEvent(GameLog.Type type, int actor, int arg0, int arg1, int arg2) {
+    if (logMessages) {
+      version++;
+      log.add(type, actor, arg0, arg1, arg2);
+    }
+  }
+
+  ///////////////////////////////////////////// TRANSITIONS ///////////////////////////////////////
+
+  /**
+   * Draws a card from the deck for the current player. If the deck is empty, the game ends.
+   *
+   * @return true if a card was drawn, false if the deck was empty and the game is now over
+   */
+  public boolean drawFromDeck() {
+    version++;
+    drawnCard = deck.drawCard();
+    if (drawnCard == null) { // if the deck is empty, game over
+      endGame();
+      return false;
+    }
+    if (recorder != null) {
+      recorder.draw(currentPlayer, drawnCard.getCode());
+    }
+    if (players[currentPlayer] instanceof AIPlayer) {
+      ((AIPlayer) players[currentPlayer]).observe(drawnCard);
+    }
+    logEvent(GameLog.Type.DRAW, currentPlayer, 0, 0, 0);
+    return true;
+  }
+
+  /**
+   * Swaps the drawn card with the card at the given index of the current player's hand, and puts
+   * the replaced card on the discard pile. No computer player knows the new card, except the current
+   * player if it is a computer.
+   *
+   * @param index the index of the card in the current player's hand to replace
+   */
+  public void swapDrawnCard(int index) {
+    version++;
+    Player player = players[currentPlayer];
+    handsShown |= drawnCard.isFaceUp(); // the view shows a human's drawn card face-up
+    discardCard(player.getHand().swap(drawnCard, index));
+    drawnCard = null;
+    if (recorder != null) {
+      recorder.swap(currentPlayer, index);
+    }
+
+    // erase all knowledge of the card at that index, except for the player who placed it
+    for (int j = 0; j < players.length; ++j) {
+      if (players[j] instanceof AIPlayer) {
+        ((AIPlayer) players[j]).setCardKnowledge(currentPlayer, index, j == currentPlayer);
+        ((AIPlayer) players[j]).markKeptCard(currentPlayer, index);
+      }
+    }
+    logEvent(GameLog.Type.SWAP, currentPlayer, index, 0, 0);
+  }
+
+  /**
+   * Puts a card face-up on the discard pile, where every computer player sees it.
+   *
+   * @param card the card to discard
+   */
+  private void discardCard(BaseCard card) {
+    discard.addCard(card);
+    for (int j = 0; j < players.length; ++j) {
+      if (players[j] instanceof AIPlayer) {
+        ((AIPlayer) players[j]).observe(card);
+      }
+    }
+  }
+
+  /**
+   * Puts the drawn card on the discard pile without using it.
+   */
+  public void discardDrawnCard() {
+    version++;
+    discardCard(drawnCard);
+    if (recorder != null) {
+      recorder.discard(currentPlayer);
+    }
+    logEvent(GameLog.Type.DISCARD, currentPlayer, drawnCard.getCode(), 0, 0);
+    drawnCard = null;
+  }
+
+  /**
+   * Uses the drawn card to peek at one of the current player's own cards, then discards it. A human
+   * player sees the card face-up; a computer player remembers it.
+   *
+   * @param index the index of the card in the current player's hand to peek at
+   */
+  public void peek(int index) {
+    version++;
+    Player player = players[currentPlayer];
+    if (player instanceof AIPlayer) {
+      ((AIPlayer) player).setCardKnowledge(currentPlayer, index, true);
+      ((AIPlayer) player).observe(player.getHand().getCardAtIndex(index));
+    } else {
+      player.getHand().setFaceUp(index, true);
+      handsShown = true;
+    }
+    if (recorder != null) {
+      recorder.peek(currentPlayer, index);
+    }
+    logEvent(GameLog.Type.PEEK, currentPlayer, index, 0, 0);
+    discardCard(drawnCard);
+    drawnCard = null;
+  }
+
+  /**
+   * Uses the drawn card to spy on a card in another player's hand, then discards it. A human player
+   * sees the card face-up; a computer player remembers it.
+   *
+   * @param label the label of the player being spied on
+   * @param index the index of the card in that player's hand
+   */
+  public void spy(int label, int index) {
+    version++;
+    Player player = players[currentPlayer];
+    if (player instanceof AIPlayer) {
+      ((AIPlayer) player).setCardKnowledge(label, index, true);
+      ((AIPlayer) player).observe(players[label].getHand().getCardAtIndex(index));
+    } else {
+      players[label].getHand().setFaceUp(index, true);
+      handsShown = true;
+    }
+    if (recorder != null) {
+      recorder.spy(currentPlayer, label, index);
+    }
+    logEvent(GameLog.Type.SPY, currentPlayer, label, index, 0);
+    discardCard(drawnCard);
+    drawnCard = null;
+  }
+
+  /**
+   * Uses the drawn card to switch one of the current player's cards with a card from another
+   * player's hand, then discards it. Every computer player's knowledge follows the switched cards.
+   *
+   * @param myIndex    the index of the card in the current player's hand
+   * @param otherLabel the label of the other player
+   * @param otherIndex the index of the card in the other player's hand
+   */
+  public void switchCards(int myIndex, int otherLabel, int otherIndex) {
+    version++;
+    Player player = players[currentPlayer];
+    player.getHand().switchCards(myIndex, players[otherLabel].getHand(), otherIndex);
+
+    // knowledge of each card moves along with it
+    for (int j = 0; j < players.length; ++j) {
+      if (players[j] instanceof AIPlayer) {
+        ((AIPlayer) players[j]).transferKnowledge(currentPlayer, myIndex, otherLabel, otherIndex);
+      }
+    }
+    if (recorder != null) {
+      recorder.switchCards(currentPlayer, myIndex, otherLabel, otherIndex);
+    }
+    logEvent(GameLog.Type.SWITCH, currentPlayer, myIndex, otherLabel, otherIndex);
+    discardCard(drawnCard);
+    drawnCard = null;
+  }
+
+  /**
+   * Announces that the current player uses the action of the drawn action card, before choosing
+   * its targets. If the action turns out to have no useful target, the card is simply discarded.
+   */
+  public void announceAction() {
+    int actionType = ((ActionCard) drawnCard).getActionType().ordinal();
+    if (recorder != null) {
+      recorder.useAction(currentPlayer, actionType);
+    }
+    logEvent(GameLog.Type.USE_ACTION, currentPlayer, actionType, 0, 0);
+  }
+
+  /**
+   * Uses the action of the drawn action card with the given targets, then discards it. This is the
+   * single entry point for actions, shared by human and computer players.
+   *
+   * @param myIndex    the index of the card in the current player's hand (PEEK, SWITCH)
+   * @param otherLabel the label of the targeted player (SPY, SWITCH)
+   * @param otherIndex the index of the card in the targeted player's hand (SPY, SWITCH)
+   */
+  public void useAction(int myIndex, int otherLabel, int otherIndex) {
+    ((ActionCard) drawnCard).getActionType().perform(this, myIndex, otherLabel, otherIndex);
+  }
+
+  /**
+   * Declares CABO for the current player. The game ends when the turn order comes back around to
+   * this player. This does not end the current player's turn; call nextTurn() for that.
+   */
+  public void declareCabo() {
+    version++;
+    caboPlayer = currentPlayer;
+    caboTurn = turnCount;
+    if (recorder != null) {
+      recorder.cabo(currentPlayer);
+    }
+    logEvent(GameLog.Type.CABO, currentPlayer, 0, 0, 0);
+  }
+
+  /**
+   * Advances the game to the next player's turn. Hides all players' cards, discards any drawn card
+   * that is still active, updates the current player and checks for game-over conditions.
+   */
+  public void nextTurn() {
+    version++;
+    // hide all players' cards; only human players turn them face-up, so an all-computer table
+    // skips this
+    if (handsShown) {
+      for (int i = 0; i < players.length; i++) {
+        for (int j = 0; j < players[i].getHand().size(); j++) {
+          players[i].getHand().setFaceUp(j, false);
+        }
+      }
+      handsShown = false;
+    }
+
+    // if there is still an active drawnCard, discard it and set drawnCard to null
+    if (drawnCard != null) {
+      discardCard(drawnCard);
+      drawnCard = null;
+    }
+    if (recorder != null) {
+      recorder.endTurn(currentPlayer);
+    }
+    turnCount++;
+
+    // advance the current player to the next one in the list
+    if (currentPlayer == players.length - 1) {
+      currentPlayer = 0;
+    } else {
+      currentPlayer++;
+    }
+
+    // check if the new player is the one who declared CABO (and end the game if so)
+    if (currentPlayer == caboPlayer) {
+      endGame();
+    } else {
+      logEvent(GameLog.Type.TURN, currentPlayer, 0, 0, 0);
+    }
+  }
+
+  /**
+   * Ends the game, recording the final scores if the game is being recorded
+   */
+  private void endGame() {
+    gameOver = true;
+    if (recorder != null) {
+      recorder.scores(getScores());
+    }
+  }
+
+  /////////////////////////////////////////// COMPUTER PLAYERS ////////////////////////////////////
+
+  /**
+   * Performs the AI player's turn by drawing a card and letting the player's strategy decide
+   * whether to swap, discard, or use an action card, and whether to declare CABO.
+   */
+  public void performAITurn() {
+    AIPlayer aiPlayer = (AIPlayer) players[currentPlayer];
+    logEvent(GameLog.Type.TAKING_TURN, currentPlayer, 0, 0, 0);
+
+    // Draw a card from the deck
+    if (!drawFromDeck()) {
+      return;
+    }
+
+    aiPlayer.getStrategy().playTurn(this, aiPlayer, random);
+
+    // Prepare for the next turn
+    nextTurn();
+  }
+
+  /**
+   * Chooses the player a computer player targets with its spy and switch actions: the first human
+   * player other than the current player, or the next player in turn order if there is none.
+   *
+   * @return the label of the targeted player
+   */
+  public int getOpponent() {
+    for (int i = 0; i < players.length; i++) {
+      if (i != currentPlayer && !players[i].isComputer()) {
+        return i;
+      }
+    }
+    return (currentPlayer + 1) % players.length;
+  }
+
+  /**
+   * Plays computer turns until the game is over. Every player in this game must be an AIPlayer.
+   */
+  public void playToEnd() {
+    while (!gameOver) {
+      performAITurn();
+    }
+  }
+
+  ///////////////////////////////////////////// SCORING ///////////////////////////////////////////
+
+  /**
+   * Calculates the score of each player, as the value of their hand
+   *
+   * @return an array of scores indexed by player label
+   */
+  public int[] getScores() {
+    int[] scores = new int[players.length];
+    for (int i = 0; i < players.length; i++) {
+      scores[i] = players[i].getHand().calcHand();
+    }
+    return scores;
+  }
+
+  /**
+   * Determines the winner of the game, the player with the lowest score.
+   *
+   * @return the label of the winning player, or -1 if two or more players share the lowest score
+   */
+  public int getWinner() {
+    int winner = -1;
+    int lowScore = Integer.MAX_VALUE;
+    boolean tie = false;
+    for (int i = 0; i < players.length; i++) {
+      int score = players[i].getHand().calcHand();
+      if (score < lowScore) {
+        lowScore = score;
+        winner = i;
+        tie = false;
+      } else if (score == lowScore) {
+        tie = true;
+      }
+    }
+    return tie ? -1 : winner;
+  }
+}
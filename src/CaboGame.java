@@ -1,24 +1,61 @@
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import processing.core.PApplet;
+import processing.core.PFont;
+import processing.core.PGraphics;
 
 /**
- * The CaboGame class implements the main game logic for the card game CABO. It manages the deck,
- * discard pile, players, game state, and user interactions.
+ * The CaboGame class is the Processing view of the card game CABO. The rules and game state live in
+ * a CaboEngine; this class draws that state and turns user interactions into engine transitions.
  */
 public class CaboGame extends processing.core.PApplet {
 
-  // data fields
-  private Deck deck;
-  private Deck discard;
+  private static final int MESSAGES_SHOWN = 15; // number of log entries displayed at once
 
+  // data fields
+  private CaboEngine engine;
   private Player[] players;
-  private int currentPlayer;
-  private boolean gameOver;
-  private int caboPlayer;
   private Button[] buttons;
   private int selectedCardFromCurrentPlayer;
-  private BaseCard drawnCard;
+
+  // rendering: the table and the log are drawn into offscreen layers, which are only redrawn when
+  // the engine's version or the log changes; the window only redraws when something happens
+  private PFont font;
+  private PGraphics tableLayer; // background, labels, deck, discard pile and hands
+  private PGraphics logLayer; // the most recent game messages
+  private long tableVersion = -1; // the engine version the table layer shows
+  private long logCount = -1; // the log count the log layer shows
+  private boolean tableChanged; // set when the view itself changes the table, e.g. revealing cards
+  private int hoveredButton = -1; // the index of the active button under the mouse, or -1
+
+  // frame-time measurement, printed every FRAME_TIME_WINDOW frames when -Dcabo.frameTimes=true
+  private static final int FRAME_TIME_WINDOW = 100;
+  private boolean frameTimes;
+  private long frameNanos; // total time spent in draw() in the current window
+  private long maxFrameNanos;
+  private int tableRenders; // number of times the table layer was redrawn in the current window
+
+  // timings and event counts, exported with -Dcabo.metrics=<file>; the M key (or
+  // -Dcabo.metricsOverlay=true) shows them on screen
+  private GameMetrics metrics;
+  private boolean metricsOverlay;
+  private PFont metricsFont; // monospaced, so the overlay's columns line up
+
+  // input: clicks are resolved from the layout, not from where things were last drawn
+  private HitGrid buttonGrid; // maps a point to the index of the button there
+  private HitGrid cardGrid; // maps a point to player * handSize + slot of the card there
+  private int handSize; // the number of cards in each hand
+
+  // the computer players decide their turns on a background thread and play them at this pace
+  private AITurnScheduler aiTurns;
+
+  // run with -Dcabo.save=<file> to save the game there after every turn and resume it on restart
+  private Path saveFile; // null if the game is not saved
+  private int savedTurn = -1; // the turn count of the last save
+  private boolean saveDeleted; // true once the save has been deleted at the end of the game
 
   /**
    * Enum representing the different action states in the game (e.g., swapping cards, peeking,
@@ -32,9 +69,6 @@ public class CaboGame extends processing.core.PApplet {
 
   private ActionState actionState = ActionState.NONE;
 
-  // provided data fields for tracking the players' moves through the game
-  private ArrayList<String> gameMessages = new ArrayList<>();
-
   /**
    * Launch the game window; PROVIDED. Note: the argument to PApplet.main() must match the name of
    * this class, or it won't run!
@@ -51,6 +85,11 @@ public class CaboGame extends processing.core.PApplet {
   @Override
   public void settings() {
     size(1000, 800);
+    // run with -Dcabo.hidpi=true to draw at the display's full resolution; the card images are
+    // then scaled for that density
+    if (Boolean.getBoolean("cabo.hidpi")) {
+      pixelDensity(displayDensity());
+    }
   }
 
   /**
@@ -58,18 +97,23 @@ public class CaboGame extends processing.core.PApplet {
    */
   @Override
   public void setup() {
+    long setupStart = System.nanoTime();
     // setting up the graphical environment for the game
-    textFont(createFont("Arial", 16));
+    font = createFont("Arial", 16);
+    textFont(font);
+    tableLayer = createGraphics(width, height);
+    logLayer = createGraphics(width, height);
+    // run with -Dcabo.prescale=false to scale the full-size card images on every draw instead
+    ImageCache.setPrescale(!"false".equals(System.getProperty("cabo.prescale")));
+    frameTimes = Boolean.getBoolean("cabo.frameTimes");
+    metrics = GameMetrics.fromSystemProperties();
+    metricsOverlay = Boolean.getBoolean("cabo.metricsOverlay");
+    metricsFont = createFont("Monospaced", 12);
     BaseCard.setProcessing(this);
     Deck.setProcessing(this);
     Button.setProcessing(this);
     deckCheck();
 
-    // creating decks
-    deck = new Deck(Deck.createDeck());
-    discard = new Deck(new ArrayList<BaseCard>());
-    drawnCard = null;
-
     // creating players in the game
     players = new Player[4];
     players[0] = new Player("Cyntra", 0, false);
@@ -77,20 +121,32 @@ public class CaboGame extends processing.core.PApplet {
     players[2] = new AIPlayer("Balthor", 2, true);
     players[3] = new AIPlayer("Ophira", 3, true);
 
-    caboPlayer = -1;
-    currentPlayer = 0;
-    selectedCardFromCurrentPlayer = -1;
-
-    // distributing cards to each player
-    for (int i = 0; i < 4; i++) {
-      for (int j = 0; j < 4; j++) {
-        players[j].addCardToHand(deck.drawCard());
+    // run with -Dcabo.ismcts=<milliseconds> to let the computer players search each move
+    long budget = Long.getLong("cabo.ismcts", 0);
+    if (budget > 0) {
+      IsmctsPlanner planner = new IsmctsPlanner(budget);
+      for (int i = 1; i < players.length; i++) {
+        ((AIPlayer) players[i]).setStrategy(planner);
       }
     }
 
-    players[0].getHand().setFaceUp(0, true);
-    players[0].getHand().setFaceUp(1, true);
-    System.out.println("Deck size: " + deck.size());
+    // creating the game, which shuffles the deck and deals the cards; run with -Dcabo.seed=<seed>
+    // to replay a game
+    Long seed = Long.getLong("cabo.seed");
+    String save = System.getProperty("cabo.save");
+    saveFile = save == null ? null : Paths.get(save);
+    engine = loadSavedGame();
+    if (engine == null) {
+      engine = seed == null ? new CaboEngine(players) : new CaboEngine(players, seed);
+    }
+    System.out.println("Game seed: " + engine.getSeed());
+    engine.setRecorder(metrics);
+
+    // run with -Dcabo.aiPace=<milliseconds> to change the time between the computer players' moves
+    aiTurns = new AITurnScheduler(Long.getLong("cabo.aiPace", AITurnScheduler.DEFAULT_PACE));
+    aiTurns.setMetrics(metrics);
+    selectedCardFromCurrentPlayer = -1;
+    System.out.println("Deck size: " + engine.getDeck().size());
 
     // set up buttons
     buttons = new Button[5];
@@ -110,11 +166,29 @@ public class CaboGame extends processing.core.PApplet {
     buttons[3] = new Button("Use Action", 390 + 170, 700, 150, 40);
     buttons[4] = new Button("End Turn", 390 + 170 + 170, 700, 150, 40);
 
+    // index the layout of the buttons and the hands for hit-testing
+    handSize = players[0].getHand().getHandSize();
+    buttonGrid = new HitGrid(width, height);
+    for (int i = 0; i < buttons.length; i++) {
+      buttons[i].addTo(buttonGrid, i);
+    }
+    cardGrid = new HitGrid(width, height);
+    for (int p = 0; p < players.length; p++) {
+      players[p].getHand().addTo(cardGrid, handY(p), p * handSize);
+    }
+
     // update the states of the buttons
     updateButtonStates();
 
-    // update the gameMessages log: "Turn for "+currentPlayer.name
-    setGameStatus("Turn for " + players[currentPlayer].getName());
+    // update the game log: "Turn for "+currentPlayer.name
+    engine.logEvent(GameLog.Type.TURN, engine.getCurrentPlayer(), 0, 0, 0);
+
+    // startup-time measurement: every card image should have been decoded exactly once
+    System.out.println("Setup took " + (System.nanoTime() - setupStart) / 1_000_000 + " ms ("
+        + ImageCache.getLoadCount() + " card images loaded)");
+
+    // only draw a frame when something changes; see redraw() calls
+    noLoop();
   }
 
   /**
@@ -135,30 +209,30 @@ public class CaboGame extends processing.core.PApplet {
     int clubsCount = 0;
     for (int i = 0; i < tempDeck.size(); i++) {
       // checks the number of each suit
-      if (tempDeck.cardList.get(i).suit.equals("Hearts")) {
+      Suit suit = tempDeck.cardList.get(i).getIdentity().getSuit();
+      if (suit == Suit.HEARTS) {
         heartsCount += 1;
-      } else if (tempDeck.cardList.get(i).suit.equals("Spades")) {
+      } else if (suit == Suit.SPADES) {
         spadesCount += 1;
-      } else if (tempDeck.cardList.get(i).suit.equals("Diamonds")) {
+      } else if (suit == Suit.DIAMONDS) {
         diamondsCount += 1;
-      } else if (tempDeck.cardList.get(i).suit.equals("Clubs")) {
+      } else if (suit == Suit.CLUBS) {
         clubsCount += 1;
       }
 
       // checks if 8 of each action card
       if (tempDeck.cardList.get(i) instanceof ActionCard) {
         ActionCard action = (ActionCard) tempDeck.cardList.get(i);
-        if (action.getActionType().equals("peek")) {
-          peekCount += 1;
-        } else if (action.getActionType().equals("spy")) {
-          spyCount += 1;
-        } else if (action.getActionType().equals("switch")) {
-          switchCount += 1;
+        switch (action.getActionType()) {
+          case PEEK -> peekCount += 1;
+          case SPY -> spyCount += 1;
+          case SWITCH -> switchCount += 1;
         }
       }
 
-      if (tempDeck.cardList.get(i).getRank() == -1 && tempDeck.cardList.get(i).rank == 13
-          && tempDeck.cardList.get(i).suit == "Diamonds") {
+      if (tempDeck.cardList.get(i).getRank() == -1
+          && tempDeck.cardList.get(i).getIdentity().getRank() == 13
+          && tempDeck.cardList.get(i).getIdentity().getSuit() == Suit.DIAMONDS) {
         System.out.println("King of Diamonds found and returns -1");
       }
     }
@@ -190,24 +264,20 @@ public class CaboGame extends processing.core.PApplet {
     }
 
     // if the current player is a computer, do not activate any button
-    if (!players[currentPlayer].isComputer()) {
+    BaseCard drawnCard = engine.getDrawnCard();
+    if (!players[engine.getCurrentPlayer()].isComputer()) {
       if (drawnCard == null) { // no card has been drawn yet by the current player if drawnCard is
                                // null.
         buttons[0].setActive(true);
-        if (caboPlayer == -1) // cabo has not been called
+        if (engine.getCaboPlayer() == -1) // cabo has not been called
           buttons[2].setActive(true);
       } else {
         buttons[1].setActive(true); // swap a card
         buttons[4].setActive(true); // end turn
-        if (drawnCard.getRank() >= 7 && drawnCard.getRank() <= 12) // for action cards
+        if (drawnCard instanceof ActionCard) { // for action cards
           buttons[3].setActive(true);
-        if (drawnCard.getRank() == 7 || drawnCard.getRank() == 8) // peek
-          buttons[3].setLabel("PEEK");
-        else if (drawnCard.getRank() == 9 || drawnCard.getRank() == 10) // spy
-          buttons[3].setLabel("SPY");
-        else if (drawnCard.getRank() == 11 || drawnCard.getRank() == 12) // switch
-          buttons[3].setLabel("SWITCH");
-
+          buttons[3].setLabel(((ActionCard) drawnCard).getActionType().getLabel());
+        }
 
       }
     }
@@ -215,32 +285,48 @@ public class CaboGame extends processing.core.PApplet {
 
   /**
    * Renders the graphical user interface; also handles some game logic for the computer players.
+   * The table and the message log are composed from cached layers, which are only redrawn when the
+   * game has changed. The buttons, the drawn card and the game-over screen are drawn on top.
+   * During a computer player's turn the window draws continuously, showing one move at a time.
    */
   @Override
   public void draw() {
-    background(0, 128, 0);
-    // draws deck and discard
-    deck.draw(500, 80, false);
-    discard.draw(600, 80, true);
+    long frameStart = System.nanoTime();
+    // the computer players' moves are decided in the background; this only applies them
+    if (aiTurns.update(engine)) {
+      loop();
+    } else if (isLooping()) {
+      noLoop();
+      if (!engine.isGameOver()) {
+        updateButtonStates();
+      }
+    }
 
-    // labels
-    textSize(16);
-    fill(255);
-    text("Deck:", 520, 60);
-    text("Discard Pile:", 644, 60);
+    // a game can also end mid-turn, when the deck runs out, without the turn count changing
+    if (saveFile != null && (engine.isGameOver() ? !saveDeleted
+        : engine.getTurnCount() != savedTurn && engine.getDrawnCard() == null)) {
+      saveGame();
+    }
 
-    // draws players' hands
-    text("Cyntra", 50, 45 + 150 * 0);
-    text("Avalon", 50, 45 + 150 * 1);
-    text("Balthor", 50, 45 + 150 * 2);
-    text("Ophira", 50, 45 + 150 * 3);
-    players[0].getHand().draw(60 + 150 * 0);
-    players[1].getHand().draw(60 + 150 * 1);
-    players[2].getHand().draw(60 + 150 * 2);
-    players[3].getHand().draw(60 + 150 * 3);
+    // the cards are revealed on the first frame after the game ends
+    if (engine.isGameOver() && tableVersion != engine.getVersion()) {
+      revealHands();
+    }
+    if (tableChanged || tableVersion != engine.getVersion()) {
+      renderLayer(tableLayer, this::drawTable);
+      tableVersion = engine.getVersion();
+      tableChanged = false;
+      tableRenders++;
+    }
+    if (logCount != engine.getLog().getCount()) {
+      renderLayer(logLayer, this::drawLog);
+      logCount = engine.getLog().getCount();
+    }
+    image(tableLayer, 0, 0);
+    image(logLayer, 0, 0);
 
     // draws buttons
-    if (!players[currentPlayer].isComputer()) {
+    if (!players[engine.getCurrentPlayer()].isComputer()) {
       buttons[0].draw();
       buttons[1].draw();
       buttons[2].draw();
@@ -248,54 +334,243 @@ public class CaboGame extends processing.core.PApplet {
       buttons[4].draw();
     }
 
-    // show the drawn card, if there is one
-    if (drawnCard != null) {
+    // show the human player's drawn card, if there is one
+    BaseCard drawnCard = engine.getDrawnCard();
+    if (drawnCard != null && !players[engine.getCurrentPlayer()].isComputer()) {
       drawnCard.setFaceUp(true);
       drawnCard.draw(500, 500);
     }
-    // Display game messages with different colors based on the content
-    int y = 200; // Starting y-position for messages
-    for (String message : gameMessages) {
-      textSize(16);
-      if (message.contains("CABO")) {
-        fill(255, 128, 0);
-      } else if (message.contains("switched")) {
-        fill(255, 204, 153);
-      } else if (message.contains("spied")) {
-        fill(255, 229, 204);
+
+    // if the game is over, display the game over status
+    if (engine.isGameOver())
+      displayGameOver();
+
+    if (metricsOverlay) {
+      drawMetrics();
+    }
+    long frameEnd = System.nanoTime();
+    metrics.getFrames().record(frameEnd - frameStart);
+    metrics.exportIfDue(frameEnd); // the window only draws when something happens, so the export
+                                   // interval is a lower bound
+    if (frameTimes) {
+      recordFrameTime(frameEnd - frameStart);
+    }
+  }
+
+  /**
+   * Draws the metrics over the bottom right of the table: the median, 99th percentile and worst
+   * time of each histogram, and the event counts
+   */
+  private void drawMetrics() {
+    String[] lines = metrics.toLines();
+    pushStyle();
+    fill(0, 0, 0, 180);
+    noStroke();
+    rect(width - 420, 540, 410, 20 * lines.length + 10);
+    fill(255);
+    textFont(metricsFont);
+    textAlign(LEFT, TOP);
+    for (int i = 0; i < lines.length; i++) {
+      text(lines[i], width - 412, 545 + 20 * i);
+    }
+    popStyle();
+  }
+
+  /**
+   * Shows or hides the metrics overlay when the M key is pressed
+   */
+  @Override
+  public void keyPressed() {
+    if (key == 'm' || key == 'M') {
+      metricsOverlay = !metricsOverlay;
+      redraw();
+    }
+  }
+
+  /**
+   * Resumes the game saved in the save file, if there is one and it is not over
+   *
+   * @return the resumed game, or null to start a new one
+   */
+  private CaboEngine loadSavedGame() {
+    if (saveFile == null || !Files.exists(saveFile)) {
+      return null;
+    }
+    try {
+      GameSnapshot snapshot = GameSnapshot.fromBytes(Files.readAllBytes(saveFile));
+      if (snapshot.isGameOver()) {
+        return null;
+      }
+      CaboEngine resumed = new CaboEngine(players, snapshot);
+      System.out.println("Resumed the game saved in " + saveFile + " at turn "
+          + resumed.getTurnCount());
+      return resumed;
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Could not resume " + saveFile + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Saves the game between two turns, or deletes the save once the game is over
+   */
+  private void saveGame() {
+    savedTurn = engine.getTurnCount();
+    try {
+      if (engine.isGameOver()) {
+        saveDeleted = true;
+        Files.deleteIfExists(saveFile);
       } else {
-        fill(255);
+        Files.write(saveFile, engine.capture().toBytes());
       }
-      text(message, width - 300, y); // Adjust x-position as needed
-      y += 20; // Spacing between messages
+    } catch (IOException e) {
+      System.out.println("Could not save the game to " + saveFile + ": " + e.getMessage());
     }
-    // if the game is over, display the game over status
-    if (gameOver)
-      displayGameOver();
+  }
 
-    // handles the computer players' turns
-    if (players[currentPlayer].isComputer() && !gameOver) {
-      performAITurn();
+  /**
+   * Adds one frame to the frame-time measurement, printing the average and worst frame time once
+   * every FRAME_TIME_WINDOW frames
+   *
+   * @param nanos the time the frame took to draw, in nanoseconds
+   */
+  private void recordFrameTime(long nanos) {
+    frameNanos += nanos;
+    maxFrameNanos = Math.max(maxFrameNanos, nanos);
+    if (frameCount % FRAME_TIME_WINDOW == 0) {
+      System.out.printf("frames %d-%d: %.2f ms average, %.2f ms worst, %d table redraws%n",
+          frameCount - FRAME_TIME_WINDOW + 1, frameCount, frameNanos / 1e6 / FRAME_TIME_WINDOW,
+          maxFrameNanos / 1e6, tableRenders);
+      frameNanos = 0;
+      maxFrameNanos = 0;
+      tableRenders = 0;
     }
+  }
+
+  /**
+   * Draws into an offscreen layer with the ordinary drawing methods, by pointing this sketch's
+   * graphics at the layer while drawing
+   *
+   * @param layer   the layer to draw into; it is cleared first
+   * @param content the drawing code
+   */
+  private void renderLayer(PGraphics layer, Runnable content) {
+    PGraphics screen = g;
+    layer.beginDraw();
+    layer.clear();
+    layer.textFont(font);
+    layer.textAlign(CENTER, CENTER); // the window's text has been centred since the first button
+    g = layer;
+    try {
+      content.run();
+    } finally {
+      g = screen;
+      layer.endDraw();
+    }
+  }
 
+  /**
+   * Draws the table: the background, the labels, the deck, the discard pile and every hand
+   */
+  private void drawTable() {
+    background(0, 128, 0);
+    // draws deck and discard
+    engine.getDeck().draw(500, 80, false);
+    engine.getDiscard().draw(600, 80, true);
+
+    // labels
+    textSize(16);
+    fill(255);
+    text("Deck:", 520, 60);
+    text("Discard Pile:", 644, 60);
 
+    // draws players' hands
+    text("Cyntra", 50, 45 + 150 * 0);
+    text("Avalon", 50, 45 + 150 * 1);
+    text("Balthor", 50, 45 + 150 * 2);
+    text("Ophira", 50, 45 + 150 * 3);
+    for (int p = 0; p < players.length; p++) {
+      players[p].getHand().draw(handY(p));
+    }
   }
 
+  /**
+   * Gets the y-coordinate of a player's hand on the table
+   *
+   * @param label the label of the player
+   * @return the y-coordinate of the upper-left corner of that player's cards
+   */
+  private static int handY(int label) {
+    return 60 + 150 * label;
+  }
+
+  /**
+   * Draws the most recent game messages, each in the color chosen for its type
+   */
+  private void drawLog() {
+    GameLog log = engine.getLog();
+    int y = 200; // Starting y-position for messages
+    textSize(16);
+    for (int i = Math.max(0, log.size() - MESSAGES_SHOWN); i < log.size(); i++) {
+      fill(log.getColor(i));
+      text(log.getText(i, players), width - 300, y); // Adjust x-position as needed
+      y += 20; // Spacing between messages
+    }
+  }
+
+  /**
+   * Turns every player's cards face-up for the game-over screen
+   */
+  private void revealHands() {
+    for (int i = 0; i < players.length; i++) {
+      for (int j = 0; j < players[i].getHand().size(); j++) {
+        players[i].getHand().setFaceUp(j, true);
+      }
+    }
+    tableChanged = true;
+  }
+
+  /**
+   * Redraws the window when the mouse moves onto or off an active button, so its hover color
+   * follows the mouse while the window is otherwise idle
+   */
+  @Override
+  public void mouseMoved() {
+    int hovered = buttonGrid.find(mouseX, mouseY);
+    if (hovered != -1 && !buttons[hovered].isActive()) {
+      hovered = -1;
+    }
+    if (hovered != hoveredButton) {
+      hoveredButton = hovered;
+      redraw();
+    }
+  }
 
   /**
    * Handles mouse press events during the game. It manages user interactions with buttons (that is,
    * drawing a card, declaring CABO, swapping cards, using action cards) and updates the game state
-   * accordingly.
+   * accordingly. The time each click takes to handle goes into the input histogram of the metrics.
    */
   @Override
   public void mousePressed() {
+    long clickStart = System.nanoTime();
+    handleClick();
+    metrics.getInputs().record(System.nanoTime() - clickStart);
+    redraw(); // every click may have changed the game or the buttons, or started the AI's turn
+  }
+
+  /**
+   * Handles one mouse click; see mousePressed()
+   */
+  private void handleClick() {
 
     // if game is over or it's the computer's turn, do nothing
-    if (!gameOver && !(players[currentPlayer].isComputer())) {
+    if (!engine.isGameOver() && !(players[engine.getCurrentPlayer()].isComputer())) {
       // handles button clicks
-      for (int i = 0; i < buttons.length; i++) {
+      int i = buttonGrid.find(mouseX, mouseY);
+      if (i != -1) {
         Button button = buttons[i];
-        if (button.isMouseOver() && button.isActive()) {
+        if (button.isActive()) {
           switch (i) {
             case 0 -> { // draw from deck
               drawFromDeck();
@@ -311,21 +586,14 @@ public class CaboGame extends processing.core.PApplet {
               break;
             }
             case 3 -> { // Use Action
-              if (drawnCard instanceof ActionCard) {
-                ActionCard newCard = (ActionCard) drawnCard;
-                String action = newCard.getActionType();
-
-                if (action.toLowerCase().equals("peek")) {
-                  actionState = ActionState.PEEKING;
-                  setGameStatus("Click a card in your hand to peek at it.");
-                } else if (action.toLowerCase().equals("spy")) {
-                  actionState = ActionState.SPYING;
-                  setGameStatus("Click a card in another player's hand to spy on it.");
-                } else {
-                  actionState = ActionState.SWITCHING;
-                  setGameStatus(
-                      "Click a card from your hand, then a card from another Kingdom's hand to switch.");
-                }
+              if (engine.getDrawnCard() instanceof ActionCard) {
+                ActionType action = ((ActionCard) engine.getDrawnCard()).getActionType();
+                actionState = switch (action) {
+                  case PEEK -> ActionState.PEEKING;
+                  case SPY -> ActionState.SPYING;
+                  case SWITCH -> ActionState.SWITCHING;
+                };
+                setGameStatus(action.getPrompt());
               }
               break;
             }
@@ -333,7 +601,6 @@ public class CaboGame extends processing.core.PApplet {
               nextTurn();
             }
           }
-          break;
         }
       }
 
@@ -357,33 +624,19 @@ public class CaboGame extends processing.core.PApplet {
    * Otherwise, the drawn card is displayed in the middle of the table. The game status and button
    * states are updated accordingly.
    */
-  public void drawFromDeck() { // if the deck is empty, game over
-    if (deck.size() == 0) {
-      gameOver = true;
-    } else { // otherwise, draw the next card from the deck
-      drawnCard = deck.drawCard();
-
-      setGameStatus(players[currentPlayer].getName() + " drew a card."); // update the gameMessages
-                                                                         // log: player.name+" drew
-                                                                         // a card."
-
+  public void drawFromDeck() {
+    if (engine.drawFromDeck()) { // if the deck is empty, the engine ends the game
       updateButtonStates(); // update the button states
     }
-
   }
 
   /**
    * Handles the action of declaring CABO. Updates the game status to show that the player has
-   * declared CABO.
+   * declared CABO, and ends their turn.
    */
   public void declareCabo() {
-    caboPlayer = currentPlayer;
-    setGameStatus(players[currentPlayer].getName() + " declares CABO!"); // update the gameMessages
-                                                                         // log: player.name+"
-                                                                         // declares CABO!"
+    engine.declareCabo();
     nextTurn(); // end this player's turn
-
-
   }
 
   ///////////////////////////////////// ACTION STATE HANDLERS /////////////////////////////////////
@@ -398,46 +651,15 @@ public class CaboGame extends processing.core.PApplet {
    * nothing.
    */
   public void handleCardSwap() {
-
-
     actionState = ActionState.SWAPPING;
 
     // find the index of the card from the current player's hand that the mouse is currently over
-    int index = -1;
-    for (int i = 0; i < players[currentPlayer].getHand().size(); i++) {
-      if (players[currentPlayer].getHand().cardList.get(i).isMouseOver()) {
-        index = i;
-        break;
-      }
-    }
-
+    int index = slotUnderMouse(engine.getCurrentPlayer());
     if (index >= 0) {
       // swap the card at the selected index with the drawnCard and add it to the discard pile
-      discard.addCard(players[currentPlayer].getHand().swap(drawnCard, index));
-
-      // update the gameMessages log: "Swapped the drawn card with card "+(index+1)+" in the hand."
-      setGameStatus("Swapped the drawn card with card " + (index + 1) + " in the hand.");
-
-      // for COmputer Players
-      AIPlayer AI;
-      for (int j = 1; j < players.length; ++j) {
-        AI = (AIPlayer) players[j];
-        AI.setCardKnowledge(currentPlayer, index, false); // erase all knowledge of the card at that
-                                                          // index from the AI
-      }
-      // set all buttons except End Turn to inactive
-      for (int i = 0; i < 5; i++) {
-        buttons[i].setActive(false);
-      }
-      buttons[4].setActive(true);
-
-      // set the drawnCard to null and the actionState to NONE
-      actionState = ActionState.NONE;
-      drawnCard = null;
+      engine.swapDrawnCard(index);
+      finishAction();
     }
-
-
-
   }
 
   /**
@@ -449,28 +671,10 @@ public class CaboGame extends processing.core.PApplet {
    */
   public void handlePeek() {
     // find index of a card from the current player's hand that the mouse is currently over
-    int index = players[currentPlayer].getHand().indexOfMouseOver();
+    int index = slotUnderMouse(engine.getCurrentPlayer());
     if (index >= 0) {
-      players[currentPlayer].getHand().setFaceUp(index, true); // set that card at that index to be
-                                                               // face-up
-
-      setGameStatus("Revealed card " + (index + 1) + " in the hand."); // update the gameMessages
-                                                                       // log: "Revealed card
-                                                                       // "+(index+1)+" in the
-                                                                       // hand."
-
-      discard.addCard(drawnCard); // add the drawnCard to the discard pile
-
-      // set all buttons except End Turn to inactive
-      for (int i = 0; i < 5; i++) {
-        buttons[i].setActive(false);
-      }
-      buttons[4].setActive(true);
-
-      // set the drawnCard to null and the actionState to NONE
-      actionState = ActionState.NONE;
-      drawnCard = null;
-
+      engine.useAction(index, -1, -1); // reveals the card and discards the drawn card
+      finishAction();
     }
   }
 
@@ -481,29 +685,12 @@ public class CaboGame extends processing.core.PApplet {
    * If the mouse is not currently over a card from another player's hand, this method does nothing.
    */
   public void handleSpy() {
-    for (int i = 0; i < players.length; i++) {
-      // find a card from any player's hand that the mouse is currently over
-      int index = players[i].getHand().indexOfMouseOver();
-      if (index >= 0 && i != currentPlayer) {
-        players[i].getHand().setFaceUp(index, true); // if it is not one of their own cards, set it
-                                                     // to be face-up
-        setGameStatus("Spied on " + players[i].getName() + "'s card."); // update the gameMessages
-                                                                        // log: "Spied on
-                                                                        // "+player.name+"'s card."
-        discard.addCard(drawnCard);// add the drawnCard to the discard,
-
-        // set all buttons except End Turn to inactive
-        for (int j = 0; j < 5; j++) {
-          buttons[j].setActive(false);
-        }
-        buttons[4].setActive(true);
-
-        // set the drawnCard to null and the actionState to NONE
-        actionState = ActionState.NONE;
-        drawnCard = null;
-
-        break;
-      }
+    // find a card from any player's hand that the mouse is currently over
+    int card = cardGrid.find(mouseX, mouseY);
+    if (card >= 0 && card / handSize != engine.getCurrentPlayer()) {
+      // reveals the card and discards the drawn card
+      engine.useAction(-1, card / handSize, card % handSize);
+      finishAction();
     }
   }
 
@@ -522,95 +709,62 @@ public class CaboGame extends processing.core.PApplet {
     if (selectedCardFromCurrentPlayer == -1) {
       // if they haven't: determine which card in their own hand the mouse is over & store it
       // and do nothing else
-      selectedCardFromCurrentPlayer = players[currentPlayer].getHand().indexOfMouseOver();
+      selectedCardFromCurrentPlayer = slotUnderMouse(engine.getCurrentPlayer());
     } else { // if they have selected a card from their own hand already:
 
       // find a card from any OTHER player's hand that the mouse is currently over
-      for (int i = 0; i < players.length; i++) {
-        int index = players[i].getHand().indexOfMouseOver();
-        if (index >= 0 && i != currentPlayer) {
-          players[currentPlayer].getHand().switchCards(selectedCardFromCurrentPlayer,
-              players[i].getHand(), index); // swap the selected card with the card from the
-                                            // currentPlayer's hand
-
-          setGameStatus("Switched a card with " + players[i].getName()); // update the gameMessages
-                                                                         // log: "Switched a card
-                                                                         // with "+player.name
-
-          discard.addCard(drawnCard); // add the drawnCard to the discard pile
-
-          // set all buttons except End Turn to inactive
-          for (int j = 0; j < 5; j++) {
-            buttons[j].setActive(false);
-          }
-          buttons[4].setActive(true);
-
-          // set the drawnCard to null and the actionState to NONE
-          actionState = ActionState.NONE;
-          drawnCard = null;
-
-          // update the knowledge of the swapped card for the other player
-          if (players[i] instanceof AIPlayer) {
-            boolean knowledge = ((AIPlayer) players[i]).getCardKnowledge(currentPlayer,
-                selectedCardFromCurrentPlayer);
-            ((AIPlayer) players[i]).setCardKnowledge(currentPlayer, selectedCardFromCurrentPlayer,
-                ((AIPlayer) players[i]).getCardKnowledge(i, index));
-            ((AIPlayer) players[i]).setCardKnowledge(i, index, knowledge);
-          }
-          selectedCardFromCurrentPlayer = -1; // reset the selected card instance variable to -1
-
-          break;
-        }
+      int card = cardGrid.find(mouseX, mouseY);
+      if (card >= 0 && card / handSize != engine.getCurrentPlayer()) {
+        // switches the cards, moves the AI knowledge with them and discards the drawn card
+        engine.useAction(selectedCardFromCurrentPlayer, card / handSize, card % handSize);
+        finishAction();
+        selectedCardFromCurrentPlayer = -1; // reset the selected card instance variable to -1
       }
     }
   }
 
-  /////////////////////////////////////////////////////////////////////////////////////////////////
+  /**
+   * Finds the card of a given player's hand that the mouse is over, from the layout of the hands
+   *
+   * @param label the label of the player
+   * @return the index of that card in the player's hand, or -1 if the mouse is not over any of
+   *         that player's cards
+   */
+  private int slotUnderMouse(int label) {
+    int card = cardGrid.find(mouseX, mouseY);
+    return card >= 0 && card / handSize == label ? card % handSize : -1;
+  }
 
   /**
-   * Advances the game to the next player's turn. Hides all players' cards, updates the current
-   * player, checks for game-over conditions, resets action states, and updates the UI button states
-   * for the new player's turn.
+   * Sets all buttons except End Turn to inactive and resets the actionState to NONE, once the
+   * drawn card has been used.
    */
-  public void nextTurn() {
-    // hide all players' cards
-    for (int i = 0; i < players.length; i++) {
-      for (int j = 0; j < 4; j++) {
-        players[i].getHand().setFaceUp(j, false);
-      }
+  private void finishAction() {
+    for (int i = 0; i < 5; i++) {
+      buttons[i].setActive(false);
     }
-    buttons[3].setLabel("Use Action");
+    buttons[4].setActive(true);
+    actionState = ActionState.NONE;
+  }
 
-    // if there is still an active drawnCard, discard it and set drawnCard to null
-    if (drawnCard != null) {
-      discard.addCard(drawnCard);
-      drawnCard = null;
-    }
-    // advance the current player to the next one in the list
-    if (currentPlayer == players.length - 1) {
-      currentPlayer = 0;
-    } else {
-      currentPlayer++;
-    }
+  /////////////////////////////////////////////////////////////////////////////////////////////////
 
-    // check if the new player is the one who declared CABO (and end the game if so)
-    if (currentPlayer == caboPlayer) {
-      gameOver = true;
-    } else { // set up the conditions for a new turn
-      setGameStatus("Turn for " + players[currentPlayer].getName()); // update the gameMessages log:
-                                                                     // "Turn for "+player.name
+  /**
+   * Advances the game to the next player's turn, resets action states, and updates the UI button
+   * states for the new player's turn.
+   */
+  public void nextTurn() {
+    buttons[3].setLabel("Use Action");
+    engine.nextTurn();
+    if (!engine.isGameOver()) { // set up the conditions for a new turn
       actionState = ActionState.NONE; // reset the action state to NONE
       updateButtonStates(); // update the button states
-
     }
   }
 
   /**
-   * Displays the game-over screen and reveals all players' cards. The method calculates each
-   * player's score, identifies the winner, and displays a message about the game's result,
-   * including cases where there is no winner.
-   * 
-   * We've provided the code for the GUI parts, but the logic behind this method is still TODO
+   * Displays the game-over screen over the revealed cards. The method shows each player's score
+   * and a message about the game's result, including cases where there is no winner.
    */
   public void displayGameOver() {
     // Create a dimmed background overlay
@@ -621,179 +775,31 @@ public class CaboGame extends processing.core.PApplet {
     textAlign(CENTER, CENTER);
     text("Game Over!", (float) width / 2, (float) height / 2 - 150);
 
-    // setting up variables to calculate the winner
-    int score;
     int yPosition = height / 2 - 100;
-    boolean tie = false;
-    int highScore = players[0].getHand().calcHand();
-    String winner = players[0].getName();
+    int[] scores = engine.getScores();
+    int winner = engine.getWinner();
 
-    // finding out the winner
     for (int i = 0; i < players.length; i++) {
-      score = players[i].getHand().calcHand();
-      if (score < highScore) {
-        highScore = score;
-        winner = players[i].getName();
-        if (tie) { // in case of 2 or more winners
-          tie = false;
-        }
-      } else if (score == highScore) {
-        tie = true;
-      }
-
       // display each player's score
       textSize(24);
-      text(players[i].getName() + "'s score: " + score, (float) width / 2, yPosition);
+      text(players[i].getName() + "'s score: " + scores[i], (float) width / 2, yPosition);
       yPosition += 30;
-
-      // reveal all cards of each player
-      for (int j = 0; j < 4; j++) {
-        players[i].getHand().setFaceUp(j, true);
-      }
     }
 
-
-
     // check if there is a tie or a specific CABO winner (lowest score wins)
-    if (tie)
+    if (winner == -1)
       text("No Winner. The war starts.", (float) width / 2, yPosition + 30); // there is no winner
 
     else
-      text("Winner: " + winner, (float) width / 2, yPosition + 30); // there is a winner
+      text("Winner: " + players[winner].getName(), (float) width / 2, yPosition + 30); // winner
   }
 
   /**
-   * PROVIDED: Sets the current game status message and updates the message log. If the message log
-   * exceeds a maximum number of messages, the oldest message is removed.
+   * Sets the current game status message in the engine's message log.
    *
    * @param message the message to set as the current game status.
    */
   private void setGameStatus(String message) {
-    gameMessages.add(message);
-    int MAX_MESSAGES = 15;
-    if (gameMessages.size() > MAX_MESSAGES) {
-      gameMessages.remove(0); // Remove the oldest message
-    }
-  }
-
-  /////////////////////////////////////////////////////////////////////////////////////////////////
-  // The 2 methods below this line are PROVIDED in their entirety to run the AIPlayer interactions
-  // with the CABO game. Uncomment them once you are ready to add AIPlayer actions to your game!
-  /////////////////////////////////////////////////////////////////////////////////////////////////
-
-  /**
-   * Performs the AI player's turn by drawing a card and deciding whether to swap, discard, or use
-   * an action card. If the AI player draws a card that is better than their highest card, they swap
-   * it; otherwise, they discard it. If the drawn card is an action card, the AI player performs the
-   * corresponding action. If the AI player's hand value is low enough, they may declare CABO.
-   */
-
-  private void performAITurn() {
-    AIPlayer aiPlayer = (AIPlayer) players[currentPlayer];
-    String gameStatus = aiPlayer.getName() + " is taking their turn.";
-    setGameStatus(gameStatus);
-
-    // Draw a card from the deck
-    drawnCard = deck.drawCard();
-    if (drawnCard == null) {
-      gameOver = true;
-      return;
-    }
-
-    gameStatus = aiPlayer.getName() + " drew a card.";
-    setGameStatus(gameStatus);
-
-    // Determine if AI should swap or discard
-    int drawnCardValue = drawnCard.getRank();
-    int highestCardIndex = aiPlayer.getHighestIndex();
-    if (highestCardIndex == -1) {
-      highestCardIndex = 0;
-    }
-    int highestCardValue = aiPlayer.getHand().getRankAtIndex(highestCardIndex);
-
-    // Swap if the drawn card has a lower value than the highest card in hand
-    if (drawnCardValue < highestCardValue) {
-      BaseCard cardInHand = aiPlayer.getHand().swap(drawnCard, highestCardIndex);
-      aiPlayer.setCardKnowledge(aiPlayer.getLabel(), highestCardIndex, true);
-      discard.addCard(cardInHand);
-      gameStatus = aiPlayer.getName() + " swapped the drawn card with card "
-          + (highestCardIndex + 1) + " in their hand.";
-      setGameStatus(gameStatus);
-    } else if (drawnCard instanceof ActionCard) { // Use the action card
-      String actionType = ((ActionCard) drawnCard).getActionType();
-      gameStatus = aiPlayer.getName() + " uses an action card: " + actionType;
-      setGameStatus(gameStatus);
-      performAIAction(aiPlayer, actionType);
-      discard.addCard(drawnCard);
-    } else { // Discard the drawn card
-      discard.addCard(drawnCard);
-      gameStatus = aiPlayer.getName() + " discarded the drawn card: " + drawnCard;
-      setGameStatus(gameStatus);
-    }
-
-    // AI may declare Cabo if hand value is low enough
-    int handValue = aiPlayer.calcHandBlind();
-    if (handValue <= random(13, 21) && caboPlayer == -1) {
-      declareCabo();
-    }
-
-    // Prepare for the next turn
-    drawnCard = null;
-    nextTurn();
-  }//
-
-
-  /**
-   * Performs the specified action for the AI player based on the drawn action card. Actions include
-   * peeking at their own cards, spying on another player's card, or switching cards with another
-   * player.
-   *
-   * @param aiPlayer   the AI player performing the action.
-   * @param actionType the type of action to perform ("peek", "spy", or "switch").
-   */
-
-  private void performAIAction(AIPlayer aiPlayer, String actionType) {
-    Player otherPlayer = players[0]; // Assuming Player 1 is the human player
-    String gameStatus = "";
-    switch (actionType) {
-      case "peek" -> { // AI peeks at one of its own cards
-        int unknownCardIndex = aiPlayer.getUnknownCardIndex();
-        if (unknownCardIndex != -1) {
-          aiPlayer.setCardKnowledge(aiPlayer.getLabel(), unknownCardIndex, true);
-          gameStatus = aiPlayer.getName() + " peeked at their card " + (unknownCardIndex + 1);
-          setGameStatus(gameStatus);
-        }
-      }
-      case "spy" -> { // AI spies on one of the human player's cards
-        int spyIndex = aiPlayer.getSpyIndex();
-        if (spyIndex != -1) {
-          aiPlayer.setCardKnowledge(0, spyIndex, true);
-          gameStatus = aiPlayer.getName() + " spied on Player 1's card " + (spyIndex + 1);
-          setGameStatus(gameStatus);
-        }
-      }
-      case "switch" -> { // AI switches one of its cards with one of the human player's cards
-        int aiCardIndex = aiPlayer.getHighestIndex();
-        if (aiCardIndex == -1) {
-          aiCardIndex = (int) random(aiPlayer.getHand().size());
-        }
-        int otherCardIndex = aiPlayer.getLowestIndex(otherPlayer);
-        if (otherCardIndex == -1)
-          otherCardIndex = (int) random(otherPlayer.getHand().size());
-
-        // Swap the cards between AI and the human player
-        aiPlayer.getHand().switchCards(aiCardIndex, otherPlayer.getHand(), otherCardIndex);
-        boolean preCardKnowledge = aiPlayer.getCardKnowledge(aiPlayer.getLabel(), aiCardIndex);
-        aiPlayer.setCardKnowledge(aiPlayer.getLabel(), aiCardIndex,
-            aiPlayer.getCardKnowledge(0, otherCardIndex));
-        aiPlayer.setCardKnowledge(0, otherCardIndex, preCardKnowledge);
-
-        gameStatus = aiPlayer.getName() + " switched card " + (aiCardIndex + 1) + " with "
-            + otherPlayer.getName() + "'s " + (otherCardIndex + 1) + ".";
-        setGameStatus(gameStatus);
-      }
-    }
+    engine.setGameStatus(message);
   }
-
-
 }
@@ -0,0 +1,895 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * The CaboServer class hosts any number of CABO tables for remote players over TCP. Every table
+ * runs its own CaboEngine, with any mix of remote human seats and computer seats. The whole server
+ * is one thread around one NIO selector: a connection costs a socket and two small buffers, and an
+ * idle one costs no CPU at all. Computer seats use the default greedy strategy, which decides a
+ * turn in about a microsecond, so they are played on the same thread as soon as their turn comes.
+ *
+ * The protocol is line-based ASCII, one command or event per line, words separated by spaces.
+ * Cards are sent as their codes (see CardCodes), players as their seat labels and hand slots from
+ * 0. Commands from a client:
+ *
+ * CREATE players humans [hand [decks]]
+ *                         create a table of 2-16 seats, the first humans of them remote, with
+ *                         hands of 2-16 cards (4 by default) dealt from a shoe of 1-8 decks (1 by
+ *                         default); the reply is TABLE id. A client may have up to 8 tables
+ *                         that have not finished yet.
+ * JOIN id name            take the next free remote seat of a table; the reply is SEAT id seat,
+ *                         and the game starts once every remote seat is taken
+ * DRAW                    draw a card; the reply is DRAWN code
+ * SWAP slot               swap the drawn card into your hand
+ * DISCARD                 discard the drawn card
+ * PEEK slot               use a drawn PEEK card on one of your cards
+ * SPY seat slot           use a drawn SPY card on another player's card
+ * SWITCH slot seat slot   use a drawn SWITCH card to switch one of your cards with another's
+ * CABO                    declare CABO instead of drawing; this ends your turn
+ * END                     end your turn, after drawing; a drawn card still held is discarded
+ * WATCH id                watch a table as a spectator; the reply is WATCHING id, then a FRAME
+ *                         of the whole table if its game has started
+ * STATS                   get the server's GameMetrics; the reply is STATS and a JSON object
+ * QUIT                    close the connection
+ *
+ * Events sent to every remote player at the table: START players seat hand, NAME seat name, TURN
+ * seat, DRAW seat, SWAP seat slot discarded, DISCARD seat card, PEEK seat slot card, SPY seat other
+ * slot card, SWITCH seat slot other slot card, CABO seat, END seat, HAND seat codes..., SCORES
+ * scores... and LEFT seat if a player disconnects, which abandons the game. A player also receives
+ * the cards only they may see: CARD seat slot code for their first two cards and every peek and
+ * spy, and DRAWN code for the card they drew. A command that is not allowed is answered with ERR
+ * message.
+ *
+ * Spectators receive FRAME data instead, the Base64 of a TableDeltaEncoder frame, after every batch
+ * of commands that changed the table. The frame is encoded once per table and the same line goes
+ * to every spectator; a spectator applies it to a TableView. Every hand card is hidden until the
+ * game ends, even the ones a player has looked at, and so is the drawn card. Spectators receive
+ * LEFT seat too, after which the table is gone.
+ *
+ * A table that is still waiting for its remote players is removed once nobody holds it: its
+ * creator has disconnected, no seat is taken and nobody watches. It is also removed when it has
+ * waited for -Dcabo.tableTimeout=<seconds> (600 by default) since it was created or last joined
+ * or watched; its players and spectators receive CLOSED id. A game that has started ends as soon
+ * as one of its remote players disconnects. A client that falls more than 64 KB behind in reading
+ * its events is disconnected. If a command fails inside the server, the client receives ERR
+ * Internal error, and the table the command was for is closed with CLOSED id; other tables play on.
+ *
+ * The server times every command (input), every computer turn (ai_decision) and every turn of
+ * every table (turn), and counts every game event, in one GameMetrics; run with
+ * -Dcabo.metrics=<file> to export them periodically.
+ *
+ * Usage: java CaboServer [port]
+ */
+public class CaboServer {
+
+  /** The port the server listens on when none is given */
+  public static final int DEFAULT_PORT = 7070;
+
+  private static final int MAX_LINE = 256; // longest command accepted, in bytes
+  private static final int MAX_PENDING = 1 << 16; // output a slow client may fall behind by
+  private static final int SNAPSHOT_INTERVAL = 32; // frames between full frames for spectators
+  private static final int MAX_OPEN_TABLES = 8; // unfinished tables one client may have created
+
+  // data fields
+  private final Selector selector;
+  private final ServerSocketChannel acceptor;
+  private final HashMap<Integer, Table> tables = new HashMap<>();
+  private final ArrayList<Connection> dirty = new ArrayList<>(); // connections with output to send
+  private int nextTableId;
+  private final long waitingTimeout = Long.getLong("cabo.tableTimeout", 600) * 1_000_000_000L;
+  private long lastExpiry; // System.nanoTime() of the last check for tables waiting too long
+  private volatile long gamesFinished;
+  private volatile int connections;
+  private volatile boolean running;
+  private final GameMetrics metrics = GameMetrics.fromSystemProperties();
+
+  /**
+   * The Connection class is one client: its socket, a buffer for the command it is receiving and a
+   * buffer for the events not yet sent to it
+   */
+  private class Connection {
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final ByteBuffer in = ByteBuffer.allocate(MAX_LINE);
+    private ByteBuffer out = ByteBuffer.allocate(512);
+    private boolean queued; // true if this connection is in the dirty list
+    private boolean overflowed; // true once the client fell too far behind; closed at the flush
+    private Table table; // the table this client sits at, or null
+    private int seat;
+    private Table watching; // the table this client is a spectator of, or null
+    private final ArrayList<Table> created = new ArrayList<>(); // its tables not yet closed
+
+    /**
+     * Registers a new client with the selector
+     *
+     * @param channel the client's socket, in non-blocking mode
+     * @throws IOException if the channel cannot be registered
+     */
+    Connection(SocketChannel channel) throws IOException {
+      this.channel = channel;
+      this.key = channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    /**
+     * Queues one line for this client; it is sent once the current batch of commands is handled.
+     * A client that has stopped reading is not closed here, since the caller may be iterating over
+     * the lists that closing it changes; it is marked and closed by the next flushAll().
+     *
+     * @param line the line to send, without its line break
+     */
+    void send(String line) {
+      if (overflowed) {
+        return;
+      }
+      int length = line.length() + 1;
+      if (out.remaining() < length) {
+        if (out.position() + length > MAX_PENDING) {
+          overflowed = true; // the client stopped reading
+          if (!queued) {
+            queued = true;
+            dirty.add(this);
+          }
+          return;
+        }
+        int capacity = Math.max(2 * out.capacity(), out.position() + length);
+        out = ByteBuffer.allocate(capacity).put(out.flip());
+      }
+      for (int i = 0; i < line.length(); i++) {
+        out.put((byte) line.charAt(i));
+      }
+      out.put((byte) '\n');
+      if (!queued) {
+        queued = true;
+        dirty.add(this);
+      }
+    }
+
+    /**
+     * Writes as much queued output as the socket accepts
+     *
+     * @return true if everything was written
+     * @throws IOException if the socket fails
+     */
+    boolean flush() throws IOException {
+      out.flip();
+      channel.write(out);
+      boolean done = !out.hasRemaining();
+      out.compact();
+      return done;
+    }
+  }
+
+  /**
+   * The Table class is one game and the seats around it. It is the game's event listener, and turns
+   * every event into the lines each remote player is allowed to see.
+   */
+  private class Table implements GameEventListener {
+    private final int id;
+    private final int humans;
+    private final int handSize;
+    private final int numDecks;
+    private final Connection[] seats; // the remote player of each seat; null for computer seats
+    private final String[] names;
+    private final ArrayList<Connection> watchers = new ArrayList<>();
+    private final TableDeltaEncoder encoder = new TableDeltaEncoder(SNAPSHOT_INTERVAL, false);
+    private Connection creator; // the client that created this table, or null once it has left
+    private long lastActivity; // System.nanoTime() of the creation or the last join or watch
+    private int joined; // number of remote seats taken
+    private CaboEngine engine; // null until every remote seat is taken
+    private boolean drew; // true once the current player has drawn this turn
+    private long turnStart; // System.nanoTime() at the start of the current turn
+
+    /**
+     * Creates a table waiting for its remote players
+     *
+     * @param id         the id of the table
+     * @param creator    the client creating the table
+     * @param numPlayers the number of seats
+     * @param humans     the number of remote seats, which come first
+     * @param handSize   the number of cards in each hand
+     * @param numDecks   the number of decks in the shoe
+     */
+    Table(int id, Connection creator, int numPlayers, int humans, int handSize, int numDecks) {
+      this.id = id;
+      this.creator = creator;
+      this.humans = humans;
+      this.handSize = handSize;
+      this.numDecks = numDecks;
+      this.seats = new Connection[numPlayers];
+      this.names = new String[numPlayers];
+      this.lastActivity = System.nanoTime();
+      creator.created.add(this);
+    }
+
+    /**
+     * Seats a client at the next free remote seat, and starts the game once every remote seat is
+     * taken
+     *
+     * @param client the client joining
+     * @param name   the name the client plays under
+     */
+    void join(Connection client, String name) {
+      if (joined == humans) {
+        throw new IllegalArgumentException("Table " + id + " is full");
+      }
+      int seat = joined++;
+      seats[seat] = client;
+      names[seat] = name;
+      client.table = this;
+      client.seat = seat;
+      lastActivity = System.nanoTime();
+      client.send("SEAT " + id + " " + seat);
+      if (joined == humans) {
+        start();
+      }
+    }
+
+    /**
+     * Deals the game and plays until a remote player has to move
+     */
+    private void start() {
+      Player[] players = new Player[seats.length];
+      for (int i = 0; i < players.length; i++) {
+        if (i < humans) {
+          players[i] = new Player(names[i], i, false, handSize);
+        } else {
+          names[i] = "AI-" + i;
+          players[i] = new AIPlayer(names[i], i, true, handSize);
+        }
+      }
+      engine = new CaboEngine(players, new SplittableRandom().nextLong(), numDecks);
+      engine.setLogMessages(!watchers.isEmpty()); // the log is only read for spectators' frames
+      engine.setRecorder(this);
+      advance();
+    }
+
+    /**
+     * Handles a game command from a player at this table
+     *
+     * @param client the player's connection
+     * @param words  the command and its arguments
+     * @throws IllegalArgumentException if the command is not allowed now
+     */
+    void handle(Connection client, String[] words) {
+      if (engine == null) {
+        throw new IllegalArgumentException("The game has not started");
+      }
+      if (client.seat != engine.getCurrentPlayer()) {
+        throw new IllegalArgumentException("It is not your turn");
+      }
+      BaseCard drawn = engine.getDrawnCard();
+      int handSize = engine.getPlayers()[client.seat].getHand().size();
+      int turn = engine.getTurnCount();
+      switch (words[0]) {
+        case "DRAW" -> {
+          require(!drew, "You have already drawn this turn");
+          drew = true;
+          engine.drawFromDeck(); // if the deck is empty, this ends the game
+        }
+        case "SWAP" -> {
+          require(drawn != null, "You have no card to swap");
+          engine.swapDrawnCard(parse(words, 1, handSize));
+        }
+        case "DISCARD" -> {
+          require(drawn != null, "You have no card to discard");
+          engine.discardDrawnCard();
+        }
+        case "PEEK", "SPY", "SWITCH" -> {
+          ActionType actionType = ActionType.valueOf(words[0]);
+          require(drawn instanceof ActionCard
+              && ((ActionCard) drawn).getActionType() == actionType, "You have no " + words[0]);
+          int myIndex = actionType == ActionType.SPY ? -1 : parse(words, 1, handSize);
+          int otherLabel = -1;
+          int otherIndex = -1;
+          if (actionType != ActionType.PEEK) {
+            int first = actionType == ActionType.SPY ? 1 : 2;
+            otherLabel = parse(words, first, seats.length);
+            otherIndex = parse(words, first + 1, handSize);
+            require(otherLabel != client.seat, "Choose another player's card");
+          }
+          engine.announceAction();
+          engine.useAction(myIndex, otherLabel, otherIndex);
+        }
+        case "CABO" -> {
+          require(!drew, "CABO must be declared instead of drawing");
+          require(engine.getCaboPlayer() == -1, "CABO has already been declared");
+          engine.declareCabo();
+          engine.nextTurn();
+        }
+        case "END" -> {
+          require(drew, "Draw a card first");
+          if (drawn != null) {
+            engine.discardDrawnCard(); // so every player is told about the discard
+          }
+          engine.nextTurn();
+        }
+        default -> throw new IllegalArgumentException("Unknown command " + words[0]);
+      }
+      if (engine.isGameOver() || engine.getTurnCount() != turn) {
+        advance(); // the turn has ended
+      } else {
+        publish();
+      }
+    }
+
+    /**
+     * Adds a spectator, and sends them the table as the other spectators have it
+     *
+     * @param client the spectator
+     */
+    void watch(Connection client) {
+      publish(); // so the snapshot is up to date
+      if (engine != null) {
+        engine.setLogMessages(true);
+      }
+      watchers.add(client);
+      client.watching = this;
+      lastActivity = System.nanoTime();
+      client.send("WATCHING " + id);
+      byte[] frame = encoder.snapshot();
+      if (frame != null) {
+        client.send("FRAME " + Base64.getEncoder().encodeToString(frame));
+      }
+    }
+
+    /**
+     * Sends the changes to the table since the last frame to every spectator. Nothing is encoded
+     * while nobody watches.
+     */
+    private void publish() {
+      if (watchers.isEmpty() || engine == null) {
+        return;
+      }
+      byte[] frame = encoder.next(engine);
+      if (frame != null) {
+        String line = "FRAME " + Base64.getEncoder().encodeToString(frame);
+        for (Connection watcher : watchers) {
+          watcher.send(line);
+        }
+      }
+    }
+
+    /**
+     * Plays the computer seats' turns until a remote player has to move, then announces whose turn
+     * it is; or finishes the table if the game is over
+     */
+    private void advance() {
+      drew = false;
+      while (!engine.isGameOver() && engine.getPlayers()[engine.getCurrentPlayer()].isComputer()) {
+        long start = System.nanoTime();
+        engine.performAITurn();
+        metrics.getAiDecisions().record(System.nanoTime() - start);
+      }
+      publish();
+      if (engine.isGameOver()) {
+        gamesFinished++;
+        close("");
+      } else {
+        broadcast("TURN " + engine.getCurrentPlayer());
+      }
+    }
+
+    /**
+     * Removes this table if it is still waiting for its players and nobody holds it: its creator
+     * has disconnected, no seat is taken and nobody watches
+     */
+    void closeIfAbandoned() {
+      if (engine == null && creator == null && joined == 0 && watchers.isEmpty()) {
+        close("");
+      }
+    }
+
+    /**
+     * Removes this table from the server, telling its players why
+     *
+     * @param reason a line to send to every remote player first, or "" for none
+     */
+    void close(String reason) {
+      for (Connection seat : seats) {
+        if (seat != null && seat.table == this) {
+          if (!reason.isEmpty()) {
+            seat.send(reason);
+          }
+          seat.table = null;
+        }
+      }
+      for (Connection watcher : watchers) {
+        if (!reason.isEmpty()) {
+          watcher.send(reason);
+        }
+        watcher.watching = null;
+      }
+      watchers.clear();
+      if (creator != null) {
+        creator.created.remove(this);
+      }
+      tables.remove(id);
+    }
+
+    /**
+     * Sends a line to every remote player at this table
+     *
+     * @param line the line to send
+     */
+    private void broadcast(String line) {
+      for (Connection seat : seats) {
+        if (seat != null) {
+          seat.send(line);
+        }
+      }
+    }
+
+    /**
+     * Sends a line to one player, if that player is remote
+     *
+     * @param seat the label of the player
+     * @param line the line to send
+     */
+    private void tell(int seat, String line) {
+      if (seats[seat] != null) {
+        seats[seat].send(line);
+      }
+    }
+
+    /**
+     * Accesses the code of the drawn card of the current player
+     *
+     * @return the code of the card being used
+     */
+    private int drawnCode() {
+      return engine.getDrawnCard().getCode();
+    }
+
+    /**
+     * Accesses a card on the table
+     *
+     * @param label the label of the player holding the card
+     * @param slot  the slot of the card in that player's hand
+     * @return the code of the card
+     */
+    private int cardAt(int label, int slot) {
+      return engine.getPlayers()[label].getHand().getCardAtIndex(slot).getCode();
+    }
+
+    @Override
+    public void deal(CaboEngine engine) {
+      turnStart = System.nanoTime();
+      for (int seat = 0; seat < humans; seat++) {
+        tell(seat, "START " + seats.length + " " + seat + " " + handSize);
+        for (int i = 0; i < names.length; i++) {
+          tell(seat, "NAME " + i + " " + names[i]);
+        }
+        tell(seat, "CARD " + seat + " 0 " + cardAt(seat, 0));
+        tell(seat, "CARD " + seat + " 1 " + cardAt(seat, 1));
+      }
+    }
+
+    @Override
+    public void draw(int actor, int code) {
+      metrics.count(GameRecordWriter.DRAW);
+      broadcast("DRAW " + actor);
+      tell(actor, "DRAWN " + code);
+    }
+
+    @Override
+    public void swap(int actor, int index) {
+      metrics.count(GameRecordWriter.SWAP);
+      broadcast("SWAP " + actor + " " + index + " " + engine.getDiscard().cardAt(
+          engine.getDiscard().size() - 1).getCode());
+    }
+
+    @Override
+    public void discard(int actor) {
+      metrics.count(GameRecordWriter.DISCARD);
+      broadcast("DISCARD " + actor + " " + engine.getDiscard().cardAt(
+          engine.getDiscard().size() - 1).getCode());
+    }
+
+    @Override
+    public void peek(int actor, int index) {
+      metrics.count(GameRecordWriter.PEEK);
+      broadcast("PEEK " + actor + " " + index + " " + drawnCode());
+      tell(actor, "CARD " + actor + " " + index + " " + cardAt(actor, index));
+    }
+
+    @Override
+    public void spy(int actor, int label, int index) {
+      metrics.count(GameRecordWriter.SPY);
+      broadcast("SPY " + actor + " " + label + " " + index + " " + drawnCode());
+      tell(actor, "CARD " + label + " " + index + " " + cardAt(label, index));
+    }
+
+    @Override
+    public void switchCards(int actor, int myIndex, int otherLabel, int otherIndex) {
+      metrics.count(GameRecordWriter.SWITCH);
+      broadcast("SWITCH " + actor + " " + myIndex + " " + otherLabel + " " + otherIndex + " "
+          + drawnCode());
+    }
+
+    @Override
+    public void cabo(int actor) {
+      metrics.count(GameRecordWriter.CABO);
+      broadcast("CABO " + actor);
+    }
+
+    @Override
+    public void endTurn(int actor) {
+      long now = System.nanoTime();
+      metrics.count(GameRecordWriter.END_TURN);
+      metrics.getTurns().record(now - turnStart);
+      turnStart = now;
+      broadcast("END " + actor);
+    }
+
+    @Override
+    public void scores(int[] scores) {
+      metrics.count(GameRecordWriter.SCORES);
+      StringBuilder line = new StringBuilder("SCORES");
+      for (int label = 0; label < scores.length; label++) {
+        StringBuilder hand = new StringBuilder("HAND ").append(label);
+        for (int slot = 0; slot < engine.getPlayers()[label].getHand().size(); slot++) {
+          hand.append(' ').append(cardAt(label, slot));
+        }
+        broadcast(hand.toString());
+        line.append(' ').append(scores[label]);
+      }
+      broadcast(line.toString());
+    }
+  }
+
+  /**
+   * Creates a server listening on the loopback and every other interface
+   *
+   * @param port the port to listen on, or 0 for any free port
+   * @throws IOException if the port cannot be bound
+   */
+  public CaboServer(int port) throws IOException {
+    selector = Selector.open();
+    acceptor = ServerSocketChannel.open();
+    acceptor.bind(new InetSocketAddress(port), 1024);
+    acceptor.configureBlocking(false);
+    acceptor.register(selector, SelectionKey.OP_ACCEPT);
+  }
+
+  /**
+   * Accesses the port the server listens on
+   *
+   * @return the local port
+   */
+  public int getPort() {
+    return acceptor.socket().getLocalPort();
+  }
+
+  /**
+   * Counts the games played to the end on this server
+   *
+   * @return the number of finished games
+   */
+  public long getGamesFinished() {
+    return gamesFinished;
+  }
+
+  /**
+   * Accesses the timings and event counts of this server; read them only from the server's thread,
+   * or after run() has returned
+   *
+   * @return the server's metrics
+   */
+  public GameMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Counts the clients currently connected
+   *
+   * @return the number of open connections
+   */
+  public int getConnections() {
+    return connections;
+  }
+
+  /**
+   * Serves clients on the calling thread until stop() is called
+   *
+   * @throws IOException if the selector fails
+   */
+  public void run() throws IOException {
+    running = true;
+    while (running) {
+      // wake up while idle to export, and to expire tables that wait too long for their players
+      selector.select(metrics.isExporting() || !tables.isEmpty() ? 1000 : 0);
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+        if (!key.isValid()) {
+          continue;
+        }
+        if (key.isAcceptable()) {
+          accept();
+          continue;
+        }
+        Connection client = (Connection) key.attachment();
+        if (key.isReadable()) {
+          read(client);
+        }
+        if (key.isValid() && key.isWritable() && !client.queued) {
+          client.queued = true;
+          dirty.add(client);
+        }
+      }
+      long now = System.nanoTime();
+      if (now - lastExpiry >= 1_000_000_000L) {
+        lastExpiry = now;
+        expireWaitingTables(now);
+      }
+      flushAll();
+      metrics.exportIfDue(now);
+    }
+    for (SelectionKey key : selector.keys()) {
+      key.channel().close();
+    }
+    selector.close();
+  }
+
+  /**
+   * Stops the server; run() returns after closing every connection
+   */
+  public void stop() {
+    running = false;
+    selector.wakeup();
+  }
+
+  /**
+   * Removes every table that has waited for its remote players longer than the timeout since it
+   * was created or last joined or watched
+   *
+   * @param now the current System.nanoTime()
+   */
+  private void expireWaitingTables(long now) {
+    ArrayList<Table> expired = new ArrayList<>();
+    for (Table table : tables.values()) {
+      if (table.engine == null && now - table.lastActivity > waitingTimeout) {
+        expired.add(table);
+      }
+    }
+    for (Table table : expired) {
+      table.close("CLOSED " + table.id);
+    }
+  }
+
+  /**
+   * Accepts every pending connection
+   *
+   * @throws IOException if the listening socket fails
+   */
+  private void accept() throws IOException {
+    SocketChannel channel;
+    while ((channel = acceptor.accept()) != null) {
+      channel.configureBlocking(false);
+      channel.socket().setTcpNoDelay(true);
+      new Connection(channel);
+      connections++;
+    }
+  }
+
+  /**
+   * Reads what a client has sent and handles every complete line
+   *
+   * @param client the client with input waiting
+   */
+  private void read(Connection client) {
+    int count;
+    try {
+      count = client.channel.read(client.in);
+    } catch (IOException e) {
+      count = -1;
+    }
+    if (count < 0) {
+      close(client);
+      return;
+    }
+    ByteBuffer in = client.in;
+    int start = 0;
+    for (int i = 0; i < in.position(); i++) {
+      if (in.get(i) == '\n') {
+        String line = new String(in.array(), start, i - start, StandardCharsets.US_ASCII).trim();
+        start = i + 1;
+        if (!line.isEmpty()) {
+          long commandStart = System.nanoTime();
+          handle(client, line);
+          metrics.getInputs().record(System.nanoTime() - commandStart);
+        }
+        if (!client.key.isValid()) {
+          return;
+        }
+      }
+    }
+    if (start == 0 && !in.hasRemaining()) {
+      client.send("ERR Line too long");
+      close(client);
+      return;
+    }
+    in.limit(in.position()).position(start);
+    in.compact();
+  }
+
+  /**
+   * Handles one command from a client
+   *
+   * @param client the client that sent the command
+   * @param line   the command
+   */
+  private void handle(Connection client, String line) {
+    String[] words = line.split(" +");
+    Table table = null; // the table the command is for, if any
+    try {
+      switch (words[0]) {
+        case "CREATE" -> {
+          int numPlayers = parse(words, 1, CaboEngine.MAX_PLAYERS + 1);
+          require(numPlayers >= CaboEngine.MIN_PLAYERS, "A table needs "
+              + CaboEngine.MIN_PLAYERS + " to " + CaboEngine.MAX_PLAYERS + " players");
+          int humans = parse(words, 2, numPlayers + 1);
+          require(humans >= 1, "A table needs a remote player");
+          int handSize = words.length > 3 ? parse(words, 3, CaboEngine.MAX_HAND_SIZE + 1) : 4;
+          require(handSize >= 2, "A hand needs 2 to " + CaboEngine.MAX_HAND_SIZE + " cards");
+          int numDecks = words.length > 4 ? parse(words, 4, CaboEngine.MAX_DECKS + 1) : 1;
+          require(numDecks >= 1, "A shoe needs 1 to " + CaboEngine.MAX_DECKS + " decks");
+          require(numPlayers * handSize < numDecks * CardCodes.DECK_SIZE,
+              "Not enough cards for every hand; add a deck");
+          require(client.created.size() < MAX_OPEN_TABLES,
+              "You already have " + MAX_OPEN_TABLES + " open tables");
+          int id = nextTableId++;
+          tables.put(id, new Table(id, client, numPlayers, humans, handSize, numDecks));
+          client.send("TABLE " + id);
+        }
+        case "JOIN" -> {
+          require(client.table == null && client.watching == null, "You are already at a table");
+          require(words.length == 3, "Usage: JOIN id name");
+          table = tables.get(parse(words, 1, Integer.MAX_VALUE));
+          require(table != null, "No such table");
+          table.join(client, words[2]);
+        }
+        case "WATCH" -> {
+          require(client.table == null && client.watching == null, "You are already at a table");
+          table = tables.get(parse(words, 1, Integer.MAX_VALUE));
+          require(table != null, "No such table");
+          table.watch(client);
+        }
+        case "STATS" -> client.send("STATS " + metrics.toJson());
+        case "QUIT" -> close(client);
+        default -> {
+          require(client.table != null, "You are not at a table");
+          table = client.table;
+          table.handle(client, words);
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      client.send("ERR " + e.getMessage());
+    } catch (RuntimeException e) {
+      // a bug in one table must not stop the others: close only that table
+      System.out.println("Closing table " + (table == null ? "-" : table.id) + " after " + e);
+      client.send("ERR Internal error");
+      if (table != null && tables.get(table.id) == table) {
+        table.close("CLOSED " + table.id);
+      }
+    }
+  }
+
+  /**
+   * Sends the queued output of every client that has some, asking the selector to report when a
+   * client that could not take all of it can take more. A client that fell too far behind, or
+   * whose socket fails, is closed; that can queue lines for others, which are sent in turn.
+   */
+  private void flushAll() {
+    while (!dirty.isEmpty()) {
+      Connection[] batch = dirty.toArray(new Connection[0]);
+      dirty.clear();
+      for (Connection client : batch) {
+        client.queued = false;
+        if (!client.key.isValid()) {
+          continue;
+        }
+        if (client.overflowed) {
+          close(client);
+          continue;
+        }
+        try {
+          client.key.interestOps(client.flush() ? SelectionKey.OP_READ
+              : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+          close(client);
+        }
+      }
+    }
+  }
+
+  /**
+   * Disconnects a client. A game the client was playing is abandoned, and so is a table the client
+   * created or watched that nobody else holds.
+   *
+   * @param client the client to disconnect
+   */
+  private void close(Connection client) {
+    if (!client.key.isValid()) {
+      return;
+    }
+    client.key.cancel();
+    connections--;
+    try {
+      client.channel.close();
+    } catch (IOException e) {
+      // the connection is gone either way
+    }
+    if (client.watching != null) {
+      client.watching.watchers.remove(client);
+      client.watching.closeIfAbandoned();
+    }
+    if (client.table != null) {
+      client.table.seats[client.seat] = null;
+      client.table.close("LEFT " + client.seat);
+    }
+    for (Table table : client.created.toArray(new Table[0])) {
+      table.creator = null;
+      table.closeIfAbandoned();
+    }
+    client.created.clear();
+  }
+
+  /**
+   * Parses a numeric argument of a command
+   *
+   * @param words the command and its arguments
+   * @param index the index of the argument
+   * @param bound the argument must be less than this
+   * @return the argument
+   * @throws IllegalArgumentException if the argument is missing, not a number or out of range
+   */
+  private static int parse(String[] words, int index, int bound) {
+    require(index < words.length, "Missing argument to " + words[0]);
+    int value;
+    try {
+      value = Integer.parseInt(words[index]);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Not a number: " + words[index]);
+    }
+    require(value >= 0 && value < bound, "Out of range: " + words[index]);
+    return value;
+  }
+
+  /**
+   * Checks a condition of a command
+   *
+   * @param condition the condition that must hold
+   * @param message   the error sent to the client if it does not
+   * @throws IllegalArgumentException if the condition does not hold
+   */
+  private static void require(boolean condition, String message) {
+    if (!condition) {
+      throw new IllegalArgumentException(message);
+    }
+  }
+
+  /**
+   * Runs a server until the process is killed
+   *
+   * @param args an optional port to listen on
+   * @throws IOException if the server cannot start
+   */
+  public static void main(String[] args) throws IOException {
+    CaboServer server = new CaboServer(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT);
+    System.out.println("CABO server listening on port " + server.getPort());
+    server.run();
+  }
+}
@@ -0,0 +1,253 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * The CaboServerLoad class exercises a CaboServer entirely over the loopback interface. It starts a
+ * server in this process, then connects one scripted remote player per table, each at a table with
+ * three computer seats, and keeps every table playing game after game for a fixed time. A number of
+ * extra connections can be left idle the whole time, to show that they cost the server nothing.
+ * It reports the games finished per second, the time from a player's move to their next turn
+ * (which includes the three computer turns in between), and every error the server sent.
+ *
+ * Usage: java CaboServerLoad [tables] [seconds] [idle connections]
+ */
+public class CaboServerLoad {
+
+  // data fields
+  private final Selector selector;
+  private final SplittableRandom random = new SplittableRandom(1);
+  private long games; // number of SCORES received
+  private long errors; // number of ERR lines received
+  private long[] latencies = new long[1 << 16]; // nanoseconds from a move to the next turn
+  private int latencyCount;
+
+  /**
+   * The Bot class is one scripted remote player: it declares CABO on its sixth turn if nobody has
+   * yet, and otherwise draws, swaps a low card into a random slot or discards the card, and ends
+   * its turn
+   */
+  private class Bot {
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(4096);
+    private final ByteBuffer out = ByteBuffer.allocate(256);
+    private int seat;
+    private int turns; // turns played in the current game
+    private boolean caboDeclared;
+    private long moveStart; // System.nanoTime() of the last move sent
+
+    /**
+     * Connects a bot to the server
+     *
+     * @param port the server's port on the loopback interface
+     * @throws IOException if the connection fails
+     */
+    Bot(int port) throws IOException {
+      channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", port));
+      channel.socket().setTcpNoDelay(true);
+      channel.configureBlocking(false);
+      channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    /**
+     * Reacts to one line from the server
+     *
+     * @param words the line, split into words
+     * @throws IOException if a reply cannot be sent
+     */
+    void receive(String[] words) throws IOException {
+      switch (words[0]) {
+        case "TABLE" -> send("JOIN " + words[1] + " bot");
+        case "SEAT" -> {
+          seat = Integer.parseInt(words[2]);
+          turns = 0;
+          caboDeclared = false;
+        }
+        case "CABO" -> caboDeclared = true;
+        case "TURN" -> {
+          if (Integer.parseInt(words[1]) == seat) {
+            if (moveStart != 0) {
+              recordLatency(System.nanoTime() - moveStart);
+            }
+            turns++;
+            send(turns >= 6 && !caboDeclared ? "CABO" : "DRAW");
+          }
+        }
+        case "DRAWN" -> {
+          int code = Integer.parseInt(words[1]);
+          if (CardCodes.SCORE[code] <= 4) {
+            send("SWAP " + random.nextInt(4) + "\nEND");
+          } else {
+            send("DISCARD\nEND");
+          }
+        }
+        case "SCORES" -> {
+          games++;
+          moveStart = 0;
+          send("CREATE 4 1");
+        }
+        case "ERR" -> errors++;
+        default -> {
+        }
+      }
+    }
+
+    /**
+     * Sends one or more lines to the server, and starts timing the move
+     *
+     * @param lines the lines to send, separated by line breaks
+     * @throws IOException if the connection fails
+     */
+    void send(String lines) throws IOException {
+      out.clear();
+      out.put((lines + "\n").getBytes(StandardCharsets.US_ASCII)).flip();
+      while (out.hasRemaining()) {
+        channel.write(out);
+      }
+      moveStart = System.nanoTime();
+    }
+  }
+
+  /**
+   * Creates a load driver
+   *
+   * @throws IOException if the selector cannot be opened
+   */
+  public CaboServerLoad() throws IOException {
+    selector = Selector.open();
+  }
+
+  /**
+   * Adds one latency sample, keeping every sample
+   *
+   * @param nanos the time from a move to the next turn
+   */
+  private void recordLatency(long nanos) {
+    if (latencyCount == latencies.length) {
+      latencies = Arrays.copyOf(latencies, 2 * latencyCount);
+    }
+    latencies[latencyCount++] = nanos;
+  }
+
+  /**
+   * Gets a percentile of the recorded latencies
+   *
+   * @param sorted   the sorted latencies
+   * @param fraction the percentile, between 0 and 1
+   * @return that latency in microseconds
+   */
+  private double percentile(long[] sorted, double fraction) {
+    return sorted.length == 0 ? 0 : sorted[(int) (fraction * (sorted.length - 1))] / 1e3;
+  }
+
+  /**
+   * Plays against a server until the time is up
+   *
+   * @param port    the server's port on the loopback interface
+   * @param tables  the number of tables to keep playing
+   * @param seconds how long to play
+   * @throws IOException if a connection fails
+   */
+  public void play(int port, int tables, double seconds) throws IOException {
+    for (int i = 0; i < tables; i++) {
+      new Bot(port).send("CREATE 4 1");
+    }
+    long deadline = System.nanoTime() + (long) (seconds * 1e9);
+    while (System.nanoTime() < deadline) {
+      selector.select(100);
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+        Bot bot = (Bot) key.attachment();
+        if (bot.channel.read(bot.in) < 0) {
+          throw new IOException("The server closed a connection");
+        }
+        int start = 0;
+        for (int i = 0; i < bot.in.position(); i++) {
+          if (bot.in.get(i) == '\n') {
+            String line = new String(bot.in.array(), start, i - start, StandardCharsets.US_ASCII);
+            bot.receive(line.split(" "));
+            start = i + 1;
+          }
+        }
+        bot.in.limit(bot.in.position()).position(start);
+        bot.in.compact();
+      }
+    }
+  }
+
+  /**
+   * Disconnects every bot, abandoning their games
+   *
+   * @throws IOException if a connection cannot be closed
+   */
+  public void close() throws IOException {
+    for (SelectionKey key : selector.keys()) {
+      key.channel().close();
+    }
+    selector.close();
+  }
+
+  /**
+   * Starts a server on a free loopback port and plays against it
+   *
+   * @param args the number of tables, the number of seconds to play and the number of idle
+   *             connections
+   * @throws Exception if the server or a connection fails
+   */
+  public static void main(String[] args) throws Exception {
+    int tables = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 10;
+    int idle = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+    CaboServer server = new CaboServer(0);
+    Thread serverThread = new Thread(() -> {
+      try {
+        server.run();
+      } catch (IOException e) {
+        throw new IllegalStateException("The server failed", e);
+      }
+    }, "cabo-server");
+    serverThread.start();
+
+    SocketChannel[] idlers = new SocketChannel[idle];
+    for (int i = 0; i < idle; i++) {
+      idlers[i] = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getPort()));
+    }
+
+    CaboServerLoad warmup = new CaboServerLoad();
+    warmup.play(server.getPort(), tables, 1);
+    warmup.close();
+    CaboServerLoad load = new CaboServerLoad();
+    long start = System.nanoTime();
+    load.play(server.getPort(), tables, seconds);
+    double elapsed = (System.nanoTime() - start) / 1e9;
+    long[] sorted = Arrays.copyOf(load.latencies, load.latencyCount);
+    Arrays.sort(sorted);
+    System.out.printf("%d tables, %d idle connections, %d open on the server%n", tables, idle,
+        server.getConnections());
+    System.out.printf("%,d games in %.1f s: %,.0f games/sec, %d errors%n", load.games, elapsed,
+        load.games / elapsed, load.errors);
+    System.out.printf("move to next turn: median %.0f us, p99 %.0f us, max %.0f us (%,d moves)%n",
+        load.percentile(sorted, 0.5), load.percentile(sorted, 0.99), load.percentile(sorted, 1),
+        sorted.length);
+
+    load.close();
+    server.stop();
+    serverThread.join();
+    for (String line : server.getMetrics().toLines()) {
+      System.out.println("server " + line);
+    }
+    for (SocketChannel idler : idlers) {
+      idler.close();
+    }
+  }
+}
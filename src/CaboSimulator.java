@@ -0,0 +1,288 @@
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The CaboSimulator class plays complete AI-vs-AI games of CABO headless, spread across a pool of
+ * worker threads. Each worker owns its own players, engine and random stream, split from the
+ * simulator's seed, so the threads share nothing while playing and only merge their statistics at
+ * the end. Every game is created from a seed drawn from its worker's stream, so a whole run is
+ * reproducible from the simulator's seed. A run prints its seed; run with -Dcabo.seed=<seed> to
+ * repeat it with the same number of games and threads.
+ *
+ * Usage: java [-Dcabo.seed=seed] CaboSimulator [games] [threads] [--scaling | --record prefix]
+ */
+public class CaboSimulator {
+
+  // data fields
+  private final int numPlayers;
+  private final int threads;
+  private final long seed;
+  private String recordPrefix; // worker t appends its games to recordPrefix-t.cabo; null for none
+
+  /**
+   * The Stats class accumulates the results of the games played by one worker. Workers never share
+   * a Stats object; results are combined with merge() once every worker has finished.
+   */
+  public static class Stats {
+    private long games; // number of games played
+    private long ties; // number of games without a single lowest score
+    private long turns; // total number of completed turns
+    private long[] wins; // wins indexed by seat
+    private long[] scoreTotals; // sum of final scores indexed by seat
+    private long caboGames; // number of games ended by a CABO call
+    private long caboTurnTotal; // sum of the turns on which CABO was called
+    private long caboCallerWins; // number of games won by the player who called CABO
+    private long[] caboTurnHistogram; // CABO calls indexed by the turn they were made on
+
+    /**
+     * Creates empty statistics for games with the given number of players
+     *
+     * @param numPlayers the number of seats at the table
+     */
+    public Stats(int numPlayers) {
+      wins = new long[numPlayers];
+      scoreTotals = new long[numPlayers];
+      caboTurnHistogram = new long[64];
+    }
+
+    /**
+     * Records the result of a finished game
+     *
+     * @param engine the finished game
+     */
+    public void record(CaboEngine engine) {
+      int[] scores = engine.getScores();
+      int winner = engine.getWinner();
+      games++;
+      turns += engine.getTurnCount();
+      for (int i = 0; i < scores.length; i++) {
+        scoreTotals[i] += scores[i];
+      }
+      if (winner == -1) {
+        ties++;
+      } else {
+        wins[winner]++;
+      }
+      if (engine.getCaboPlayer() != -1) {
+        caboGames++;
+        caboTurnTotal += engine.getCaboTurn();
+        caboTurnHistogram[Math.min(engine.getCaboTurn(), caboTurnHistogram.length - 1)]++;
+        if (winner == engine.getCaboPlayer()) {
+          caboCallerWins++;
+        }
+      }
+    }
+
+    /**
+     * Adds the results gathered by another worker to these statistics
+     *
+     * @param other the statistics to add
+     */
+    public void merge(Stats other) {
+      games += other.games;
+      ties += other.ties;
+      turns += other.turns;
+      caboGames += other.caboGames;
+      caboTurnTotal += other.caboTurnTotal;
+      caboCallerWins += other.caboCallerWins;
+      for (int i = 0; i < wins.length; i++) {
+        wins[i] += other.wins[i];
+        scoreTotals[i] += other.scoreTotals[i];
+      }
+      for (int i = 0; i < caboTurnHistogram.length; i++) {
+        caboTurnHistogram[i] += other.caboTurnHistogram[i];
+      }
+    }
+
+    /**
+     * Accesses the number of games recorded
+     *
+     * @return the number of games
+     */
+    public long getGames() {
+      return games;
+    }
+
+    /**
+     * Returns a multi-line report of seat advantage, average scores and CABO-call timing
+     *
+     * @return the report
+     */
+    @Override
+    public String toString() {
+      StringBuilder report = new StringBuilder();
+      report.append(String.format("games: %d, ties: %.2f%%, average turns: %.2f%n", games,
+          100.0 * ties / games, (double) turns / games));
+      for (int i = 0; i < wins.length; i++) {
+        report.append(String.format("seat %d: win rate %.2f%%, average score %.2f%n", i,
+            100.0 * wins[i] / games, (double) scoreTotals[i] / games));
+      }
+      report.append(String.format("CABO called in %.2f%% of games, on turn %.2f on average%n",
+          100.0 * caboGames / games, caboGames == 0 ? 0.0 : (double) caboTurnTotal / caboGames));
+      report.append(String.format("CABO caller wins %.2f%% of the games they call%n",
+          caboGames == 0 ? 0.0 : 100.0 * caboCallerWins / caboGames));
+      report.append("CABO calls by turn:");
+      for (int i = 0; i < caboTurnHistogram.length; i++) {
+        if (caboTurnHistogram[i] > 0) {
+          report.append(" ").append(i).append("=").append(caboTurnHistogram[i]);
+        }
+      }
+      report.append(System.lineSeparator());
+      return report.toString();
+    }
+  }
+
+  /**
+   * Creates a simulator for tables of the given size
+   *
+   * @param numPlayers the number of AI players at each table
+   * @param threads    the number of worker threads to play on
+   * @param seed       the seed from which each worker's random stream is split
+   */
+  public CaboSimulator(int numPlayers, int threads, long seed) {
+    this.numPlayers = numPlayers;
+    this.threads = threads;
+    this.seed = seed;
+  }
+
+  /**
+   * Makes every worker append the games it plays to its own record file, named prefix-t.cabo for
+   * worker t, so the workers never share a writer
+   *
+   * @param recordPrefix the start of the record file names, or null to stop recording
+   */
+  public void setRecordPrefix(String recordPrefix) {
+    this.recordPrefix = recordPrefix;
+  }
+
+  /**
+   * Plays the given number of games on one thread, with its own random stream
+   *
+   * @param games  the number of games to play
+   * @param random this worker's stream, which provides the seed of each game
+   * @return the statistics of the games played
+   */
+  public Stats playGames(long games, SplittableRandom random) {
+    return playGames(games, random, null);
+  }
+
+  /**
+   * Plays the given number of games on one thread, with its own random stream, optionally recording
+   * every game
+   *
+   * @param games    the number of games to play
+   * @param random   this worker's stream, which provides the seed of each game
+   * @param recorder the writer this worker's games are recorded with, or null
+   * @return the statistics of the games played
+   */
+  public Stats playGames(long games, SplittableRandom random, GameRecordWriter recorder) {
+    Stats stats = new Stats(numPlayers);
+    for (long g = 0; g < games; g++) {
+      Player[] players = new Player[numPlayers];
+      for (int i = 0; i < numPlayers; i++) {
+        players[i] = new AIPlayer("AI " + i, i, true);
+      }
+      CaboEngine engine = new CaboEngine(players, random.nextLong());
+      engine.setLogMessages(false);
+      if (recorder != null) {
+        engine.setRecorder(recorder);
+      }
+      engine.playToEnd();
+      stats.record(engine);
+    }
+    return stats;
+  }
+
+  /**
+   * Plays the given number of games split evenly across the worker threads, and merges the results
+   *
+   * @param games the total number of games to play
+   * @return the combined statistics of all games
+   * @throws Exception if a worker fails
+   */
+  public Stats run(long games) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      ArrayList<Future<Stats>> results = new ArrayList<>();
+      SplittableRandom streams = new SplittableRandom(seed);
+      for (int t = 0; t < threads; t++) {
+        long share = games / threads + (t < games % threads ? 1 : 0);
+        SplittableRandom random = streams.split(); // one unshared stream per worker
+        String recordFile = recordPrefix == null ? null : recordPrefix + "-" + t + ".cabo";
+        results.add(pool.submit(() -> {
+          if (recordFile == null) {
+            return playGames(share, random);
+          }
+          GameRecordWriter recorder = GameRecordWriter.open(recordFile);
+          try {
+            return playGames(share, random, recorder);
+          } finally {
+            recorder.close();
+          }
+        }));
+      }
+      Stats total = new Stats(numPlayers);
+      for (Future<Stats> result : results) {
+        total.merge(result.get());
+      }
+      return total;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Runs a batch simulation and prints the results and throughput. With --scaling, the same batch
+   * is run on 1, 2, 4, ... threads up to the number of cores to show how throughput scales.
+   *
+   * @param args the number of games, the number of threads, and optionally --scaling
+   * @throws Exception if a worker fails
+   */
+  public static void main(String[] args) throws Exception {
+    long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+    int cores = Runtime.getRuntime().availableProcessors();
+    int threads = args.length > 1 ? Integer.parseInt(args[1]) : cores;
+    boolean scaling = args.length > 2 && args[2].equals("--scaling");
+    String recordPrefix = args.length > 3 && args[2].equals("--record") ? args[3] : null;
+
+    // warm up the JIT so that the first measurement is not dominated by compilation
+    new CaboSimulator(4, threads, 0).run(Math.min(games, 100_000));
+
+    if (scaling) {
+      for (int t = 1; t < threads; t *= 2) {
+        printThroughput(games, t);
+      }
+      printThroughput(games, threads);
+      return;
+    }
+
+    long seed = Long.getLong("cabo.seed", System.nanoTime());
+    System.out.println("seed " + seed);
+    long start = System.nanoTime();
+    CaboSimulator simulator = new CaboSimulator(4, threads, seed);
+    simulator.setRecordPrefix(recordPrefix);
+    Stats stats = simulator.run(games);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.print(stats);
+    System.out.printf("%,d games on %d threads in %.2f s: %,.0f games/sec%n", stats.getGames(),
+        threads, seconds, stats.getGames() / seconds);
+  }
+
+  /**
+   * Plays a batch of games on the given number of threads and prints the throughput
+   *
+   * @param games   the number of games to play
+   * @param threads the number of worker threads
+   * @throws Exception if a worker fails
+   */
+  private static void printThroughput(long games, int threads) throws Exception {
+    long start = System.nanoTime();
+    new CaboSimulator(4, threads, 1).run(games);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%2d threads: %,.0f games/sec%n", threads, games / seconds);
+  }
+}
@@ -0,0 +1,344 @@
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The CaboTournament class plays a round-robin tournament between computer player strategies,
+ * headless and in parallel. Every pair of strategies plays a match: the seats of each table
+ * alternate between the two strategies, and the seating is rotated from one game to the next so
+ * neither strategy keeps the seat advantage. The winner of a game scores 1 for its strategy; a tie
+ * for the lowest score is split between the tied seats.
+ *
+ * The results are reported as a table of pairwise scores and an overall table of win rates and Elo
+ * ratings, each with a 95% confidence interval.
+ *
+ * A tournament prints its seed; run with -Dcabo.seed=<seed> to repeat it with the same number of
+ * games and threads. A tournament with the ISMCTS planner does not repeat exactly, since how far
+ * the planner searches depends on its time budget.
+ *
+ * Usage: java [-Dcabo.seed=seed] CaboTournament [games per pair] [threads] [ISMCTS milliseconds]
+ */
+public class CaboTournament {
+
+  private static final double Z = 1.96; // normal quantile of a 95% confidence interval
+  private static final int GAMES_PER_TASK = 50_000; // games a worker plays before reporting
+
+  // data fields
+  private final AIStrategy[] strategies;
+  private final int numPlayers;
+  private final int threads;
+  private final long seed;
+
+  /**
+   * The Results class accumulates the points and games of every pair of strategies. Workers never
+   * share a Results object; results are combined with merge() once every worker has finished.
+   */
+  public static class Results {
+    private final double[][] points; // points[a][b] is a's total score in games against b
+    private final long[][] games; // games[a][b] is the number of games between a and b
+
+    /**
+     * Creates empty results for the given number of strategies
+     *
+     * @param numStrategies the number of strategies in the tournament
+     */
+    public Results(int numStrategies) {
+      points = new double[numStrategies][numStrategies];
+      games = new long[numStrategies][numStrategies];
+    }
+
+    /**
+     * Records the result of a finished game between two strategies
+     *
+     * @param engine the finished game
+     * @param a      the index of the first strategy
+     * @param b      the index of the second strategy
+     * @param seatsA a mask with bit s set if seat s was played by strategy a
+     */
+    public void record(CaboEngine engine, int a, int b, int seatsA) {
+      int[] scores = engine.getScores();
+      int lowScore = Integer.MAX_VALUE;
+      for (int score : scores) {
+        lowScore = Math.min(lowScore, score);
+      }
+      int winnersA = 0;
+      int winners = 0;
+      for (int s = 0; s < scores.length; s++) {
+        if (scores[s] == lowScore) {
+          winners++;
+          winnersA += (seatsA >>> s) & 1;
+        }
+      }
+      double pointsA = (double) winnersA / winners;
+      points[a][b] += pointsA;
+      points[b][a] += 1 - pointsA;
+      games[a][b]++;
+      games[b][a]++;
+    }
+
+    /**
+     * Adds the results gathered by another worker to these results
+     *
+     * @param other the results to add
+     */
+    public void merge(Results other) {
+      for (int a = 0; a < points.length; a++) {
+        for (int b = 0; b < points.length; b++) {
+          points[a][b] += other.points[a][b];
+          games[a][b] += other.games[a][b];
+        }
+      }
+    }
+
+    /**
+     * Accesses the number of games played between two strategies
+     *
+     * @param a the index of one strategy
+     * @param b the index of the other strategy
+     * @return the number of games between them
+     */
+    public long getGames(int a, int b) {
+      return games[a][b];
+    }
+
+    /**
+     * Accesses the points a strategy scored against another
+     *
+     * @param a the index of the strategy
+     * @param b the index of its opponent
+     * @return a's total score in games against b
+     */
+    public double getPoints(int a, int b) {
+      return points[a][b];
+    }
+
+    /**
+     * Fits an Elo rating to every strategy from all of its games, with the Bradley-Terry model
+     * solved by minorization-maximization. The ratings are centred on 1500.
+     *
+     * @return the rating of each strategy
+     */
+    public double[] getRatings() {
+      int n = points.length;
+      double[] strength = new double[n];
+      Arrays.fill(strength, 1.0);
+      for (int iteration = 0; iteration < 1000; iteration++) {
+        double[] next = new double[n];
+        double logTotal = 0;
+        for (int a = 0; a < n; a++) {
+          double won = 0.5; // a half-point prior keeps a strategy that never won finite
+          double denominator = 1.0 / (strength[a] + 1.0); // against a virtual average opponent
+          for (int b = 0; b < n; b++) {
+            if (b != a && games[a][b] > 0) {
+              won += points[a][b];
+              denominator += games[a][b] / (strength[a] + strength[b]);
+            }
+          }
+          next[a] = won / denominator;
+          logTotal += Math.log(next[a]);
+        }
+        double mean = Math.exp(logTotal / n); // keep the geometric mean of the strengths at 1
+        for (int a = 0; a < n; a++) {
+          strength[a] = next[a] / mean;
+        }
+      }
+      double[] ratings = new double[n];
+      for (int a = 0; a < n; a++) {
+        ratings[a] = 1500 + 400 * Math.log10(strength[a]);
+      }
+      return ratings;
+    }
+  }
+
+  /**
+   * Creates a tournament between the given strategies. Strategies are shared by the worker
+   * threads, so each must be safe to use from several games at once.
+   *
+   * @param strategies the strategies taking part
+   * @param numPlayers the number of seats at each table, at least 2
+   * @param threads    the number of worker threads to play on
+   * @param seed       the seed from which each task's random stream is split
+   */
+  public CaboTournament(AIStrategy[] strategies, int numPlayers, int threads, long seed) {
+    this.strategies = strategies;
+    this.numPlayers = numPlayers;
+    this.threads = threads;
+    this.seed = seed;
+  }
+
+  /**
+   * Plays part of the match between two strategies on one thread. Game g seats strategy a in the
+   * seats s with (s + g) even and strategy b in the others, so consecutive games swap the seating.
+   *
+   * @param a         the index of the first strategy
+   * @param b         the index of the second strategy
+   * @param firstGame the number of the first game of this part of the match
+   * @param games     the number of games to play
+   * @param random    this task's stream, which provides the seed of each game
+   * @return the results of the games played
+   */
+  public Results playMatch(int a, int b, long firstGame, long games, SplittableRandom random) {
+    Results results = new Results(strategies.length);
+    for (long g = firstGame; g < firstGame + games; g++) {
+      Player[] players = new Player[numPlayers];
+      int seatsA = 0;
+      for (int s = 0; s < numPlayers; s++) {
+        AIPlayer player = new AIPlayer("AI " + s, s, true);
+        if ((s + g) % 2 == 0) {
+          player.setStrategy(strategies[a]);
+          seatsA |= 1 << s;
+        } else {
+          player.setStrategy(strategies[b]);
+        }
+        players[s] = player;
+      }
+      CaboEngine engine = new CaboEngine(players, random.nextLong());
+      engine.setLogMessages(false);
+      engine.playToEnd();
+      results.record(engine, a, b, seatsA);
+    }
+    return results;
+  }
+
+  /**
+   * Plays every match of the round robin, split into tasks across the worker threads, and merges
+   * the results
+   *
+   * @param gamesPerPair the number of games each pair of strategies plays
+   * @return the combined results of all matches
+   * @throws Exception if a worker fails
+   */
+  public Results run(long gamesPerPair) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      ArrayList<Future<Results>> tasks = new ArrayList<>();
+      SplittableRandom streams = new SplittableRandom(seed);
+      for (int a = 0; a < strategies.length; a++) {
+        for (int b = a + 1; b < strategies.length; b++) {
+          for (long first = 0; first < gamesPerPair; first += GAMES_PER_TASK) {
+            int matchA = a;
+            int matchB = b;
+            long firstGame = first;
+            long games = Math.min(GAMES_PER_TASK, gamesPerPair - first);
+            SplittableRandom random = streams.split(); // one unshared stream per task
+            tasks.add(pool.submit(() -> playMatch(matchA, matchB, firstGame, games, random)));
+          }
+        }
+      }
+      Results total = new Results(strategies.length);
+      for (Future<Results> result : tasks) {
+        total.merge(result.get());
+      }
+      return total;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Returns the tables of a finished tournament: every pairwise score, then every strategy's
+   * overall score and Elo rating
+   *
+   * @param results the results of the tournament
+   * @return the multi-line report
+   */
+  public String report(Results results) {
+    StringBuilder report = new StringBuilder();
+    report.append("pairwise scores (95% confidence interval):").append(System.lineSeparator());
+    for (int a = 0; a < strategies.length; a++) {
+      for (int b = a + 1; b < strategies.length; b++) {
+        long games = results.getGames(a, b);
+        double[] interval = wilson(results.getPoints(a, b), games);
+        report.append(String.format("  %-14s vs %-14s %6.2f%% [%6.2f, %6.2f]"
+            + "  Elo %+5.0f [%+5.0f, %+5.0f]  (%,d games)%n",
+            strategies[a].getName(), strategies[b].getName(),
+            100 * results.getPoints(a, b) / games, 100 * interval[0], 100 * interval[1],
+            eloDifference(results.getPoints(a, b) / games), eloDifference(interval[0]),
+            eloDifference(interval[1]), games));
+      }
+    }
+
+    double[] ratings = results.getRatings();
+    report.append("overall:").append(System.lineSeparator());
+    for (int a = 0; a < strategies.length; a++) {
+      double points = 0;
+      long games = 0;
+      for (int b = 0; b < strategies.length; b++) {
+        points += results.getPoints(a, b);
+        games += results.getGames(a, b);
+      }
+      double[] interval = wilson(points, games);
+      report.append(String.format("  %-14s score %6.2f%% [%6.2f, %6.2f]  Elo %5.0f%n",
+          strategies[a].getName(), 100 * points / games, 100 * interval[0], 100 * interval[1],
+          ratings[a]));
+    }
+    return report.toString();
+  }
+
+  /**
+   * Computes the Wilson score interval of a proportion. Split points from ties are counted as
+   * fractional successes, which makes the interval slightly conservative.
+   *
+   * @param successes the number of successes
+   * @param trials    the number of trials
+   * @return the lower and upper bounds of the 95% confidence interval
+   */
+  public static double[] wilson(double successes, long trials) {
+    if (trials == 0) {
+      return new double[] {0.0, 1.0};
+    }
+    double p = successes / trials;
+    double z2 = Z * Z / trials;
+    double centre = (p + z2 / 2) / (1 + z2);
+    double halfWidth = Z * Math.sqrt(p * (1 - p) / trials + z2 / (4 * trials)) / (1 + z2);
+    return new double[] {centre - halfWidth, centre + halfWidth};
+  }
+
+  /**
+   * Converts an expected score into the Elo rating difference that predicts it
+   *
+   * @param score the expected score, between 0 and 1
+   * @return the rating difference, in Elo points
+   */
+  public static double eloDifference(double score) {
+    score = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+    return 400 * Math.log10(score / (1 - score));
+  }
+
+  /**
+   * Runs a four-player tournament between the standard greedy AI, a cautious and a bold variant,
+   * and optionally the ISMCTS planner, and prints the tables and throughput
+   *
+   * @param args the number of games per pair, the number of threads, and optionally the ISMCTS
+   *             time budget per move in milliseconds
+   * @throws Exception if a worker fails
+   */
+  public static void main(String[] args) throws Exception {
+    long gamesPerPair = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+    int threads = args.length > 1 ? Integer.parseInt(args[1])
+        : Runtime.getRuntime().availableProcessors();
+    ArrayList<AIStrategy> entrants = new ArrayList<>();
+    entrants.add(new GreedyStrategy());
+    entrants.add(new GreedyStrategy("Cautious", 8, 6));
+    entrants.add(new GreedyStrategy("Bold", 18, 8));
+    if (args.length > 2) {
+      entrants.add(new IsmctsPlanner(Long.parseLong(args[2]), 1)); // searches on the game's thread
+    }
+
+    long seed = Long.getLong("cabo.seed", System.nanoTime());
+    System.out.println("seed " + seed);
+    CaboTournament tournament =
+        new CaboTournament(entrants.toArray(new AIStrategy[0]), 4, threads, seed);
+    long start = System.nanoTime();
+    Results results = tournament.run(gamesPerPair);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.print(tournament.report(results));
+    long games = gamesPerPair * entrants.size() * (entrants.size() - 1) / 2;
+    System.out.printf("%,d games on %d threads in %.2f s: %,.0f games/sec%n", games, threads,
+        seconds, games / seconds);
+  }
+}
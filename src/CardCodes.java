@@ -0,0 +1,72 @@
+
+/**
+ * The CardCodes class defines a compact one-byte encoding of the 52 CABO cards, for simulation and
+ * search code that cannot afford a full BaseCard object per card. A card's code is
+ * (rank - 1) * 4 + suit, where suit is its index in SUITS, so codes run from 0 (Ace of Clubs) to 51
+ * (King of Spades). Everything about a card is a lookup in one of the precomputed tables below.
+ */
+public class CardCodes {
+  /** The number of distinct cards, and the number of codes */
+  public static final int DECK_SIZE = 52;
+
+  /** The suit names, in code order */
+  public static final String[] SUITS = {"Clubs", "Diamonds", "Hearts", "Spades"};
+
+  /** Action table values: the card has no action */
+  public static final byte NONE = 0;
+  /** Action table values: the card lets its player peek at one of their own cards */
+  public static final byte PEEK = 1;
+  /** Action table values: the card lets its player spy on another player's card */
+  public static final byte SPY = 2;
+  /** Action table values: the card lets its player switch cards with another player */
+  public static final byte SWITCH = 3;
+
+  /** The rank (1 for Ace to 13 for King) of each card code */
+  public static final byte[] RANK = new byte[DECK_SIZE];
+  /** The suit index of each card code */
+  public static final byte[] SUIT = new byte[DECK_SIZE];
+  /** The score value of each card code; the King of Diamonds is worth -1 */
+  public static final byte[] SCORE = new byte[DECK_SIZE];
+  /** The action (NONE, PEEK, SPY or SWITCH) of each card code */
+  public static final byte[] ACTION = new byte[DECK_SIZE];
+
+  static {
+    for (int code = 0; code < DECK_SIZE; code++) {
+      int rank = code / 4 + 1;
+      int suit = code % 4;
+      RANK[code] = (byte) rank;
+      SUIT[code] = (byte) suit;
+      SCORE[code] = (byte) (rank == 13 && suit == 1 ? -1 : rank);
+      if (rank == 7 || rank == 8) {
+        ACTION[code] = PEEK;
+      } else if (rank == 9 || rank == 10) {
+        ACTION[code] = SPY;
+      } else if (rank == 11 || rank == 12) {
+        ACTION[code] = SWITCH;
+      } else {
+        ACTION[code] = NONE;
+      }
+    }
+  }
+
+  /**
+   * Encodes a card as a single byte
+   *
+   * @param rank the rank of the card (e.g., 1 for Ace, 13 for King)
+   * @param suit the suit of the card
+   * @return the card's code, between 0 and 51
+   */
+  public static byte encode(int rank, Suit suit) {
+    return (byte) ((rank - 1) * 4 + suit.ordinal());
+  }
+
+  /**
+   * Returns a readable name for a card code, in the same format as BaseCard.toString()
+   *
+   * @param code the card's code
+   * @return a string in the format "Suit Rank" (e.g., "Hearts 10")
+   */
+  public static String toString(byte code) {
+    return SUITS[SUIT[code]] + " " + RANK[code];
+  }
+}
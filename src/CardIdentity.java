@@ -0,0 +1,120 @@
+
+/**
+ * The CardIdentity class is the immutable identity of one of the 52 CABO cards: its rank, suit,
+ * score value and action. Exactly one CardIdentity exists per card, created once when this class is
+ * loaded, and every BaseCard refers to one of them; all per-game state (face-up, position) lives in
+ * the BaseCard instead. Scoring a card is therefore a field read, with no string work.
+ */
+public final class CardIdentity {
+  // the registry of all card identities, indexed by card code
+  private static final CardIdentity[] REGISTRY = new CardIdentity[CardCodes.DECK_SIZE];
+
+  static {
+    for (int code = 0; code < CardCodes.DECK_SIZE; code++) {
+      REGISTRY[code] = new CardIdentity((byte) code);
+    }
+  }
+
+  // data fields
+  private final byte code;
+  private final int rank;
+  private final Suit suit;
+  private final int score;
+  private final ActionType actionType;
+  private final String name;
+
+  /**
+   * Creates the identity of the card with the given code; only used to fill the registry
+   *
+   * @param code the card's code, as defined by CardCodes
+   */
+  private CardIdentity(byte code) {
+    this.code = code;
+    rank = CardCodes.RANK[code];
+    suit = Suit.values()[CardCodes.SUIT[code]];
+    score = CardCodes.SCORE[code];
+    switch (CardCodes.ACTION[code]) {
+      case CardCodes.PEEK -> actionType = ActionType.PEEK;
+      case CardCodes.SPY -> actionType = ActionType.SPY;
+      case CardCodes.SWITCH -> actionType = ActionType.SWITCH;
+      default -> actionType = null;
+    }
+    name = suit + " " + rank;
+  }
+
+  /**
+   * Looks up the identity of the card with the given code
+   *
+   * @param code the card's code, between 0 and 51
+   * @return the shared identity of that card
+   */
+  public static CardIdentity of(int code) {
+    return REGISTRY[code];
+  }
+
+  /**
+   * Looks up the identity of the card with the given rank and suit
+   *
+   * @param rank the rank of the card (e.g., 1 for Ace, 13 for King)
+   * @param suit the suit of the card
+   * @return the shared identity of that card
+   */
+  public static CardIdentity of(int rank, Suit suit) {
+    return REGISTRY[(rank - 1) * 4 + suit.ordinal()];
+  }
+
+  /**
+   * Accesses the one-byte code of this card
+   *
+   * @return the card's code, between 0 and 51
+   */
+  public byte getCode() {
+    return code;
+  }
+
+  /**
+   * Accesses the rank of this card
+   *
+   * @return the rank, from 1 for Ace to 13 for King
+   */
+  public int getRank() {
+    return rank;
+  }
+
+  /**
+   * Accesses the suit of this card
+   *
+   * @return the card's suit
+   */
+  public Suit getSuit() {
+    return suit;
+  }
+
+  /**
+   * Accesses the score value of this card: its rank, or -1 for the King of Diamonds
+   *
+   * @return the card's score value
+   */
+  public int getScore() {
+    return score;
+  }
+
+  /**
+   * Accesses the action of this card
+   *
+   * @return the card's action, or null if this is not an action card
+   */
+  public ActionType getActionType() {
+    return actionType;
+  }
+
+  /**
+   * Returns a string representation of the card, showing its suit and rank.
+   *
+   * @return a string in the format "Suit Rank" (e.g., "Hearts 10").
+   */
+  @Override
+  public String toString() {
+    return name;
+  }
+}
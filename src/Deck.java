@@ -1,7 +1,7 @@
 
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.SplittableRandom;
 
 /**
  * The Deck class represents a deck of playing cards for the game Cabo. It manages a collection of
@@ -19,19 +19,14 @@ public class Deck {
    * 
    * @param deck the starting list of cards for this deck; should be either a full deck or an empty
    *             list.
-   * @throws IllegalArgumentException if the Processing environment is not set before creating a
-   *                                  deck.
    */
   public Deck(ArrayList<BaseCard> deck) {
-    if (processing == null) {
-      throw new IllegalStateException("Environment not set");
-    }
     this.cardList = deck;
   }
 
   /**
    * Sets the Processing environment to be used by the Deck class. This must be called before
-   * creating a deck.
+   * drawing a deck; headless decks (e.g. inside a CaboEngine simulation) never need it.
    * 
    * @param processing the Processing environment to be used for drawing and interaction.
    */
@@ -82,6 +77,16 @@ public class Deck {
     return cardList.size();
   }
 
+  /**
+   * Accesses the card at the given position, counting from the bottom of the deck.
+   * 
+   * @param index the position of the card, between 0 and size()-1
+   * @return the card at that position
+   */
+  protected BaseCard cardAt(int index) {
+    return cardList.get(index);
+  }
+
   /**
    * Sets up the deck with CABO cards, including action cards. Initializes the deck with all
    * necessary cards and shuffles them.
@@ -89,33 +94,68 @@ public class Deck {
    * @return the completed ArrayList of CABO cards
    */
   public static ArrayList<BaseCard> createDeck() {
-    ArrayList<BaseCard> cardList = new ArrayList<>();
-    // Define the suits
-    String[] suits = {"Clubs", "Diamonds", "Hearts", "Spades"};
-    // Cards from 1 (Ace) to 13 (King)
-    for (int rank = 1; rank <= 13; ++rank) {
-      // Loop through each suit
-      for (String suit : suits) {
-        if (rank >= 7 && rank <= 12) {
-          // Special action cards
-          String actionType = "";
-          if (rank == 7 || rank == 8) {
-            actionType = "peek";
-          } else if (rank == 9 || rank == 10) {
-            actionType = "spy";
-          } else {
-            actionType = "switch";
-          }
-          cardList.add(new ActionCard(rank, suit, actionType)); // Add ActionCard to deck
-        } else {
-          cardList.add(new BaseCard(rank, suit)); // Add NumberCard to deck
-        }
-      }
+    return createDeck(new SplittableRandom());
+  }
+
+  /**
+   * Sets up the deck with CABO cards and shuffles them (Fisher-Yates) with the given source of
+   * randomness, so the same generator state always gives the same deck and parallel simulations do
+   * not share one generator.
+   *
+   * @param random the source of randomness used to shuffle the deck
+   * @return the completed ArrayList of CABO cards
+   */
+  public static ArrayList<BaseCard> createDeck(SplittableRandom random) {
+    return createDeck(1, random);
+  }
+
+  /**
+   * Sets up a shoe of several CABO decks and shuffles them together (Fisher-Yates). A shoe of one
+   * deck is shuffled exactly as createDeck(random) shuffles it.
+   *
+   * @param numDecks the number of decks in the shoe
+   * @param random   the source of randomness used to shuffle the shoe
+   * @return the completed ArrayList of numDecks * CardCodes.DECK_SIZE cards
+   */
+  public static ArrayList<BaseCard> createDeck(int numDecks, SplittableRandom random) {
+    ArrayList<BaseCard> cardList = createUnshuffledDeck(numDecks);
+    for (int i = cardList.size() - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      cardList.set(i, cardList.set(j, cardList.get(i)));
     }
-    Collections.shuffle(cardList);
     return cardList;
   }
 
+  /**
+   * Creates the CABO cards of one or more decks, including action cards, in id order.
+   *
+   * @param numDecks the number of decks
+   * @return an ArrayList of all their cards, not yet shuffled
+   */
+  private static ArrayList<BaseCard> createUnshuffledDeck(int numDecks) {
+    ArrayList<BaseCard> cardList = new ArrayList<>(numDecks * CardCodes.DECK_SIZE);
+    // one card per identity in the registry, from the Ace of Clubs to the King of Spades, per deck
+    for (int id = 0; id < numDecks * CardCodes.DECK_SIZE; ++id) {
+      cardList.add(createCard(id));
+    }
+    return cardList;
+  }
+
+  /**
+   * Creates the face-down card with the given id: an ActionCard if the card has an action, and a
+   * BaseCard otherwise
+   *
+   * @param id the card id (see BaseCard.getId()); in a single deck, the card code
+   * @return the new card
+   */
+  public static BaseCard createCard(int id) {
+    CardIdentity identity = CardIdentity.of(id % CardCodes.DECK_SIZE);
+    if (identity.getActionType() != null) {
+      return new ActionCard(identity, id / CardCodes.DECK_SIZE);
+    }
+    return new BaseCard(identity, id / CardCodes.DECK_SIZE);
+  }
+
   /**
    * Draws the top card of the deck onto the Processing canvas at the specified position. If the
    * deck is empty, draws a placeholder indicating the deck is empty.
@@ -142,9 +182,9 @@ public class Deck {
     } else {
 
       if (isDiscard) {
-        cardList.get(size() - 1).setFaceUp(true); // top card is faced up
+        cardAt(size() - 1).setFaceUp(true); // top card is faced up
       }
-      cardList.get(size() - 1).draw(x, y);
+      cardAt(size() - 1).draw(x, y);
 
     }
 
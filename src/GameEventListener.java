@@ -0,0 +1,96 @@
+
+/**
+ * The GameEventListener interface receives every transition of a CaboEngine as it happens, with
+ * enough detail to replay the game: GameRecordWriter stores the events in a record file, and
+ * AITurnScheduler queues the moves an AI made on a copy of the game to replay them on the real one.
+ */
+public interface GameEventListener {
+
+  /**
+   * Called once, when the listener is attached to a game that has just been dealt
+   *
+   * @param engine the game, before any turn has been played
+   */
+  void deal(CaboEngine engine);
+
+  /**
+   * Called when a player draws a card
+   *
+   * @param actor the label of the player who drew
+   * @param code  the code of the drawn card
+   */
+  void draw(int actor, int code);
+
+  /**
+   * Called when the drawn card is swapped into the current player's hand
+   *
+   * @param actor the label of the player who swapped
+   * @param index the slot the drawn card was swapped into
+   */
+  void swap(int actor, int index);
+
+  /**
+   * Called when the drawn card is discarded without being used
+   *
+   * @param actor the label of the player who discarded the drawn card
+   */
+  void discard(int actor);
+
+  /**
+   * Called when the current player announces that they use the action of the drawn card. The event
+   * that follows says how it was used; if it is DISCARD, the action had no useful target. Record
+   * files do not store this event, so by default it is ignored.
+   *
+   * @param actor      the label of the player using the action
+   * @param actionType the ordinal of the card's ActionType
+   */
+  default void useAction(int actor, int actionType) {}
+
+  /**
+   * Called when the drawn card is used to peek at one of the current player's cards
+   *
+   * @param actor the label of the player who peeked
+   * @param index the slot peeked at
+   */
+  void peek(int actor, int index);
+
+  /**
+   * Called when the drawn card is used to spy on another player's card
+   *
+   * @param actor the label of the player who spied
+   * @param label the label of the player spied on
+   * @param index the slot spied on
+   */
+  void spy(int actor, int label, int index);
+
+  /**
+   * Called when the drawn card is used to switch cards with another player
+   *
+   * @param actor      the label of the player who switched
+   * @param myIndex    the slot of the acting player's card
+   * @param otherLabel the label of the other player
+   * @param otherIndex the slot of the other player's card
+   */
+  void switchCards(int actor, int myIndex, int otherLabel, int otherIndex);
+
+  /**
+   * Called when a player declares CABO
+   *
+   * @param actor the label of the player who declared CABO
+   */
+  void cabo(int actor);
+
+  /**
+   * Called when a player's turn ends
+   *
+   * @param actor the label of the player whose turn ended
+   */
+  void endTurn(int actor);
+
+  /**
+   * Called when the game ends
+   *
+   * @param scores the final score of every player, in seat order
+   */
+  void scores(int[] scores);
+}
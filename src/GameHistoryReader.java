@@ -0,0 +1,493 @@
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The GameHistoryReader class reads a record file written by GameRecordWriter. The file is
+ * memory-mapped, and opening it indexes the offset of every game in one pass, so any game can be
+ * found in constant time. Seeking within a game uses keyframes, which are built lazily and kept in
+ * memory only: the first seek into a game replays that game once from its deal, keeping a full
+ * TableState every KEYFRAME_INTERVAL events and the event at which each turn starts. Later seeks
+ * into the same game copy the nearest keyframe and replay fewer than KEYFRAME_INTERVAL events.
+ * The keyframes of the CACHED_GAMES most recently visited games are kept; nothing is written to
+ * disk, so a game's first seek after it is evicted, or after the file is reopened, replays it
+ * from the deal again. A game is a few dozen events, so that first replay is short, but it grows
+ * with the length of the game rather than staying below KEYFRAME_INTERVAL.
+ *
+ * A game ends at its SCORES event, or where the next game's DEAL begins if it was abandoned, or at
+ * the end of the file if the recording stopped mid-game. A truncated or corrupt file is reported
+ * with an IllegalArgumentException, when it is opened or when the broken game is replayed.
+ *
+ * Everything is decoded into TableState objects made of card codes, so scanning a whole file
+ * creates no BaseCard objects and runs at close to the speed the file can be read.
+ *
+ * Usage: java GameHistoryReader file [game] [turn]
+ */
+public class GameHistoryReader {
+
+  private static final int CACHED_GAMES = 1024; // number of games whose keyframes are kept
+
+  // data fields
+  private final MappedByteBuffer data;
+  private final int KEYFRAME_INTERVAL; // events between keyframes
+  private int[] gameOffsets; // gameOffsets[g] is the position of the DEAL event of game g
+  private int gameCount;
+  private final Map<Integer, Keyframes> cache;
+
+  /**
+   * The Keyframes class holds the seek index of one game
+   */
+  private static class Keyframes {
+    private TableState[] states; // states[k] is the table after k * KEYFRAME_INTERVAL + 1 events
+    private int[] offsets; // offsets[k] is the file position of the event after states[k]
+    private int[] turnStarts; // turnStarts[t] is the number of events applied when turn t starts
+  }
+
+  /**
+   * Opens a record file and indexes its games
+   *
+   * @param fileName         the name of the record file
+   * @param keyframeInterval the number of events between keyframes
+   * @throws IOException              if the file cannot be read
+   * @throws IllegalArgumentException if the file is not a record file, is 2 GB or larger, or is
+   *                                  truncated or corrupt
+   */
+  public GameHistoryReader(String fileName, int keyframeInterval) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        FileChannel channel = file.getChannel()) {
+      if (channel.size() >= Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Record files must be smaller than 2 GB");
+      }
+      data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    for (int i = 0; i < GameRecordWriter.MAGIC.length; i++) {
+      if (data.limit() <= i || data.get(i) != GameRecordWriter.MAGIC[i]) {
+        throw new IllegalArgumentException(fileName + " is not a CABO record file");
+      }
+    }
+    if (data.limit() <= GameRecordWriter.MAGIC.length
+        || data.get(GameRecordWriter.MAGIC.length) != GameRecordWriter.VERSION) {
+      throw new IllegalArgumentException("Unsupported record version");
+    }
+    this.KEYFRAME_INTERVAL = keyframeInterval;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Keyframes> eldest) {
+        return size() > CACHED_GAMES;
+      }
+    };
+    indexGames();
+  }
+
+  /**
+   * Finds the start of every game, skipping over events without applying them. Every event is
+   * checked to lie within the file.
+   *
+   * @throws IllegalArgumentException if the file is truncated or corrupt
+   */
+  private void indexGames() {
+    gameOffsets = new int[1024];
+    int position = GameRecordWriter.MAGIC.length + 1;
+    int limit = data.limit();
+    int numPlayers = 0;
+    while (position < limit) {
+      int type = (data.get(position) & 0xFF) >>> 4;
+      if (type > GameRecordWriter.SCORES) {
+        throw corrupt("unknown event type " + type, position);
+      } else if (type != GameRecordWriter.DEAL && gameCount == 0) {
+        throw corrupt("event before the first deal", position);
+      } else if (type == GameRecordWriter.DEAL) {
+        if (gameCount == gameOffsets.length) {
+          gameOffsets = Arrays.copyOf(gameOffsets, gameCount * 2);
+        }
+        gameOffsets[gameCount++] = position;
+        position = skipVarint(position + 1); // seed
+        numPlayers = checkedInt(position, CaboEngine.MIN_PLAYERS, CaboEngine.MAX_PLAYERS);
+        position = skipVarint(position);
+        int handSize = checkedInt(position, 1, CaboEngine.MAX_HAND_SIZE);
+        position = require(skipVarint(position), numPlayers * handSize) + numPlayers * handSize;
+        int deckSize = checkedInt(position, 0, CaboEngine.MAX_DECKS * CardCodes.DECK_SIZE);
+        position = require(skipVarint(position), deckSize) + deckSize;
+      } else if (type == GameRecordWriter.SCORES) {
+        position++;
+        for (int p = 0; p < numPlayers; p++) {
+          position = skipVarint(position);
+        }
+      } else {
+        position++;
+        for (int i = argumentCount(type); i > 0; i--) {
+          position = skipVarint(position);
+        }
+      }
+    }
+  }
+
+  /**
+   * Accesses the number of games in the file
+   *
+   * @return the number of games recorded
+   */
+  public int getGameCount() {
+    return gameCount;
+  }
+
+  /**
+   * Replays a game up to the start of the given turn
+   *
+   * @param game the index of the game in the file
+   * @param turn the number of the turn, from 0; past the last turn gives the final table
+   * @return the table at the start of that turn
+   */
+  public TableState stateAt(int game, int turn) {
+    Keyframes keyframes = keyframes(game);
+    int target = keyframes.turnStarts[Math.min(turn, keyframes.turnStarts.length - 1)];
+    int k = (target - 1) / KEYFRAME_INTERVAL;
+    TableState state = keyframes.states[k].copy();
+    int position = keyframes.offsets[k];
+    while (state.getEvents() < target) {
+      position = apply(state, position);
+    }
+    return state;
+  }
+
+  /**
+   * Counts the turns of a game
+   *
+   * @param game the index of the game in the file
+   * @return the number of turns that were completed
+   */
+  public int getTurnCount(int game) {
+    return keyframes(game).turnStarts.length - 1;
+  }
+
+  /**
+   * Returns the seek index of a game, building it on the first visit
+   *
+   * @param game the index of the game in the file
+   * @return the keyframes of that game
+   */
+  private Keyframes keyframes(int game) {
+    Keyframes keyframes = cache.get(game);
+    if (keyframes != null) {
+      return keyframes;
+    }
+    keyframes = new Keyframes();
+    TableState state = new TableState();
+    int position = apply(state, gameOffsets[game]);
+    int end = gameEnd(game);
+    TableState[] states = new TableState[8];
+    int[] offsets = new int[8];
+    int[] turnStarts = new int[16];
+    int keyframeCount = 0;
+    int turnCount = 0;
+    while (true) {
+      if ((state.getEvents() - 1) % KEYFRAME_INTERVAL == 0) {
+        if (keyframeCount == states.length) {
+          states = Arrays.copyOf(states, keyframeCount * 2);
+          offsets = Arrays.copyOf(offsets, keyframeCount * 2);
+        }
+        states[keyframeCount] = state.copy();
+        offsets[keyframeCount++] = position;
+      }
+      if (state.getTurn() == turnCount) {
+        if (turnCount == turnStarts.length) {
+          turnStarts = Arrays.copyOf(turnStarts, turnCount * 2);
+        }
+        turnStarts[turnCount++] = state.getEvents();
+      }
+      if (state.isGameOver() || position >= end) {
+        break;
+      }
+      position = apply(state, position);
+    }
+    keyframes.states = Arrays.copyOf(states, keyframeCount);
+    keyframes.offsets = Arrays.copyOf(offsets, keyframeCount);
+    keyframes.turnStarts = Arrays.copyOf(turnStarts, turnCount);
+    cache.put(game, keyframes);
+    return keyframes;
+  }
+
+  /**
+   * Finds where a game's events end
+   *
+   * @param game the index of the game in the file
+   * @return the position of the next game's DEAL event, or the end of the file for the last game
+   */
+  private int gameEnd(int game) {
+    return game + 1 < gameCount ? gameOffsets[game + 1] : data.limit();
+  }
+
+  /**
+   * The GameVisitor interface receives each game of a scan
+   */
+  public interface GameVisitor {
+    /**
+     * Called with the final table of a game
+     *
+     * @param game  the index of the game in the file
+     * @param state the table at the end of the game; it is reused for the next game, so copy it
+     *              to keep it
+     */
+    void visit(int game, TableState state);
+  }
+
+  /**
+   * Replays every game of the file in order, reusing one table for all of them
+   *
+   * @param visitor receives the final table of each game
+   */
+  public void forEachGame(GameVisitor visitor) {
+    TableState state = new TableState();
+    for (int game = 0; game < gameCount; game++) {
+      int position = apply(state, gameOffsets[game]);
+      int end = gameEnd(game);
+      while (position < end) {
+        position = apply(state, position);
+      }
+      visitor.visit(game, state);
+    }
+  }
+
+  //////////////////////////////////////////// DECODING ///////////////////////////////////////////
+
+  /**
+   * Decodes one event and applies it to a table
+   *
+   * @param state    the table to update; a DEAL event resets it
+   * @param position the position of the event in the file
+   * @return the position of the next event
+   */
+  private int apply(TableState state, int position) {
+    int type = (data.get(position++) & 0xFF) >>> 4;
+    switch (type) {
+      case GameRecordWriter.DEAL -> {
+        long zigzag = readVarint(position);
+        position = skipVarint(position);
+        int numPlayers = checkedInt(position, CaboEngine.MIN_PLAYERS, CaboEngine.MAX_PLAYERS);
+        position = skipVarint(position);
+        int handSize = checkedInt(position, 1, CaboEngine.MAX_HAND_SIZE);
+        position = require(skipVarint(position), numPlayers * handSize);
+        int deckSize = checkedInt(position + numPlayers * handSize, 0,
+            CaboEngine.MAX_DECKS * CardCodes.DECK_SIZE);
+        state.deal((zigzag >>> 1) ^ -(zigzag & 1), numPlayers, handSize, deckSize);
+        for (int p = 0; p < numPlayers; p++) {
+          for (int slot = 0; slot < handSize; slot++) {
+            state.setCard(p, slot, cardAt(position++));
+          }
+        }
+        position = require(skipVarint(position), deckSize);
+        for (int i = 0; i < deckSize; i++) {
+          state.addToDeck(cardAt(position++));
+        }
+      }
+      case GameRecordWriter.DRAW -> {
+        if (state.getDrawnCard() != -1 || state.getDeck().size() == 0) {
+          throw corrupt("draw from an empty deck or with a card already drawn", position - 1);
+        }
+        position = skipVarint(position); // the card is also the top of the replayed deck
+        state.draw();
+      }
+      case GameRecordWriter.SWAP -> {
+        requireDrawnCard(state, position - 1);
+        state.swap(checkedInt(position, 0, state.getHandSize() - 1));
+        position = skipVarint(position);
+      }
+      case GameRecordWriter.SWITCH -> {
+        requireDrawnCard(state, position - 1);
+        int mySlot = checkedInt(position, 0, state.getHandSize() - 1);
+        position = skipVarint(position);
+        int otherLabel = checkedInt(position, 0, state.getNumPlayers() - 1);
+        position = skipVarint(position);
+        state.switchCards(mySlot, otherLabel, checkedInt(position, 0, state.getHandSize() - 1));
+        position = skipVarint(position);
+      }
+      case GameRecordWriter.DISCARD -> {
+        requireDrawnCard(state, position - 1);
+        state.discardDrawnCard();
+      }
+      case GameRecordWriter.PEEK, GameRecordWriter.SPY -> {
+        requireDrawnCard(state, position - 1);
+        for (int i = argumentCount(type); i > 0; i--) {
+          position = skipVarint(position);
+        }
+        state.discardDrawnCard();
+      }
+      case GameRecordWriter.CABO -> state.cabo();
+      case GameRecordWriter.END_TURN -> state.endTurn();
+      case GameRecordWriter.SCORES -> {
+        for (int p = 0; p < state.getNumPlayers(); p++) {
+          long zigzag = readVarint(position);
+          position = skipVarint(position);
+          if (((zigzag >>> 1) ^ -(zigzag & 1)) != state.getScore(p)) {
+            throw corrupt("replayed score of player " + p + " does not match", position);
+          }
+        }
+        state.endGame();
+      }
+      default -> throw corrupt("unknown event type " + type, position - 1);
+    }
+    return position;
+  }
+
+  /**
+   * Builds the exception that reports a truncated or corrupt record
+   *
+   * @param problem  what is wrong, in lower case
+   * @param position the position of the byte or event at fault
+   * @return the exception, for the caller to throw
+   */
+  private static IllegalArgumentException corrupt(String problem, int position) {
+    return new IllegalArgumentException("Corrupt record at byte " + position + ": " + problem);
+  }
+
+  /**
+   * Checks that a run of bytes lies within the file
+   *
+   * @param position the position of the first byte
+   * @param length   the number of bytes
+   * @return position, for chaining
+   * @throws IllegalArgumentException if the file ends before the last byte
+   */
+  private int require(int position, int length) {
+    if (length > data.limit() - position) {
+      throw corrupt("truncated", position);
+    }
+    return position;
+  }
+
+  /**
+   * Checks that the current player of a replayed game holds a drawn card
+   *
+   * @param state    the replayed game
+   * @param position the position of the event that needs the card
+   * @throws IllegalArgumentException if no card is drawn
+   */
+  private static void requireDrawnCard(TableState state, int position) {
+    if (state.getDrawnCard() == -1) {
+      throw corrupt("event needs a drawn card", position);
+    }
+  }
+
+  /**
+   * Reads a card byte, checking it is a valid card code
+   *
+   * @param position the position of the byte, which must lie within the file
+   * @return the card code
+   * @throws IllegalArgumentException if the byte is not a card code
+   */
+  private int cardAt(int position) {
+    int code = data.get(position);
+    if (code < 0 || code >= CardCodes.DECK_SIZE) {
+      throw corrupt("invalid card code " + code, position);
+    }
+    return code;
+  }
+
+  /**
+   * Reads a varint that must lie in a range
+   *
+   * @param position the position of its first byte
+   * @param min      the smallest valid value
+   * @param max      the largest valid value
+   * @return the value
+   * @throws IllegalArgumentException if the value is out of range or the file is truncated
+   */
+  private int checkedInt(int position, int min, int max) {
+    long value = readVarint(position);
+    if (value < min || value > max) {
+      throw corrupt("value " + value + " is not between " + min + " and " + max, position);
+    }
+    return (int) value;
+  }
+
+  /**
+   * Gives the number of varint arguments of an event type with a fixed number of arguments
+   *
+   * @param type the event type, other than DEAL and SCORES
+   * @return the number of arguments that follow the event byte
+   */
+  private static int argumentCount(int type) {
+    return switch (type) {
+      case GameRecordWriter.DRAW, GameRecordWriter.SWAP, GameRecordWriter.PEEK -> 1;
+      case GameRecordWriter.SPY -> 2;
+      case GameRecordWriter.SWITCH -> 3;
+      default -> 0;
+    };
+  }
+
+  /**
+   * Reads an unsigned LEB128 varint
+   *
+   * @param position the position of its first byte
+   * @return the value
+   * @throws IllegalArgumentException if the file ends inside the varint, or it is over 10 bytes
+   */
+  private long readVarint(int position) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      if (position >= data.limit() || shift > 63) {
+        throw corrupt("truncated or overlong varint", position);
+      }
+      b = data.get(position++);
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  /**
+   * Finds the end of a varint
+   *
+   * @param position the position of its first byte
+   * @return the position of the byte after it
+   * @throws IllegalArgumentException if the file ends inside the varint, or it is over 10 bytes
+   */
+  private int skipVarint(int position) {
+    int end = Math.min(position + 10, data.limit());
+    for (int i = position; i < end; i++) {
+      if (data.get(i) >= 0) {
+        return i + 1;
+      }
+    }
+    throw corrupt("truncated or overlong varint", position);
+  }
+
+  /**
+   * Prints the number of games in a record file and how fast they can be replayed, and optionally
+   * prints the table of one game at one turn. Replaying checks every game against its recorded
+   * scores.
+   *
+   * @param args the record file, and optionally a game index and a turn number
+   * @throws IOException if the file cannot be read
+   */
+  public static void main(String[] args) throws IOException {
+    long start = System.nanoTime();
+    GameHistoryReader reader = new GameHistoryReader(args[0], 8);
+    double indexSeconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%,d games (%,d bytes) indexed in %.2f s%n", reader.getGameCount(),
+        reader.data.limit(), indexSeconds);
+
+    long[] turns = new long[1];
+    start = System.nanoTime();
+    reader.forEachGame((game, state) -> turns[0] += state.getTurn());
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("replayed every game in %.2f s: %,.0f games/sec, %,.0f MB/sec%n", seconds,
+        reader.getGameCount() / seconds, reader.data.limit() / seconds / 1e6);
+    System.out.printf("average turns per game: %.2f%n", (double) turns[0] / reader.getGameCount());
+
+    if (args.length > 2) {
+      int game = Integer.parseInt(args[1]);
+      int turn = Integer.parseInt(args[2]);
+      System.out.printf("game %d of %d turns, at turn %d:%n", game, reader.getTurnCount(game),
+          turn);
+      System.out.print(reader.stateAt(game, turn));
+    }
+  }
+}
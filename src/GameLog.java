@@ -0,0 +1,220 @@
+
+/**
+ * The GameLog class keeps the most recent events of a game in a fixed-capacity ring buffer. Each
+ * entry is stored as a type, the acting player and up to three integer arguments; its colour is
+ * decided once, from its type, when it is added, and its text is only built the first time it is
+ * displayed. Adding an entry never allocates, and once the log is full the newest entry overwrites
+ * the oldest.
+ */
+public class GameLog {
+
+  /**
+   * The Type enum lists the kinds of log entries, with the colour and text template of each. The
+   * template's %1$s is the acting player's name and %2$s, %3$s and %4$s are the entry's arguments,
+   * as converted by format().
+   */
+  public enum Type {
+    TURN("Turn for %1$s", 0xFFFFFFFF),
+    TAKING_TURN("%1$s is taking their turn.", 0xFFFFFFFF),
+    DRAW("%1$s drew a card.", 0xFFFFFFFF),
+    SWAP("%1$s swapped the drawn card with card %2$s in their hand.", 0xFFFFFFFF),
+    DISCARD("%1$s discarded the drawn card: %2$s", 0xFFFFFFFF),
+    USE_ACTION("%1$s uses an action card: %2$s", 0xFFFFFFFF),
+    PEEK("%1$s peeked at their card %2$s", 0xFFFFFFFF),
+    SPY("%1$s spied on %2$s's card %3$s", 0xFFFFE5CC),
+    SWITCH("%1$s switched card %2$s with %3$s's %4$s.", 0xFFFFCC99),
+    CABO("%1$s declares CABO!", 0xFFFF8000),
+    STATUS(null, 0xFFFFFFFF); // free text, such as instructions for the human player
+
+    private final String template;
+    private final int color; // ARGB
+
+    /**
+     * Creates a type of log entry
+     *
+     * @param template the format string of the entry's text
+     * @param color    the ARGB colour the entry is displayed in
+     */
+    Type(String template, int color) {
+      this.template = template;
+      this.color = color;
+    }
+  }
+
+  // data fields
+  private final int CAPACITY;
+  private final Type[] types;
+  private final int[] actors;
+  private final int[] args; // three arguments per entry
+  private final String[] texts; // formatted text, or free text for STATUS; null until needed
+  private int start; // the slot of the oldest entry
+  private int size;
+  private long count; // number of entries ever added
+
+  /**
+   * Creates an empty log that keeps the given number of most recent entries
+   *
+   * @param capacity the maximum number of entries
+   */
+  public GameLog(int capacity) {
+    CAPACITY = capacity;
+    types = new Type[capacity];
+    actors = new int[capacity];
+    args = new int[3 * capacity];
+    texts = new String[capacity];
+  }
+
+  /**
+   * Adds an entry, overwriting the oldest one if the log is full
+   *
+   * @param type  the type of the entry
+   * @param actor the label of the acting player
+   * @param arg0  the first argument
+   * @param arg1  the second argument
+   * @param arg2  the third argument
+   */
+  public void add(Type type, int actor, int arg0, int arg1, int arg2) {
+    int slot = nextSlot();
+    types[slot] = type;
+    actors[slot] = actor;
+    args[3 * slot] = arg0;
+    args[3 * slot + 1] = arg1;
+    args[3 * slot + 2] = arg2;
+    texts[slot] = null;
+  }
+
+  /**
+   * Adds a free-text STATUS entry, overwriting the oldest entry if the log is full
+   *
+   * @param message the text of the entry
+   */
+  public void addStatus(String message) {
+    int slot = nextSlot();
+    types[slot] = Type.STATUS;
+    actors[slot] = -1;
+    texts[slot] = message;
+  }
+
+  /**
+   * Claims the slot for a new entry
+   *
+   * @return the slot to write the new entry to
+   */
+  private int nextSlot() {
+    count++;
+    if (size < CAPACITY) {
+      return (start + size++) % CAPACITY;
+    }
+    int slot = start;
+    start = (start + 1) % CAPACITY;
+    return slot;
+  }
+
+  /**
+   * Gets the current number of entries
+   *
+   * @return the number of entries, at most the capacity
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Counts every entry ever added, including the ones that have been overwritten. The count changes
+   * exactly when the log does.
+   *
+   * @return the number of entries added to this log
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Accesses the type of an entry
+   *
+   * @param index the index of the entry, from 0 for the oldest to size()-1 for the newest
+   * @return the type of that entry
+   */
+  public Type getType(int index) {
+    return types[(start + index) % CAPACITY];
+  }
+
+  /**
+   * Accesses the acting player of an entry
+   *
+   * @param index the index of the entry, from 0 for the oldest to size()-1 for the newest
+   * @return the label of the acting player, or -1 for a STATUS entry
+   */
+  public int getActor(int index) {
+    return actors[(start + index) % CAPACITY];
+  }
+
+  /**
+   * Accesses an argument of an entry
+   *
+   * @param index    the index of the entry, from 0 for the oldest to size()-1 for the newest
+   * @param argument 0, 1 or 2
+   * @return that argument; unused arguments are 0
+   */
+  public int getArg(int index, int argument) {
+    return args[3 * ((start + index) % CAPACITY) + argument];
+  }
+
+  /**
+   * Accesses the colour of an entry, which depends only on its type
+   *
+   * @param index the index of the entry, from 0 for the oldest to size()-1 for the newest
+   * @return the ARGB colour to display that entry in
+   */
+  public int getColor(int index) {
+    return types[(start + index) % CAPACITY].color;
+  }
+
+  /**
+   * Accesses the text of an entry, formatting it the first time it is requested
+   *
+   * @param index   the index of the entry, from 0 for the oldest to size()-1 for the newest
+   * @param players the players of the game, whose names appear in the text
+   * @return the text of that entry
+   */
+  public String getText(int index, Player[] players) {
+    int slot = (start + index) % CAPACITY;
+    if (texts[slot] == null) {
+      texts[slot] = format(slot, players);
+    }
+    return texts[slot];
+  }
+
+  /**
+   * Builds the text of an entry from its type's template
+   *
+   * @param slot    the slot of the entry
+   * @param players the players of the game
+   * @return the text of that entry
+   */
+  private String format(int slot, Player[] players) {
+    Type type = types[slot];
+    Object[] values = new Object[3];
+    for (int i = 0; i < 3; i++) {
+      values[i] = args[3 * slot + i];
+    }
+    switch (type) {
+      case SWAP, PEEK -> values[0] = args[3 * slot] + 1; // slots are shown counting from 1
+      case DISCARD -> values[0] = CardCodes.toString((byte) args[3 * slot]);
+      case USE_ACTION -> values[0] = ActionType.values()[args[3 * slot]];
+      case SPY -> {
+        values[0] = players[args[3 * slot]].getName();
+        values[1] = args[3 * slot + 1] + 1;
+      }
+      case SWITCH -> {
+        values[0] = args[3 * slot] + 1;
+        values[1] = players[args[3 * slot + 1]].getName();
+        values[2] = args[3 * slot + 2] + 1;
+      }
+      default -> {
+      }
+    }
+    return String.format(type.template, players[actors[slot]].getName(), values[0], values[1],
+        values[2]);
+  }
+}
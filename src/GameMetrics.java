@@ -0,0 +1,346 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * The GameMetrics class collects the timings and event counts of a running game or server.
+ *
+ * It keeps four LatencyHistograms:
+ *
+ * ai_decision  how long a computer player's performAITurn() took
+ * turn         the wall-clock time of a whole turn, from the end of the last turn (or the deal) to
+ *              the end of this one
+ * input        how long one mouse click or one server command took to handle
+ * frame        how long one draw() of the window took
+ *
+ * It also counts the game's events: draws, swaps, discards, peeks, spies, switches, CABO calls,
+ * turns and finished games.
+ *
+ * As the GameEventListener of one game, it counts that game's events and times its turns itself.
+ * A server with many tables instead feeds count() and the histograms directly. Everything is
+ * cumulative from the start, so a reader compares two exports to get the rates in between.
+ *
+ * export() writes everything to a file. A file whose name ends in .csv gets one row per export,
+ * under a header row written when the file is created. Any other file is overwritten with one JSON
+ * object. Both are in microseconds. exportIfDue() exports at most once per interval, so it can be
+ * called from a frame or an event loop. The metrics are recorded, read and exported by one thread.
+ */
+public class GameMetrics implements GameEventListener {
+
+  /** The default time between two exports, in seconds */
+  public static final long DEFAULT_EXPORT_INTERVAL = 10;
+
+  private static final String[] HISTOGRAMS = {"ai_decision", "turn", "input", "frame"};
+  private static final String[] COUNTERS = {"draws", "swaps", "discards", "peeks", "spies",
+      "switches", "cabos", "turns", "games"};
+  private static final int[] COUNTER_EVENTS = {GameRecordWriter.DRAW, GameRecordWriter.SWAP,
+      GameRecordWriter.DISCARD, GameRecordWriter.PEEK, GameRecordWriter.SPY,
+      GameRecordWriter.SWITCH, GameRecordWriter.CABO, GameRecordWriter.END_TURN,
+      GameRecordWriter.SCORES}; // the event each counter counts
+
+  // data fields
+  private final LatencyHistogram[] histograms = new LatencyHistogram[HISTOGRAMS.length];
+  private final long[] events = new long[GameRecordWriter.SCORES + 1]; // counts by event type
+  private final long startNanos = System.nanoTime();
+  private long turnStart; // System.nanoTime() at the start of the current turn
+  private Path exportFile; // null if the metrics are not exported
+  private long exportIntervalNanos;
+  private long lastExport;
+
+  /**
+   * Creates empty metrics
+   */
+  public GameMetrics() {
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+    turnStart = startNanos;
+  }
+
+  /**
+   * Creates empty metrics configured from system properties: -Dcabo.metrics=<file> exports them to
+   * that file every -Dcabo.metricsInterval=<seconds> seconds
+   *
+   * @return the new metrics
+   */
+  public static GameMetrics fromSystemProperties() {
+    GameMetrics metrics = new GameMetrics();
+    String file = System.getProperty("cabo.metrics");
+    if (file != null) {
+      metrics.setExport(Path.of(file),
+          Long.getLong("cabo.metricsInterval", DEFAULT_EXPORT_INTERVAL));
+    }
+    return metrics;
+  }
+
+  /**
+   * Turns on periodic export
+   *
+   * @param file            the file to export to; .csv for CSV rows, anything else for JSON
+   * @param intervalSeconds the least time between two exports, in seconds
+   */
+  public void setExport(Path file, long intervalSeconds) {
+    exportFile = file;
+    exportIntervalNanos = intervalSeconds * 1_000_000_000L;
+    lastExport = System.nanoTime();
+  }
+
+  /**
+   * Checks whether the metrics are exported periodically
+   *
+   * @return true if an export file is set
+   */
+  public boolean isExporting() {
+    return exportFile != null;
+  }
+
+  ////////////////////////////////////////////// RECORDING ////////////////////////////////////////
+
+  /**
+   * Accesses the histogram of computer players' decision times
+   *
+   * @return the ai_decision histogram
+   */
+  public LatencyHistogram getAiDecisions() {
+    return histograms[0];
+  }
+
+  /**
+   * Accesses the histogram of turn times
+   *
+   * @return the turn histogram
+   */
+  public LatencyHistogram getTurns() {
+    return histograms[1];
+  }
+
+  /**
+   * Accesses the histogram of input handling times
+   *
+   * @return the input histogram
+   */
+  public LatencyHistogram getInputs() {
+    return histograms[2];
+  }
+
+  /**
+   * Accesses the histogram of frame times
+   *
+   * @return the frame histogram
+   */
+  public LatencyHistogram getFrames() {
+    return histograms[3];
+  }
+
+  /**
+   * Counts one game event
+   *
+   * @param eventType the GameRecordWriter event type
+   */
+  public void count(int eventType) {
+    events[eventType]++;
+  }
+
+  /**
+   * Accesses the number of events of one type counted so far
+   *
+   * @param eventType the GameRecordWriter event type
+   * @return the count
+   */
+  public long getCount(int eventType) {
+    return events[eventType];
+  }
+
+  @Override
+  public void deal(CaboEngine engine) {
+    turnStart = System.nanoTime();
+  }
+
+  @Override
+  public void draw(int actor, int code) {
+    count(GameRecordWriter.DRAW);
+  }
+
+  @Override
+  public void swap(int actor, int index) {
+    count(GameRecordWriter.SWAP);
+  }
+
+  @Override
+  public void discard(int actor) {
+    count(GameRecordWriter.DISCARD);
+  }
+
+  @Override
+  public void peek(int actor, int index) {
+    count(GameRecordWriter.PEEK);
+  }
+
+  @Override
+  public void spy(int actor, int label, int index) {
+    count(GameRecordWriter.SPY);
+  }
+
+  @Override
+  public void switchCards(int actor, int myIndex, int otherLabel, int otherIndex) {
+    count(GameRecordWriter.SWITCH);
+  }
+
+  @Override
+  public void cabo(int actor) {
+    count(GameRecordWriter.CABO);
+  }
+
+  @Override
+  public void endTurn(int actor) {
+    long now = System.nanoTime();
+    count(GameRecordWriter.END_TURN);
+    getTurns().record(now - turnStart);
+    turnStart = now;
+  }
+
+  @Override
+  public void scores(int[] scores) {
+    count(GameRecordWriter.SCORES);
+  }
+
+  ////////////////////////////////////////////// EXPORT ///////////////////////////////////////////
+
+  /**
+   * Exports the metrics if export is on and the interval has passed since the last export
+   *
+   * @param now the current System.nanoTime()
+   */
+  public void exportIfDue(long now) {
+    if (exportFile != null && now - lastExport >= exportIntervalNanos) {
+      lastExport = now;
+      export();
+    }
+  }
+
+  /**
+   * Exports the metrics now to the export file. A failure is reported on the console and does not
+   * stop the game.
+   */
+  public void export() {
+    try {
+      if (exportFile.toString().endsWith(".csv")) {
+        String row = toCsvRow() + System.lineSeparator();
+        if (!Files.exists(exportFile)) {
+          row = csvHeader() + System.lineSeparator() + row;
+        }
+        Files.writeString(exportFile, row, StandardCharsets.US_ASCII, StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+      } else {
+        Files.writeString(exportFile, toJson() + System.lineSeparator(),
+            StandardCharsets.US_ASCII);
+      }
+    } catch (IOException e) {
+      System.out.println("Could not export metrics to " + exportFile + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Formats a duration for export
+   *
+   * @param nanos the duration, in nanoseconds
+   * @return the duration in microseconds, with one decimal
+   */
+  private static String micros(double nanos) {
+    return String.format(Locale.ROOT, "%.1f", nanos / 1e3);
+  }
+
+  /**
+   * Gets the names of the CSV columns
+   *
+   * @return the header row, matching toCsvRow()
+   */
+  public static String csvHeader() {
+    StringBuilder header = new StringBuilder("uptime_ms");
+    for (String name : HISTOGRAMS) {
+      header.append(',').append(name).append("_count,").append(name).append("_mean_us,")
+          .append(name).append("_p50_us,").append(name).append("_p99_us,").append(name)
+          .append("_max_us");
+    }
+    for (String name : COUNTERS) {
+      header.append(',').append(name);
+    }
+    return header.toString();
+  }
+
+  /**
+   * Formats the metrics as one CSV row
+   *
+   * @return the row, in the order of csvHeader()
+   */
+  public String toCsvRow() {
+    StringBuilder row = new StringBuilder();
+    row.append((System.nanoTime() - startNanos) / 1_000_000);
+    for (LatencyHistogram histogram : histograms) {
+      row.append(',').append(histogram.getCount())
+          .append(',').append(micros(histogram.getMeanNanos()))
+          .append(',').append(micros(histogram.getPercentileNanos(0.5)))
+          .append(',').append(micros(histogram.getPercentileNanos(0.99)))
+          .append(',').append(micros(histogram.getMaxNanos()));
+    }
+    for (int event : COUNTER_EVENTS) {
+      row.append(',').append(events[event]);
+    }
+    return row.toString();
+  }
+
+  /**
+   * Formats the metrics as a JSON object. Each histogram also lists its bucket counts, up to the
+   * last non-empty bucket, so a reader can compute other percentiles.
+   *
+   * @return the object, on one line
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder("{\"uptime_ms\":");
+    json.append((System.nanoTime() - startNanos) / 1_000_000);
+    for (int i = 0; i < histograms.length; i++) {
+      LatencyHistogram histogram = histograms[i];
+      json.append(",\"").append(HISTOGRAMS[i]).append("\":{\"count\":")
+          .append(histogram.getCount())
+          .append(",\"mean_us\":").append(micros(histogram.getMeanNanos()))
+          .append(",\"p50_us\":").append(micros(histogram.getPercentileNanos(0.5)))
+          .append(",\"p99_us\":").append(micros(histogram.getPercentileNanos(0.99)))
+          .append(",\"max_us\":").append(micros(histogram.getMaxNanos()))
+          .append(",\"buckets\":[");
+      for (int b = 0; b < histogram.getUsedBuckets(); b++) {
+        json.append(b == 0 ? "" : ",").append(histogram.getBucketCount(b));
+      }
+      json.append("]}");
+    }
+    json.append(",\"counters\":{");
+    for (int i = 0; i < COUNTERS.length; i++) {
+      json.append(i == 0 ? "\"" : ",\"").append(COUNTERS[i]).append("\":")
+          .append(events[COUNTER_EVENTS[i]]);
+    }
+    return json.append("}}").toString();
+  }
+
+  /**
+   * Formats the metrics as a few short lines, for an on-screen overlay
+   *
+   * @return one line per histogram, then one line of counters
+   */
+  public String[] toLines() {
+    String[] lines = new String[histograms.length + 1];
+    for (int i = 0; i < histograms.length; i++) {
+      LatencyHistogram histogram = histograms[i];
+      lines[i] = String.format(Locale.ROOT, "%-11s p50 %8s  p99 %8s  max %8s us",
+          HISTOGRAMS[i], micros(histogram.getPercentileNanos(0.5)),
+          micros(histogram.getPercentileNanos(0.99)), micros(histogram.getMaxNanos()));
+    }
+    lines[histograms.length] = String.format(Locale.ROOT,
+        "draws %d  swaps %d  actions %d  CABO %d  turns %d", events[GameRecordWriter.DRAW],
+        events[GameRecordWriter.SWAP], events[GameRecordWriter.PEEK]
+            + events[GameRecordWriter.SPY] + events[GameRecordWriter.SWITCH],
+        events[GameRecordWriter.CABO], events[GameRecordWriter.END_TURN]);
+    return lines;
+  }
+}
@@ -0,0 +1,326 @@
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The GameRecordWriter class appends every event of a game to a compact binary record. A record
+ * file starts with the four bytes "CABO" and a format version, followed by any number of games.
+ * Each event starts with one byte holding the event type in its high four bits and the acting
+ * player's label in its low four bits, followed by its arguments as unsigned LEB128 varints (seven
+ * bits per byte, low bits first, high bit set on every byte but the last):
+ *
+ * DEAL      seed (zigzag), number of players, hand size, every hand's cards in seat order, deck
+ *           size, the deck's cards from bottom to top; every card is one byte holding its code,
+ *           which the copies of a card in a game dealt from several decks share
+ * DRAW      the code of the drawn card
+ * SWAP      the slot the drawn card was swapped into
+ * DISCARD   (none)
+ * PEEK      the slot peeked at
+ * SPY       the label of the player spied on, the slot spied on
+ * SWITCH    the current player's slot, the label of the other player, the other player's slot
+ * CABO      (none)
+ * END_TURN  (none); any drawn card still held is discarded
+ * SCORES    every player's final score (zigzag), in seat order; the last event of a game
+ *
+ * A typical game takes about 110 bytes, most of it the deal. Events go into an in-memory buffer
+ * that is written out in large blocks, so recording costs a few array stores per event.
+ */
+public class GameRecordWriter implements GameEventListener {
+
+  /** The first bytes of every record file */
+  public static final byte[] MAGIC = {'C', 'A', 'B', 'O'};
+  /** The version of the record format written by this class */
+  public static final int VERSION = 1;
+
+  /** Event type: the cards have been dealt and a new game begins */
+  public static final int DEAL = 0;
+  /** Event type: the current player drew a card */
+  public static final int DRAW = 1;
+  /** Event type: the drawn card was swapped into the current player's hand */
+  public static final int SWAP = 2;
+  /** Event type: the drawn card was discarded without being used */
+  public static final int DISCARD = 3;
+  /** Event type: the drawn card was used to peek at one of the current player's cards */
+  public static final int PEEK = 4;
+  /** Event type: the drawn card was used to spy on another player's card */
+  public static final int SPY = 5;
+  /** Event type: the drawn card was used to switch cards with another player */
+  public static final int SWITCH = 6;
+  /** Event type: the current player declared CABO */
+  public static final int CABO = 7;
+  /** Event type: the current player's turn ended */
+  public static final int END_TURN = 8;
+  /** Event type: the game is over; the final scores follow */
+  public static final int SCORES = 9;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAX_EVENT_SIZE = 16; // largest event other than DEAL and SCORES
+
+  // data fields
+  private final OutputStream out;
+  private final byte[] buffer;
+  private int position; // number of bytes of buffer in use
+  private long games; // number of games begun by this writer
+
+  /**
+   * Creates a writer that appends events to the given stream. No file header is written; see
+   * open() for writing to a record file.
+   *
+   * @param out the stream to write to
+   */
+  public GameRecordWriter(OutputStream out) {
+    this.out = out;
+    this.buffer = new byte[BUFFER_SIZE];
+  }
+
+  /**
+   * Opens a record file for appending, writing the file header first if the file is new or empty
+   *
+   * @param fileName the name of the record file
+   * @return a writer that appends to the end of that file
+   * @throws IOException if the file cannot be opened
+   */
+  public static GameRecordWriter open(String fileName) throws IOException {
+    boolean isNew = new File(fileName).length() == 0;
+    GameRecordWriter writer = new GameRecordWriter(new FileOutputStream(fileName, true));
+    if (isNew) {
+      for (byte b : MAGIC) {
+        writer.buffer[writer.position++] = b;
+      }
+      writer.buffer[writer.position++] = VERSION;
+    }
+    return writer;
+  }
+
+  /**
+   * Accesses the number of games begun by this writer
+   *
+   * @return the number of DEAL events written
+   */
+  public long getGames() {
+    return games;
+  }
+
+  ///////////////////////////////////////////// EVENTS ////////////////////////////////////////////
+
+  /**
+   * Writes the DEAL event of a game that has just been dealt: its seed, and the position of every
+   * card
+   *
+   * @param engine the game, before any turn has been played
+   */
+  @Override
+  public void deal(CaboEngine engine) {
+    Player[] players = engine.getPlayers();
+    Deck deck = engine.getDeck();
+    int handSize = players[0].getHand().size();
+    ensure(32 + players.length * handSize + deck.size());
+    buffer[position++] = (byte) (DEAL << 4);
+    writeVarint(zigzag(engine.getSeed()));
+    writeVarint(players.length);
+    writeVarint(handSize);
+    for (Player player : players) {
+      for (int i = 0; i < handSize; i++) {
+        buffer[position++] = player.getHand().getCardAtIndex(i).getCode();
+      }
+    }
+    writeVarint(deck.size());
+    for (int i = 0; i < deck.size(); i++) {
+      buffer[position++] = deck.cardAt(i).getCode();
+    }
+    games++;
+  }
+
+  /**
+   * Writes a DRAW event
+   *
+   * @param actor the label of the player who drew
+   * @param code  the code of the drawn card
+   */
+  @Override
+  public void draw(int actor, int code) {
+    event(DRAW, actor);
+    writeVarint(code);
+  }
+
+  /**
+   * Writes a SWAP event
+   *
+   * @param actor the label of the player who swapped
+   * @param index the slot the drawn card was swapped into
+   */
+  @Override
+  public void swap(int actor, int index) {
+    event(SWAP, actor);
+    writeVarint(index);
+  }
+
+  /**
+   * Writes a DISCARD event
+   *
+   * @param actor the label of the player who discarded the drawn card
+   */
+  @Override
+  public void discard(int actor) {
+    event(DISCARD, actor);
+  }
+
+  /**
+   * Writes a PEEK event
+   *
+   * @param actor the label of the player who peeked
+   * @param index the slot peeked at
+   */
+  @Override
+  public void peek(int actor, int index) {
+    event(PEEK, actor);
+    writeVarint(index);
+  }
+
+  /**
+   * Writes a SPY event
+   *
+   * @param actor the label of the player who spied
+   * @param label the label of the player spied on
+   * @param index the slot spied on
+   */
+  @Override
+  public void spy(int actor, int label, int index) {
+    event(SPY, actor);
+    writeVarint(label);
+    writeVarint(index);
+  }
+
+  /**
+   * Writes a SWITCH event
+   *
+   * @param actor      the label of the player who switched
+   * @param myIndex    the slot of the acting player's card
+   * @param otherLabel the label of the other player
+   * @param otherIndex the slot of the other player's card
+   */
+  @Override
+  public void switchCards(int actor, int myIndex, int otherLabel, int otherIndex) {
+    event(SWITCH, actor);
+    writeVarint(myIndex);
+    writeVarint(otherLabel);
+    writeVarint(otherIndex);
+  }
+
+  /**
+   * Writes a CABO event
+   *
+   * @param actor the label of the player who declared CABO
+   */
+  @Override
+  public void cabo(int actor) {
+    event(CABO, actor);
+  }
+
+  /**
+   * Writes an END_TURN event
+   *
+   * @param actor the label of the player whose turn ended
+   */
+  @Override
+  public void endTurn(int actor) {
+    event(END_TURN, actor);
+  }
+
+  /**
+   * Writes the SCORES event that ends a game
+   *
+   * @param scores the final score of every player, in seat order
+   */
+  @Override
+  public void scores(int[] scores) {
+    ensure(1 + scores.length * 5);
+    buffer[position++] = (byte) (SCORES << 4);
+    for (int score : scores) {
+      writeVarint(zigzag(score));
+    }
+  }
+
+  //////////////////////////////////////////// ENCODING ///////////////////////////////////////////
+
+  /**
+   * Starts an event, making room in the buffer for its arguments
+   *
+   * @param type  the event type
+   * @param actor the label of the acting player, between 0 and 15
+   */
+  private void event(int type, int actor) {
+    ensure(MAX_EVENT_SIZE);
+    buffer[position++] = (byte) (type << 4 | actor);
+  }
+
+  /**
+   * Appends an unsigned LEB128 varint to the buffer; the caller has made room for it
+   *
+   * @param value the value to write, treated as unsigned
+   */
+  private void writeVarint(long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  /**
+   * Maps a signed value to an unsigned one so that small negative values stay short
+   *
+   * @param value the signed value
+   * @return 0, -1, 1, -2, 2, ... mapped to 0, 1, 2, 3, 4, ...
+   */
+  public static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  /**
+   * Makes sure the buffer has room for the given number of bytes, writing it out if not
+   *
+   * @param bytes the number of bytes about to be appended
+   */
+  private void ensure(int bytes) {
+    if (position + bytes > buffer.length) {
+      flushBuffer();
+    }
+  }
+
+  /**
+   * Writes the buffered bytes to the stream
+   *
+   * @throws IllegalStateException if the stream fails
+   */
+  private void flushBuffer() {
+    try {
+      out.write(buffer, 0, position);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not write game record", e);
+    }
+    position = 0;
+  }
+
+  /**
+   * Writes every buffered event to the stream and flushes it
+   *
+   * @throws IOException if the stream fails
+   */
+  public void flush() throws IOException {
+    flushBuffer();
+    out.flush();
+  }
+
+  /**
+   * Writes every buffered event and closes the stream
+   *
+   * @throws IOException if the stream fails
+   */
+  public void close() throws IOException {
+    flush();
+    out.close();
+  }
+}
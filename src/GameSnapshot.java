@@ -0,0 +1,538 @@
+import java.util.Arrays;
+
+/**
+ * The GameSnapshot class is an immutable copy of the complete state of a CaboEngine: where every
+ * card is and whether it is face-up, whose turn it is, CABO, and what every computer player knows
+ * (its knowledge and kept-card masks and the cards it has seen). Everything is stored as card ids
+ * (see BaseCard.getId()) and bit masks in a few small arrays, with no BaseCard or PImage
+ * references, so capturing one is a handful of array copies and a snapshot can be kept, compared,
+ * or shared between threads freely.
+ *
+ * A snapshot is restored with CaboEngine.restore(), onto a game with the same seats, or with the
+ * CaboEngine constructor that takes one, e.g. after reading it back with fromBytes() to resume a
+ * saved game. What is not captured: the players' names and strategies, the message log, and the
+ * position in the game's random stream (SplittableRandom does not expose it).
+ *
+ * toBytes() layout, with numbers as unsigned LEB128 varints as in GameRecordWriter:
+ *
+ * format version, seed (8 bytes), number of players, hand size, number of decks, deck size,
+ * discard size, current player, CABO player + 1, turn, CABO turn + 1, flags (1 if the game is over,
+ * plus 2 if a card is drawn) and computer seats mask; then, bit-packed from the lowest bit of each
+ * byte, every card's id in just enough bits for any id of the shoe (6 bits for one deck; hands in
+ * seat order, the deck and the discard pile from the bottom, then the drawn card), the number of
+ * face-up cards and the position of each in that order (just enough bits for a position each),
+ * and, for every computer seat, the knowledge and kept-card masks of every hand (handSize bits
+ * each) and its seen-card set (one bit per card of the shoe)
+ */
+public final class GameSnapshot {
+
+  private static final int FORMAT = 2;
+  private static final int FACE_UP = 0x8000; // flag bit of a card; the low bits are its id
+
+  // data fields
+  private final long seed;
+  private final int numPlayers;
+  private final int handSize;
+  private final int numDecks;
+  private final int deckSize;
+  private final int discardSize;
+  private final int currentPlayer;
+  private final int caboPlayer;
+  private final int turnCount;
+  private final int caboTurn;
+  private final boolean gameOver;
+  private final int computerSeats; // bit p is set if seat p is an AIPlayer
+  private final short[] cards; // hands, deck, discard pile and drawn card: id | FACE_UP
+  private final int[] masks; // per seat, the knowledge masks then the kept-card masks of each hand
+  private final long[] seen; // per seat, seenWords() words of the cards that player has seen
+
+  /**
+   * Captures the state of a game
+   *
+   * @param engine the game
+   */
+  GameSnapshot(CaboEngine engine) {
+    Player[] players = engine.getPlayers();
+    seed = engine.getSeed();
+    numPlayers = players.length;
+    handSize = players[0].getHand().size();
+    numDecks = engine.getNumDecks();
+    deckSize = engine.getDeck().size();
+    discardSize = engine.getDiscard().size();
+    currentPlayer = engine.getCurrentPlayer();
+    caboPlayer = engine.getCaboPlayer();
+    turnCount = engine.getTurnCount();
+    caboTurn = engine.getCaboTurn();
+    gameOver = engine.isGameOver();
+
+    BaseCard drawn = engine.getDrawnCard();
+    cards = new short[numPlayers * handSize + deckSize + discardSize + (drawn == null ? 0 : 1)];
+    masks = new int[2 * numPlayers * numPlayers];
+    seen = new long[numPlayers * seenWords()];
+    int computers = 0;
+    int position = 0;
+    for (int p = 0; p < numPlayers; p++) {
+      Hand hand = players[p].getHand();
+      for (int slot = 0; slot < handSize; slot++) {
+        cards[position++] = encode(hand.getCardAtIndex(slot));
+      }
+      if (players[p] instanceof AIPlayer) {
+        AIPlayer ai = (AIPlayer) players[p];
+        computers |= 1 << p;
+        for (int label = 0; label < numPlayers; label++) {
+          masks[2 * numPlayers * p + label] = ai.getKnowledgeMask(label);
+          masks[2 * numPlayers * p + numPlayers + label] = ai.getKeptCardMask(label);
+        }
+        ai.copySeenCardsTo(seen, p * seenWords());
+      }
+    }
+    for (int i = 0; i < deckSize; i++) {
+      cards[position++] = encode(engine.getDeck().cardAt(i));
+    }
+    for (int i = 0; i < discardSize; i++) {
+      cards[position++] = encode(engine.getDiscard().cardAt(i));
+    }
+    if (drawn != null) {
+      cards[position] = encode(drawn);
+    }
+    computerSeats = computers;
+  }
+
+  /**
+   * Creates a snapshot from its decoded fields; see fromBytes()
+   *
+   * @param seed   the seed of the game
+   * @param header the varint fields, in the order they are serialized
+   * @param cards  every card, as the cards field
+   * @param masks  the knowledge and kept-card masks, as the masks field
+   * @param seen   the seen-card sets, as the seen field
+   */
+  private GameSnapshot(long seed, int[] header, short[] cards, int[] masks, long[] seen) {
+    this.seed = seed;
+    this.numPlayers = header[0];
+    this.handSize = header[1];
+    this.numDecks = header[2];
+    this.deckSize = header[3];
+    this.discardSize = header[4];
+    this.currentPlayer = header[5];
+    this.caboPlayer = header[6] - 1;
+    this.turnCount = header[7];
+    this.caboTurn = header[8] - 1;
+    this.gameOver = (header[9] & 1) != 0;
+    this.computerSeats = header[10];
+    this.cards = cards;
+    this.masks = masks;
+    this.seen = seen;
+  }
+
+  /**
+   * Encodes a card as an element of this snapshot
+   *
+   * @param card the card
+   * @return its id, with the FACE_UP bit set if it is face-up
+   */
+  private static short encode(BaseCard card) {
+    return (short) (card.isFaceUp() ? card.getId() | FACE_UP : card.getId());
+  }
+
+  /**
+   * Counts the words of one seat's seen-card set
+   *
+   * @return the number of longs that hold one bit per card of the shoe
+   */
+  private int seenWords() {
+    return (numDecks * CardCodes.DECK_SIZE + 63) / 64;
+  }
+
+  /**
+   * Counts the bits needed for any card id of a shoe
+   *
+   * @param numDecks the number of decks in the shoe
+   * @return the number of bits of the largest id
+   */
+  private static int idBits(int numDecks) {
+    return 32 - Integer.numberOfLeadingZeros(numDecks * CardCodes.DECK_SIZE - 1);
+  }
+
+  ////////////////////////////////////////// SERIALIZATION ////////////////////////////////////////
+
+  /**
+   * Serializes this snapshot; see the class comment for the layout
+   *
+   * @return the bytes, which fromBytes() turns back into an equal snapshot
+   */
+  public byte[] toBytes() {
+    int computers = Integer.bitCount(computerSeats);
+    int positionBits = positionBits(cards.length);
+    int idBits = idBits(numDecks);
+    int shoeSize = numDecks * CardCodes.DECK_SIZE;
+    int bits = cards.length * (idBits + positionBits) + positionBits
+        + computers * (2 * numPlayers * handSize + shoeSize);
+    byte[] out = new byte[9 + 11 * 5 + (bits + 7) / 8];
+    int position = 0;
+    out[position++] = FORMAT;
+    for (int shift = 0; shift < 64; shift += 8) {
+      out[position++] = (byte) (seed >>> shift);
+    }
+    int[] header = {numPlayers, handSize, numDecks, deckSize, discardSize, currentPlayer,
+        caboPlayer + 1, turnCount, caboTurn + 1, (gameOver ? 1 : 0) | (isCardDrawn() ? 2 : 0),
+        computerSeats};
+    for (int value : header) {
+      while ((value & ~0x7F) != 0) {
+        out[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      out[position++] = (byte) value;
+    }
+
+    long bitPosition = 8L * position;
+    int faceUp = 0;
+    for (int i = 0; i < cards.length; i++) {
+      bitPosition = writeBits(out, bitPosition, getId(i), idBits);
+      faceUp += isFaceUp(i) ? 1 : 0;
+    }
+    bitPosition = writeBits(out, bitPosition, faceUp, positionBits);
+    for (int i = 0; i < cards.length; i++) {
+      if (isFaceUp(i)) {
+        bitPosition = writeBits(out, bitPosition, i, positionBits);
+      }
+    }
+    for (int p = 0; p < numPlayers; p++) {
+      if ((computerSeats & 1 << p) != 0) {
+        for (int i = 0; i < 2 * numPlayers; i++) {
+          bitPosition = writeBits(out, bitPosition, masks[2 * numPlayers * p + i], handSize);
+        }
+        for (int bit = 0; bit < shoeSize; bit += 64) {
+          int count = Math.min(64, shoeSize - bit);
+          bitPosition = writeBits(out, bitPosition, seen[p * seenWords() + bit / 64], count);
+        }
+      }
+    }
+    return Arrays.copyOf(out, (int) ((bitPosition + 7) / 8));
+  }
+
+  /**
+   * Reads a snapshot written by toBytes()
+   *
+   * @param bytes the serialized snapshot
+   * @return the snapshot
+   * @throws IllegalArgumentException if the bytes are not a snapshot in this format
+   */
+  public static GameSnapshot fromBytes(byte[] bytes) {
+    if (bytes.length < 20 || bytes[0] != FORMAT) {
+      throw new IllegalArgumentException("Not a game snapshot");
+    }
+    try {
+      int position = 1;
+      long seed = 0;
+      for (int shift = 0; shift < 64; shift += 8) {
+        seed |= (bytes[position++] & 0xFFL) << shift;
+      }
+      int[] header = new int[11];
+      for (int i = 0; i < header.length; i++) {
+        int shift = 0;
+        byte b;
+        do {
+          b = bytes[position++];
+          header[i] |= (b & 0x7F) << shift;
+          shift += 7;
+        } while (b < 0);
+      }
+      int numPlayers = header[0];
+      int handSize = header[1];
+      int numDecks = header[2];
+      int shoeSize = numDecks * CardCodes.DECK_SIZE;
+      long count = (long) numPlayers * handSize + header[3] + header[4] + (header[9] >> 1);
+      if (numPlayers < 1 || numPlayers > 32 || handSize < 1 || numDecks < 1
+          || numDecks > CaboEngine.MAX_DECKS || count > shoeSize || header[3] < 0
+          || header[4] < 0 || header[5] >= numPlayers || header[6] > numPlayers) {
+        throw new IllegalArgumentException("Corrupt game snapshot");
+      }
+      short[] cards = new short[(int) count];
+      int[] masks = new int[2 * numPlayers * numPlayers];
+      int words = (shoeSize + 63) / 64;
+      long[] seen = new long[numPlayers * words];
+
+      long bitPosition = 8L * position;
+      int idBits = idBits(numDecks);
+      long[] ids = new long[words]; // every card must be a different card of the shoe
+      for (int i = 0; i < cards.length; i++) {
+        int id = (int) readBits(bytes, bitPosition, idBits);
+        bitPosition += idBits;
+        if (id >= shoeSize || (ids[id >>> 6] & 1L << id) != 0) {
+          throw new IllegalArgumentException("Corrupt game snapshot");
+        }
+        ids[id >>> 6] |= 1L << id;
+        cards[i] = (short) id;
+      }
+      int positionBits = positionBits(cards.length);
+      int faceUp = (int) readBits(bytes, bitPosition, positionBits);
+      bitPosition += positionBits;
+      for (int i = 0; i < faceUp; i++) {
+        cards[(int) readBits(bytes, bitPosition, positionBits)] |= (short) FACE_UP;
+        bitPosition += positionBits;
+      }
+      for (int p = 0; p < numPlayers; p++) {
+        if ((header[10] & 1 << p) != 0) {
+          for (int i = 0; i < 2 * numPlayers; i++) {
+            masks[2 * numPlayers * p + i] = (int) readBits(bytes, bitPosition, handSize);
+            bitPosition += handSize;
+          }
+          for (int bit = 0; bit < shoeSize; bit += 64) {
+            int bitCount = Math.min(64, shoeSize - bit);
+            seen[p * words + bit / 64] = readBits(bytes, bitPosition, bitCount);
+            bitPosition += bitCount;
+          }
+        }
+      }
+      return new GameSnapshot(seed, header, cards, masks, seen);
+    } catch (ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+      throw new IllegalArgumentException("Truncated or corrupt game snapshot", e);
+    }
+  }
+
+  /**
+   * Counts the bits needed for a position among the cards, or for the number of face-up cards
+   *
+   * @param cardCount the number of cards
+   * @return the number of bits that can hold any value from 0 to cardCount
+   */
+  private static int positionBits(int cardCount) {
+    return 32 - Integer.numberOfLeadingZeros(cardCount);
+  }
+
+  /**
+   * Writes a value into a bit-packed byte array, lowest bits first
+   *
+   * @param out      the array
+   * @param position the index of the first bit to write
+   * @param value    the value; only its lowest count bits are written
+   * @param count    the number of bits, at most 64
+   * @return the index of the bit after the value
+   */
+  private static long writeBits(byte[] out, long position, long value, int count) {
+    for (int i = 0; i < count; i++) {
+      if ((value >>> i & 1) != 0) {
+        out[(int) ((position + i) >>> 3)] |= (byte) (1 << ((position + i) & 7));
+      }
+    }
+    return position + count;
+  }
+
+  /**
+   * Reads a value from a bit-packed byte array, lowest bits first
+   *
+   * @param in       the array
+   * @param position the index of the first bit to read
+   * @param count    the number of bits, at most 64
+   * @return the value
+   */
+  private static long readBits(byte[] in, long position, int count) {
+    long value = 0;
+    for (int i = 0; i < count; i++) {
+      value |= (long) (in[(int) ((position + i) >>> 3)] >>> ((position + i) & 7) & 1) << i;
+    }
+    return value;
+  }
+
+  //////////////////////////////////////////// ACCESSORS //////////////////////////////////////////
+
+  /**
+   * Accesses the seed of the game this snapshot was taken from
+   *
+   * @return the game's seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Accesses the number of players
+   *
+   * @return the number of seats
+   */
+  public int getNumPlayers() {
+    return numPlayers;
+  }
+
+  /**
+   * Accesses the number of cards in each hand
+   *
+   * @return the hand size
+   */
+  public int getHandSize() {
+    return handSize;
+  }
+
+  /**
+   * Accesses the number of decks in the game's shoe
+   *
+   * @return the number of decks
+   */
+  public int getNumDecks() {
+    return numDecks;
+  }
+
+  /**
+   * Accesses the number of cards in the deck
+   *
+   * @return the deck size
+   */
+  public int getDeckSize() {
+    return deckSize;
+  }
+
+  /**
+   * Accesses the number of cards in the discard pile
+   *
+   * @return the discard pile's size
+   */
+  public int getDiscardSize() {
+    return discardSize;
+  }
+
+  /**
+   * Accesses the label of the player whose turn it is
+   *
+   * @return the current player's label
+   */
+  public int getCurrentPlayer() {
+    return currentPlayer;
+  }
+
+  /**
+   * Accesses the label of the player who declared CABO
+   *
+   * @return that player's label, or -1 if CABO has not been declared
+   */
+  public int getCaboPlayer() {
+    return caboPlayer;
+  }
+
+  /**
+   * Accesses the number of completed turns
+   *
+   * @return the turn count
+   */
+  public int getTurnCount() {
+    return turnCount;
+  }
+
+  /**
+   * Accesses the turn on which CABO was declared
+   *
+   * @return that turn, or -1 if CABO has not been declared
+   */
+  public int getCaboTurn() {
+    return caboTurn;
+  }
+
+  /**
+   * Checks if the game was over
+   *
+   * @return true if the game had ended
+   */
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+  /**
+   * Checks whether a seat was a computer player with knowledge to restore
+   *
+   * @param label the label of the player
+   * @return true if that player was an AIPlayer
+   */
+  public boolean isComputerSeat(int label) {
+    return (computerSeats & 1 << label) != 0;
+  }
+
+  /**
+   * Accesses one card, in the order hands, deck from the bottom, discard pile from the bottom, and
+   * the drawn card last if there is one
+   *
+   * @param index the position of the card in that order
+   * @return the id of the card (see BaseCard.getId())
+   */
+  int getId(int index) {
+    return cards[index] & ~FACE_UP & 0xFFFF;
+  }
+
+  /**
+   * Checks whether a card was face-up
+   *
+   * @param index the position of the card, as in getId()
+   * @return true if it was face-up
+   */
+  boolean isFaceUp(int index) {
+    return (cards[index] & FACE_UP) != 0;
+  }
+
+  /**
+   * Checks whether the current player had drawn a card; it is the last card of the snapshot
+   *
+   * @return true if a card was drawn
+   */
+  public boolean isCardDrawn() {
+    return cards.length > numPlayers * handSize + deckSize + discardSize;
+  }
+
+  /**
+   * Accesses the number of cards in this snapshot
+   *
+   * @return the number of cards in the hands, deck and discard pile, plus the drawn card
+   */
+  int getCardCount() {
+    return cards.length;
+  }
+
+  /**
+   * Accesses what a computer player knew of a hand
+   *
+   * @param seat  the label of the computer player
+   * @param label the label of the player holding the hand
+   * @return the knowledge mask, as AIPlayer.getKnowledgeMask()
+   */
+  int getKnowledgeMask(int seat, int label) {
+    return masks[2 * numPlayers * seat + label];
+  }
+
+  /**
+   * Accesses which slots of a hand a computer player believed were kept by choice
+   *
+   * @param seat  the label of the computer player
+   * @param label the label of the player holding the hand
+   * @return the kept-card mask, as AIPlayer.getKeptCardMask()
+   */
+  int getKeptCardMask(int seat, int label) {
+    return masks[2 * numPlayers * seat + numPlayers + label];
+  }
+
+  /**
+   * Gives a computer player the cards it had seen
+   *
+   * @param seat the label of the computer player
+   * @param ai   the player to restore them to, already prepared for a shoe of this many decks
+   */
+  void copySeenCardsTo(int seat, AIPlayer ai) {
+    ai.setSeenCards(seen, seat * seenWords());
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof GameSnapshot)) {
+      return false;
+    }
+    GameSnapshot that = (GameSnapshot) other;
+    return seed == that.seed && numPlayers == that.numPlayers && handSize == that.handSize
+        && numDecks == that.numDecks && deckSize == that.deckSize && discardSize == that.discardSize
+        && currentPlayer == that.currentPlayer && caboPlayer == that.caboPlayer
+        && turnCount == that.turnCount && caboTurn == that.caboTurn && gameOver == that.gameOver
+        && computerSeats == that.computerSeats && Arrays.equals(cards, that.cards)
+        && Arrays.equals(masks, that.masks) && Arrays.equals(seen, that.seen);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * Arrays.hashCode(cards) + Arrays.hashCode(masks)) + turnCount;
+  }
+}
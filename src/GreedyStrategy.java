@@ -0,0 +1,127 @@
+
+import java.util.SplittableRandom;
+
+/**
+ * The GreedyStrategy class is the original rule-based computer player. It swaps the drawn card
+ * into the slot it believes is worst when that is an improvement, otherwise uses the drawn card's
+ * action, otherwise discards it, and declares CABO once its believed hand value falls below a
+ * randomized threshold of CABO_BASE plus up to CABO_SPREAD.
+ */
+public class GreedyStrategy implements AIStrategy {
+
+  // data fields
+  private final String name;
+  private final int CABO_BASE; // lowest hand value at which CABO is always declared
+  private final int CABO_SPREAD; // random extra allowance on top of CABO_BASE
+
+  /**
+   * Creates the standard greedy strategy, which declares CABO at a believed hand value of 13 plus
+   * up to 8
+   */
+  public GreedyStrategy() {
+    this("Greedy", 13, 8);
+  }
+
+  /**
+   * Creates a greedy strategy with its own CABO threshold
+   *
+   * @param name       the name of this strategy
+   * @param caboBase   the believed hand value at or below which CABO is always declared
+   * @param caboSpread the random allowance added to caboBase on each turn
+   */
+  public GreedyStrategy(String name, int caboBase, int caboSpread) {
+    this.name = name;
+    this.CABO_BASE = caboBase;
+    this.CABO_SPREAD = caboSpread;
+  }
+
+  /**
+   * Accesses the name of this strategy
+   *
+   * @return the name of this strategy
+   */
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Plays the rest of the current turn for an AI player that has just drawn a card
+   *
+   * @param engine the game in progress
+   * @param ai     the AI player whose turn it is
+   * @param random the game's source of randomness
+   */
+  @Override
+  public void playTurn(CaboEngine engine, AIPlayer ai, SplittableRandom random) {
+    BaseCard drawnCard = engine.getDrawnCard();
+
+    // Determine if AI should swap or discard, comparing against the card it believes is worst:
+    // its highest known card, or an unknown card valued at the average of the unseen cards
+    int drawnCardValue = drawnCard.getRank();
+    int worstCardIndex = ai.getWorstCardIndex();
+
+    // Swap if the drawn card has a lower value than the worst card in hand
+    if (drawnCardValue < ai.getBelievedValue(worstCardIndex)) {
+      engine.swapDrawnCard(worstCardIndex);
+    } else if (drawnCard instanceof ActionCard) { // Use the action card
+      performAction(engine, ai, ((ActionCard) drawnCard).getActionType(), random);
+    } else { // Discard the drawn card
+      engine.discardDrawnCard();
+    }
+
+    // AI may declare Cabo if hand value is low enough
+    int handValue = ai.calcHandBlind();
+    if (handValue <= CABO_BASE + random.nextFloat() * CABO_SPREAD && engine.getCaboPlayer() == -1) {
+      engine.declareCabo();
+    }
+  }
+
+  /**
+   * Performs the action of the drawn action card for an AI player, choosing its targets greedily:
+   * peek at an unknown card of its own, spy on an unknown card of the opponent, or switch its
+   * highest card for the opponent's lowest. The drawn card is discarded even if the action had no
+   * useful target.
+   *
+   * @param engine     the game in progress
+   * @param ai         the AI player performing the action
+   * @param actionType the type of action to perform
+   * @param random     the game's source of randomness, used when no switch target is known
+   */
+  public static void performAction(CaboEngine engine, AIPlayer ai, ActionType actionType,
+      SplittableRandom random) {
+    engine.announceAction();
+
+    Player otherPlayer = engine.getPlayers()[engine.getOpponent()];
+    switch (actionType) {
+      case PEEK -> { // AI peeks at one of its own cards
+        int unknownCardIndex = ai.getUnknownCardIndex();
+        if (unknownCardIndex != -1) {
+          engine.useAction(unknownCardIndex, -1, -1);
+        }
+      }
+      case SPY -> { // AI spies on one of the other player's cards
+        int spyIndex = ai.getSpyIndex(otherPlayer);
+        if (spyIndex != -1) {
+          engine.useAction(-1, otherPlayer.getLabel(), spyIndex);
+        }
+      }
+      case SWITCH -> { // AI switches one of its cards with one of the other player's cards
+        int aiCardIndex = ai.getHighestIndex();
+        if (aiCardIndex == -1) {
+          aiCardIndex = random.nextInt(ai.getHand().size());
+        }
+        int otherCardIndex = ai.getLowestIndex(otherPlayer);
+        if (otherCardIndex == -1)
+          otherCardIndex = random.nextInt(otherPlayer.getHand().size());
+
+        engine.useAction(aiCardIndex, otherPlayer.getLabel(), otherCardIndex);
+      }
+    }
+
+    // an action without a useful target still uses up the card
+    if (engine.getDrawnCard() != null) {
+      engine.discardDrawnCard();
+    }
+  }
+}
@@ -1,119 +1,185 @@
 
-
-import java.util.ArrayList;
-
 public class Hand extends Deck {
 
-  // data field
-  private final int HAND_SIZE = 4;
+  // data fields
+  private final int HAND_SIZE;
+  private final BaseCard[] slots; // fixed card slots; slots[0..count-1] hold the dealt cards
+  private int count;
 
   /**
-   * Creates a new empty deck for this hand
+   * Creates a new empty hand of four cards
    */
   public Hand() {
-    super(new ArrayList<BaseCard>());
+    this(4);
+  }
+
+  /**
+   * Creates a new empty hand that can hold the given number of cards. The cards are kept in a
+   * fixed array of slots rather than the Deck's list, so swapping and switching cards happens in
+   * place.
+   *
+   * @param handSize the maximum number of cards in this hand
+   */
+  public Hand(int handSize) {
+    super(null); // a hand never uses the Deck's card list
+    HAND_SIZE = handSize;
+    slots = new BaseCard[handSize];
+    count = 0;
   }
 
   /**
    * Overrides Deck's addCard() method to prevent this player being dealt more than HAND_SIZE cards
-   * 
+   *
    * @param card the card to add to this hand
    * @throws IllegalStateException if the player is already holding the maximum number of cards
    */
   @Override
   public void addCard(BaseCard card) {
-    if (this.size() == HAND_SIZE) {
+    if (count == HAND_SIZE) {
       throw new IllegalStateException("Holding max amount of cards");
     }
 
-    super.addCard(card);
+    slots[count++] = card;
+  }
+
+  /**
+   * Removes the last card of this hand
+   *
+   * @return the last card in this hand, or null if the hand is empty.
+   */
+  @Override
+  public BaseCard drawCard() {
+    if (count == 0) {
+      return null;
+    }
+    BaseCard card = slots[--count];
+    slots[count] = null;
+    return card;
+  }
+
+  /**
+   * Gets the current number of cards in this hand.
+   *
+   * @return the number of cards dealt to this hand
+   */
+  @Override
+  public int size() {
+    return count;
+  }
+
+  /**
+   * Accesses the maximum number of cards in this hand
+   *
+   * @return the number of slots in this hand
+   */
+  public int getHandSize() {
+    return HAND_SIZE;
+  }
+
+  /**
+   * Accesses the card at a given index
+   *
+   * @param index the index of the card to access
+   * @return the card at that index
+   */
+  @Override
+  protected BaseCard cardAt(int index) {
+    return slots[index];
   }
 
   /**
    * Replaces the card at the given index (assumed to be between 0 and (HAND_SIZE-1)) with the
    * provided card, and returns the card that was previously at that index.
-   * 
+   *
    * @param newCard - the card to swap into this hand
    * @param index   - the index to place the new card at
    * @return the card that was previously at that index
    */
   public BaseCard swap(BaseCard newCard, int index) {
-    BaseCard removedCard = cardList.remove(index);
-    cardList.add(index, newCard);
+    BaseCard removedCard = slots[index];
+    slots[index] = newCard;
     return removedCard;
   }
 
   /**
    * Switches a card in this hand with a card in the other hand.
-   * 
+   *
    * @param myIndex    the index of the card in this hand to switch
    * @param otherHand  the other hand to switch cards with
    * @param otherIndex the index of the card in the other hand to switch
    */
   public void switchCards(int myIndex, Hand otherHand, int otherIndex) {
-    BaseCard swappedCard = this.swap(otherHand.cardList.get(otherIndex), myIndex);
-    otherHand.swap(swappedCard, otherIndex);
+    BaseCard myCard = slots[myIndex];
+    slots[myIndex] = otherHand.slots[otherIndex];
+    otherHand.slots[otherIndex] = myCard;
   }
 
   /**
    * Changes the face-up value of the card at the given index to the provided value
-   * 
+   *
    * @param index  the index of the card to change
    * @param faceUp true if this card should be face-up, false if it should be face-down
    */
   public void setFaceUp(int index, boolean faceUp) {
-    cardList.get(index).setFaceUp(faceUp);
+    slots[index].setFaceUp(faceUp);
   }
 
   /**
    * Draws the entire hand at the given y-coordinate. To calculate the x-coordinate of each card,
    * use (50 + 60*index).
-   * 
+   *
    * @param y the y-coordinate of the upper-left corner of all cards in this hand
    */
   public void draw(int y) {
-    for (int i = 0; i < this.size(); i++) {
-      cardList.get(i).draw(i * 60 + 50, y);
+    for (int i = 0; i < count; i++) {
+      slots[i].draw(i * 60 + 50, y);
     }
   }
 
   /**
-   * Checks if the mouse is currently over any of the cards in this hand, and returns the index of
-   * any card which the mouse is over, or -1 if the mouse is not currently over any card in this
-   * hand.
-   * 
-   * @return the index of a card in this hand which the mouse is over, or -1 if the mouse is not
-   *         over any cards in this hand
+   * Adds the region of every slot of this hand to a hit grid, at the positions draw() puts the
+   * cards, so a click can be resolved to a slot without the hand having been drawn
+   *
+   * @param grid    the grid to add the slots to
+   * @param y       the y-coordinate of the upper-left corner of all cards in this hand
+   * @param firstId the id of slot 0; slot i gets firstId + i
    */
-  public int indexOfMouseOver() {
-    for (int i = 0; i < this.size(); i++) {
-      if (cardList.get(i).isMouseOver()) {
-        return i;
-      }
+  public void addTo(HitGrid grid, int y, int firstId) {
+    for (int i = 0; i < HAND_SIZE; i++) {
+      grid.add(i * 60 + 50, y, BaseCard.WIDTH, BaseCard.HEIGHT, firstId + i);
     }
-    return -1;
+  }
+
+  /**
+   * Accesses the card at a given index
+   *
+   * @param index the index of the card to access
+   * @return the card at that index
+   */
+  public BaseCard getCardAtIndex(int index) {
+    return slots[index];
   }
 
   /**
    * Accesses the rank of a card at a given index
-   * 
+   *
    * @param index the index of the card to access
    * @return the rank of the card at that index
    */
   public int getRankAtIndex(int index) {
-    return cardList.get(index).getRank();
+    return slots[index].getRank();
   }
 
   /**
    * Determines the total value of the cards in this hand, as a sum of the ranks of each of the
    * cards
-   * 
+   *
    * @return the total value of this Player's hand
    */
   public int calcHand() {
     int total = 0;
-    for (int i = 0; i < this.size(); i++) {
-      total += getRankAtIndex(i);
+    for (int i = 0; i < count; i++) {
+      total += slots[i].getRank();
     }
     return total;
   }
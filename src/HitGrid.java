@@ -0,0 +1,99 @@
+
+import java.util.Arrays;
+
+/**
+ * The HitGrid class answers "what is under this point?" in constant time. The window is divided
+ * into square cells, and each cell remembers the one rectangular region that covers it, so a lookup
+ * is one array read and one bounds check, however many regions there are. The regions come from the
+ * layout itself (where the hands and buttons are placed), not from where things were last drawn.
+ */
+public class HitGrid {
+
+  private static final int CELL_SIZE = 10; // regions must be at least this far apart
+
+  // data fields
+  private final int COLUMNS;
+  private final int ROWS;
+  private final int[] cells; // 1 + the number of the region covering each cell, or 0 for none
+  private int[] bounds; // left, top, right, bottom of each region, all inclusive
+  private int[] ids;
+  private int count; // number of regions
+
+  /**
+   * Creates an empty grid covering a window
+   *
+   * @param width  the width of the window, in pixels
+   * @param height the height of the window, in pixels
+   */
+  public HitGrid(int width, int height) {
+    COLUMNS = width / CELL_SIZE + 1;
+    ROWS = height / CELL_SIZE + 1;
+    cells = new int[COLUMNS * ROWS];
+    bounds = new int[4 * 8];
+    ids = new int[8];
+  }
+
+  /**
+   * Adds a rectangular region. As with the cards and buttons themselves, a point on the right or
+   * bottom edge is inside the region.
+   *
+   * @param x      the x-coordinate of the upper-left corner of the region
+   * @param y      the y-coordinate of the upper-left corner of the region
+   * @param width  the width of the region
+   * @param height the height of the region
+   * @param id     the value find() returns for points in this region; not negative
+   * @throws IllegalArgumentException if the region shares a cell with another region, or lies
+   *                                  outside the window
+   */
+  public void add(int x, int y, int width, int height, int id) {
+    int firstColumn = x / CELL_SIZE;
+    int lastColumn = (x + width) / CELL_SIZE;
+    int firstRow = y / CELL_SIZE;
+    int lastRow = (y + height) / CELL_SIZE;
+    if (x < 0 || y < 0 || lastColumn >= COLUMNS || lastRow >= ROWS) {
+      throw new IllegalArgumentException("Region " + id + " lies outside the window");
+    }
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        if (cells[row * COLUMNS + column] != 0) {
+          throw new IllegalArgumentException("Region " + id + " is too close to another region");
+        }
+      }
+    }
+
+    if (count == ids.length) {
+      ids = Arrays.copyOf(ids, 2 * count);
+      bounds = Arrays.copyOf(bounds, 8 * count);
+    }
+    bounds[4 * count] = x;
+    bounds[4 * count + 1] = y;
+    bounds[4 * count + 2] = x + width;
+    bounds[4 * count + 3] = y + height;
+    ids[count] = id;
+    count++;
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        cells[row * COLUMNS + column] = count;
+      }
+    }
+  }
+
+  /**
+   * Finds the region under a point
+   *
+   * @param x the x-coordinate of the point, e.g. mouseX
+   * @param y the y-coordinate of the point, e.g. mouseY
+   * @return the id of the region containing the point, or -1 if there is none
+   */
+  public int find(int x, int y) {
+    if (x < 0 || y < 0 || x / CELL_SIZE >= COLUMNS || y / CELL_SIZE >= ROWS) {
+      return -1;
+    }
+    int region = cells[(y / CELL_SIZE) * COLUMNS + x / CELL_SIZE] - 1;
+    if (region < 0 || x < bounds[4 * region] || y < bounds[4 * region + 1]
+        || x > bounds[4 * region + 2] || y > bounds[4 * region + 3]) {
+      return -1;
+    }
+    return ids[region];
+  }
+}
@@ -0,0 +1,86 @@
+
+import java.io.File;
+import processing.core.PImage;
+
+/**
+ * The ImageCache class loads each card image at most once per process. Every BaseCard and
+ * ActionCard with the same rank and suit shares the same face image, and all cards share one back
+ * image, so building a deck no longer decodes a PNG per card. Each image is also scaled once, when
+ * it is loaded, to the size a card takes on screen (times the sketch's pixel density, for HiDPI
+ * displays), so drawing a card copies pixels instead of shrinking a full-size PNG every frame.
+ */
+public class ImageCache {
+  // data fields
+  private static PImage[] faces = new PImage[CardCodes.DECK_SIZE]; // indexed by card code
+  private static PImage back;
+  private static int loadCount; // number of PNGs decoded so far
+  private static boolean prescale = true; // false keeps the PNGs at full size, for comparison
+
+  /**
+   * Returns the face image of the given card, loading it the first time it is requested.
+   *
+   * @param processing the Processing environment used to load the image
+   * @param identity   the identity of the card
+   * @return the shared face image for that card
+   */
+  public static synchronized PImage getFace(processing.core.PApplet processing,
+      CardIdentity identity) {
+    int code = identity.getCode();
+    if (faces[code] == null) {
+      faces[code] = load(processing, identity.getRank() + "_of_"
+          + identity.getSuit().toString().toLowerCase() + ".png");
+    }
+    return faces[code];
+  }
+
+  /**
+   * Returns the image of the back of a card, loading it the first time it is requested.
+   *
+   * @param processing the Processing environment used to load the image
+   * @return the shared card back image
+   */
+  public static synchronized PImage getBack(processing.core.PApplet processing) {
+    if (back == null) {
+      back = load(processing, "back.png");
+    }
+    return back;
+  }
+
+  /**
+   * Chooses whether images are scaled to card size when they are loaded. Images already loaded are
+   * not affected, so call this before creating any card.
+   *
+   * @param prescale true to scale each image once at load, false to keep full-size images that are
+   *                 scaled every time they are drawn
+   */
+  public static synchronized void setPrescale(boolean prescale) {
+    ImageCache.prescale = prescale;
+  }
+
+  /**
+   * Reports how many PNG files have been decoded by this cache
+   *
+   * @return the number of images loaded so far
+   */
+  public static synchronized int getLoadCount() {
+    return loadCount;
+  }
+
+  /**
+   * Decodes one image from the images folder and, unless turned off, scales it to the number of
+   * pixels a card covers on screen
+   *
+   * @param processing the Processing environment used to load the image
+   * @param fileName   the name of the file inside the images folder
+   * @return the loaded image
+   */
+  private static PImage load(processing.core.PApplet processing, String fileName) {
+    loadCount++;
+    PImage image = processing.loadImage("images" + File.separator + fileName);
+    if (prescale) {
+      int density = processing.pixelDensity;
+      image.resize(BaseCard.WIDTH * density, BaseCard.HEIGHT * density);
+    }
+    return image;
+  }
+}
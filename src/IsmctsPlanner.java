@@ -0,0 +1,871 @@
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The IsmctsPlanner class chooses a computer player's move with Information Set Monte Carlo Tree
+ * Search. The search runs from the AI's information set: every iteration samples a determinization
+ * of the hidden cards (the unknown hand slots and the deck order) that is consistent with what the
+ * AI knows, including what the other players' CABO decisions say about their hands, and follows
+ * it down a tree of the AI's moves, the other players' turns as the AI sees them, and the cards the
+ * AI draws. The AI's moves are selected with UCB1 at each of its decision nodes; the other players
+ * play as the greedy AI would with what they know, including their peeks, spies and switches. Each
+ * iteration adds one node and plays the rest of the game out with the greedy policy on a compact
+ * byte-encoded copy of the table.
+ *
+ * The search is root-parallel: each worker thread grows its own tree with its own random number
+ * generator until the time budget runs out, and the visits of the root moves are summed before
+ * the most visited move is chosen. A planner with a single thread searches on the caller's thread
+ * instead, so one planner can be shared by games running in parallel.
+ */
+public class IsmctsPlanner implements AIStrategy {
+
+  /** Move kind: discard the drawn card */
+  public static final int DISCARD = 0;
+  /** Move kind: swap the drawn card into the hand slot given by the move's index */
+  public static final int SWAP = 1;
+  /** Move kind: use the drawn card's action, with the same targets the greedy AI would pick */
+  public static final int ACTION = 2;
+
+  /** What a player's last turn showed: they did not declare CABO */
+  private static final int DECLINED = 1;
+  /** What a player's last turn showed: they declared CABO */
+  private static final int DECLARED = 2;
+
+  private static final double EXPLORATION = 0.3; // UCB1 exploration constant for rewards in [0, 1]
+  private static final int MAX_TRIES = 50; // hands sampled for a player before one is taken anyway
+  private static final int EXPAND_VISITS = 20; // visits of a turn of the AI before it is searched
+
+  // data fields
+  private final long budgetNanos; // time allowed per move
+  private final int threads; // number of worker threads searching in parallel
+  private final ExecutorService pool; // null when searching on the caller's thread
+
+  /**
+   * The Move class is one decision of the AI after drawing a card: what to do with the card, and
+   * whether to declare CABO afterwards.
+   */
+  public static class Move {
+    private final int kind; // DISCARD, SWAP or ACTION
+    private final int index; // the hand slot for SWAP, otherwise -1
+    private final boolean cabo; // whether CABO is declared after the move
+
+    /**
+     * Creates a move
+     *
+     * @param kind  DISCARD, SWAP or ACTION
+     * @param index the hand slot for SWAP, otherwise -1
+     * @param cabo  whether CABO is declared after the move
+     */
+    public Move(int kind, int index, boolean cabo) {
+      this.kind = kind;
+      this.index = index;
+      this.cabo = cabo;
+    }
+
+    /**
+     * Accesses the kind of this move
+     *
+     * @return DISCARD, SWAP or ACTION
+     */
+    public int getKind() {
+      return kind;
+    }
+
+    /**
+     * Accesses the hand slot of a SWAP move
+     *
+     * @return the hand slot, or -1 for other moves
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    /**
+     * Reports whether CABO is declared after this move
+     *
+     * @return true if CABO is declared
+     */
+    public boolean isCabo() {
+      return cabo;
+    }
+
+    /**
+     * Returns a short description of this move
+     *
+     * @return e.g. "swap 2 + CABO"
+     */
+    @Override
+    public String toString() {
+      String text = kind == DISCARD ? "discard" : kind == SWAP ? "swap " + (index + 1) : "action";
+      return cabo ? text + " + CABO" : text;
+    }
+  }
+
+  /**
+   * The Root class is the AI's information set at the moment of the decision: the cards whose
+   * location the AI knows, the cards it does not, which slots each player knows, and the legal
+   * moves. It is built once per decision on the calling thread and only read by the workers.
+   */
+  private static class Root {
+    private int numPlayers;
+    private int handSize;
+    private int me; // label of the deciding AI
+    private int[] opponents; // opponents[p] is the player that p targets with SPY and SWITCH
+    private byte[] hands; // card codes by [player * handSize + slot], or -1 where unknown to the AI
+    private int[] knowledge; // knowledge[p * numPlayers + q]: the slots of q's hand p knows
+    private int[] kept; // slots the AI does not know but whose owner chose to keep the card
+    private byte[] pool; // every card whose location the AI does not know
+    private int drawn; // code of the drawn card
+    private int caboPlayer;
+    private double unknownValue; // average score of the cards the AI has not seen
+    private int[] caboChoice; // DECLINED or DECLARED if p's last turn showed it, otherwise 0
+    private Move[] moves;
+    private int[] moveNumbers; // the number of each move, as counted by countMoves()
+  }
+
+  /**
+   * Creates a planner with the given time budget per move, searching on every core
+   *
+   * @param budgetMillis the time allowed per move, in milliseconds
+   */
+  public IsmctsPlanner(long budgetMillis) {
+    this(budgetMillis, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a planner with the given time budget per move and number of worker threads
+   *
+   * @param budgetMillis the time allowed per move, in milliseconds
+   * @param threads      the number of worker threads searching in parallel
+   */
+  public IsmctsPlanner(long budgetMillis, int threads) {
+    this.budgetNanos = budgetMillis * 1_000_000L;
+    this.threads = threads;
+    this.pool = threads == 1 ? null : Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "ismcts-worker");
+      thread.setDaemon(true); // never keeps the game window or a simulation alive
+      return thread;
+    });
+  }
+
+  /**
+   * Accesses the name of this strategy
+   *
+   * @return the name of this strategy, including its time budget
+   */
+  @Override
+  public String getName() {
+    return "ISMCTS " + budgetNanos / 1_000_000 + "ms";
+  }
+
+  /**
+   * Searches for the best move of an AI player that has just drawn a card, and carries it out
+   *
+   * @param engine the game in progress
+   * @param ai     the AI player whose turn it is
+   * @param random the game's source of randomness, used to seed the search
+   */
+  @Override
+  public void playTurn(CaboEngine engine, AIPlayer ai, SplittableRandom random) {
+    Move move = plan(engine, ai, random.nextLong());
+    switch (move.getKind()) {
+      case SWAP -> engine.swapDrawnCard(move.getIndex());
+      case ACTION -> GreedyStrategy.performAction(engine, ai,
+          ((ActionCard) engine.getDrawnCard()).getActionType(), random);
+      default -> engine.discardDrawnCard();
+    }
+    if (move.isCabo()) {
+      engine.declareCabo();
+    }
+  }
+
+  /**
+   * Stops the worker threads. The planner cannot be used afterwards.
+   */
+  public void shutdown() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Chooses the move of the current player of the given game, who must be this AI and must have
+   * drawn a card. The search uses only what the AI knows, and returns within about the time
+   * budget.
+   *
+   * @param engine the game in progress
+   * @param ai     the AI player about to move
+   * @param seed   the seed for the workers' random number generators
+   * @return the most visited move
+   */
+  public Move plan(CaboEngine engine, AIPlayer ai, long seed) {
+    Root root = buildRoot(engine, ai);
+    if (root.moves.length == 1) {
+      return root.moves[0];
+    }
+    long deadline = System.nanoTime() + budgetNanos;
+    if (pool == null) {
+      return root.moves[mostVisited(new Tree(root, new SplittableRandom(seed)).search(deadline))];
+    }
+
+    ArrayList<Future<long[]>> results = new ArrayList<>();
+    SplittableRandom streams = new SplittableRandom(seed);
+    for (int t = 0; t < threads; t++) {
+      SplittableRandom random = streams.split(); // one unshared stream per worker
+      results.add(pool.submit(() -> new Tree(root, random).search(deadline)));
+    }
+
+    // sum the visit counts of every worker and pick the most visited move
+    long[] visits = new long[root.moves.length];
+    for (Future<long[]> result : results) {
+      try {
+        long[] workerVisits = result.get();
+        for (int m = 0; m < visits.length; m++) {
+          visits[m] += workerVisits[m];
+        }
+      } catch (Exception e) {
+        throw new IllegalStateException("ISMCTS worker failed", e);
+      }
+    }
+    return root.moves[mostVisited(visits)];
+  }
+
+  /**
+   * Finds the most visited root move
+   *
+   * @param visits the number of visits of each root move
+   * @return the index of the move with the most visits
+   */
+  private static int mostVisited(long[] visits) {
+    int best = 0;
+    for (int m = 1; m < visits.length; m++) {
+      if (visits[m] > visits[best]) {
+        best = m;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Captures the AI's information set from the game. Which slots a player knows is public, since
+   * every swap, peek, spy and switch names its slots; only the cards are private. The root
+   * therefore takes the other computer players' knowledge masks as they are, and assumes a human
+   * player knows their first two cards and the slots they swapped a card into.
+   *
+   * @param engine the game in progress
+   * @param ai     the AI player about to move
+   * @return the root of the search
+   */
+  private static Root buildRoot(CaboEngine engine, AIPlayer ai) {
+    Player[] players = engine.getPlayers();
+    Root root = new Root();
+    int n = players.length;
+    root.numPlayers = n;
+    root.handSize = ai.getHand().size();
+    root.me = ai.getLabel();
+    root.opponents = new int[n];
+    root.hands = new byte[n * root.handSize];
+    root.knowledge = new int[n * n];
+    root.kept = new int[n];
+    root.drawn = engine.getDrawnCard().getCode();
+    root.caboPlayer = engine.getCaboPlayer();
+    root.unknownValue = ai.getExpectedUnknownValue();
+
+    // every card of the shoe starts in the pool, then the ones the AI can place are taken out;
+    // with several decks a code can be in the pool more than once
+    int[] remaining = new int[CardCodes.DECK_SIZE];
+    Arrays.fill(remaining, engine.getNumDecks());
+    remaining[root.drawn]--;
+    for (int i = 0; i < engine.getDiscard().size(); i++) {
+      remaining[engine.getDiscard().cardAt(i).getCode()]--;
+    }
+    for (int p = 0; p < n; p++) {
+      root.kept[p] = ai.getKeptCardMask(p) & ~ai.getKnowledgeMask(p);
+      for (int i = 0; i < root.handSize; i++) {
+        if (ai.getCardKnowledge(p, i)) {
+          byte code = players[p].getHand().getCardAtIndex(i).getCode();
+          root.hands[p * root.handSize + i] = code;
+          remaining[code]--;
+        } else {
+          root.hands[p * root.handSize + i] = -1;
+        }
+      }
+
+      // the same choice of target as CaboEngine.getOpponent() makes on p's turn
+      root.opponents[p] = (p + 1) % n;
+      for (int i = n - 1; i >= 0; i--) {
+        if (i != p && !players[i].isComputer()) {
+          root.opponents[p] = i;
+        }
+      }
+      for (int q = 0; q < n; q++) {
+        if (players[p] instanceof AIPlayer) {
+          root.knowledge[p * n + q] = ((AIPlayer) players[p]).getKnowledgeMask(q);
+        } else if (q == p) {
+          root.knowledge[p * n + q] = 0b11 | ai.getKeptCardMask(p);
+        }
+      }
+    }
+    ByteDeck unplaced = new ByteDeck(engine.getNumDecks() * CardCodes.DECK_SIZE);
+    for (int code = 0; code < CardCodes.DECK_SIZE; code++) {
+      for (int copy = 0; copy < remaining[code]; copy++) {
+        unplaced.addCard(code);
+      }
+    }
+    root.pool = new byte[unplaced.size()];
+    for (int i = 0; i < root.pool.length; i++) {
+      root.pool[i] = (byte) unplaced.get(i);
+    }
+
+    // a player's CABO decision on their last turn says how good they believed their hand was
+    root.caboChoice = new int[n];
+    for (int p = 0; p < n; p++) {
+      int last = engine.getTurnCount() - (root.me - p + n) % n; // the number of p's last turn
+      int caboTurn = engine.getCaboTurn();
+      if (p != root.me && last >= 0 && (caboTurn == -1 || last <= caboTurn)) {
+        root.caboChoice[p] = last == caboTurn ? DECLARED : DECLINED;
+      }
+    }
+
+    // every move but swapping the drawn card for a known card that is no worse
+    ArrayList<Move> moves = new ArrayList<>();
+    ArrayList<Integer> numbers = new ArrayList<>();
+    for (int m = 0; m < countMoves(root.drawn, root.caboPlayer == -1, root.handSize); m++) {
+      Move move = decodeMove(m, root.drawn, root.handSize);
+      int replaced = move.kind == SWAP ? root.hands[root.me * root.handSize + move.index] : -1;
+      if (replaced < 0 || CardCodes.SCORE[replaced] > CardCodes.SCORE[root.drawn]) {
+        moves.add(move);
+        numbers.add(m);
+      }
+    }
+    root.moves = moves.toArray(new Move[0]);
+    root.moveNumbers = new int[numbers.size()];
+    for (int i = 0; i < root.moveNumbers.length; i++) {
+      root.moveNumbers[i] = numbers.get(i);
+    }
+    return root;
+  }
+
+  /**
+   * Counts the legal moves after drawing a card: discard, swap into any slot, or use the action;
+   * each with or without CABO if it has not been declared
+   *
+   * @param drawn    the code of the drawn card
+   * @param canCabo  true if CABO may still be declared
+   * @param handSize the number of cards in each hand
+   * @return the number of moves
+   */
+  private static int countMoves(int drawn, boolean canCabo, int handSize) {
+    int group = 1 + handSize + (CardCodes.ACTION[drawn] != CardCodes.NONE ? 1 : 0);
+    return canCabo ? 2 * group : group;
+  }
+
+  /**
+   * Decodes the number of a move, as counted by countMoves()
+   *
+   * @param move     the number of the move
+   * @param drawn    the code of the drawn card
+   * @param handSize the number of cards in each hand
+   * @return the move
+   */
+  private static Move decodeMove(int move, int drawn, int handSize) {
+    int group = 1 + handSize + (CardCodes.ACTION[drawn] != CardCodes.NONE ? 1 : 0);
+    int kind = move % group;
+    boolean cabo = move >= group;
+    if (kind == 0) {
+      return new Move(DISCARD, -1, cabo);
+    }
+    return kind <= handSize ? new Move(SWAP, kind - 1, cabo) : new Move(ACTION, -1, cabo);
+  }
+
+  /**
+   * The Tree class is one worker's search tree and the determinization it is playing. The nodes
+   * follow the game from the AI's point of view. Below the root come the AI's moves, then one
+   * node for each other player's turn, keyed by what the AI sees of it: the kind of move, its
+   * slots and whether CABO was declared. The AI's next turn is a chance node keyed by the card it
+   * draws, whose children are its moves with that card; and so on. A node is added the first time
+   * an iteration reaches it, and the iteration continues with the default policy from there.
+   *
+   * The other players' moves are not searched: in every determinization each one plays as the
+   * greedy AI would with what it knows, so their nodes only tell apart the AI's futures. The AI's
+   * own moves are chosen with UCB1 once one of its turns has been reached EXPAND_VISITS times, and
+   * by the greedy policy before that and below the tree.
+   */
+  private static class Tree {
+    private static final int OBSERVED_DISCARD = 0; // observed move kinds of the other players
+    private static final int OBSERVED_SWAP = 1;
+    private static final int OBSERVED_PEEK = 2;
+    private static final int OBSERVED_SPY = 3;
+    private static final int OBSERVED_SWITCH = 4;
+    private static final int OBSERVED_CABO = 1 << 13;
+
+    // data fields
+    private final Root root;
+    private final SplittableRandom random;
+    private final int n; // number of players
+    private final int size; // hand size
+    private int[] firstChild = new int[1024]; // the nodes, by index; node 0 is the root
+    private int[] nextSibling = new int[1024];
+    private int[] keys = new int[1024]; // move number, drawn card or observed move
+    private int[] visits = new int[1024];
+    private double[] rewards = new double[1024];
+    private int nodes;
+    private int[] path = new int[64]; // the nodes visited by the current iteration
+    private int depth;
+
+    // the determinization being played
+    private final byte[] hands;
+    private final int[] knowledge; // as Root.knowledge
+    private final byte[] deck; // the pool: dealt cards, then the deck in deck[deckStart..top - 1]
+    private int deckStart;
+    private int top;
+    private int caboPlayer;
+
+    /**
+     * Creates an empty tree
+     *
+     * @param root   the AI's information set
+     * @param random this worker's source of randomness
+     */
+    Tree(Root root, SplittableRandom random) {
+      this.root = root;
+      this.random = random;
+      this.n = root.numPlayers;
+      this.size = root.handSize;
+      this.hands = new byte[root.hands.length];
+      this.knowledge = new int[root.knowledge.length];
+      this.deck = root.pool.clone();
+      firstChild[0] = -1;
+      nextSibling[0] = -1;
+      nodes = 1;
+    }
+
+    /**
+     * Runs iterations until the deadline
+     *
+     * @param deadline the System.nanoTime() at which to stop
+     * @return the number of visits of each root move
+     */
+    long[] search(long deadline) {
+      long iterations = 0;
+      do {
+        iterate();
+        iterations++;
+      } while ((iterations & 15) != 0 || System.nanoTime() < deadline);
+      long[] rootVisits = new long[root.moves.length];
+      for (int child = firstChild[0]; child != -1; child = nextSibling[child]) {
+        rootVisits[keys[child]] = visits[child];
+      }
+      return rootVisits;
+    }
+
+    /**
+     * Runs one iteration: samples a determinization, descends the tree, adds one node, plays the
+     * game out and updates the statistics of the nodes visited
+     */
+    private void iterate() {
+      determinize();
+      depth = 0;
+      push(0);
+      int node = select(0, root.moves.length);
+      push(node);
+      boolean inTree = visits[node] > 0;
+      playMove(root.me, root.drawn, root.moveNumbers[keys[node]]);
+
+      int current = (root.me + 1) % n;
+      while (current != caboPlayer && top > deckStart) {
+        int drawn = draw();
+        if (!inTree) {
+          greedyTurn(current, drawn);
+        } else if (current == root.me) {
+          int chance = child(node, drawn);
+          if (chance == -1 || visits[chance] < EXPAND_VISITS) {
+            push(chance == -1 ? addChild(node, drawn) : chance);
+            inTree = false;
+            greedyTurn(current, drawn);
+          } else {
+            push(chance);
+            node = select(chance, countMoves(drawn, caboPlayer == -1, size));
+            push(node);
+            inTree = visits[node] > 0;
+            playMove(current, drawn, keys[node]);
+          }
+        } else {
+          int observed = greedyTurn(current, drawn);
+          int next = child(node, observed);
+          if (next == -1) {
+            next = addChild(node, observed);
+            inTree = false;
+          }
+          node = next;
+          push(node);
+        }
+        current = (current + 1) % n;
+      }
+
+      double reward = reward();
+      for (int i = 0; i < depth; i++) {
+        visits[path[i]]++;
+        rewards[path[i]] += reward;
+      }
+    }
+
+    /**
+     * Deals the unknown slots of the hands from the pool; the rest of the pool is the deck, drawn
+     * in random order by draw(). A slot whose owner chose to keep the card there gets a card
+     * lower than an unknown card is expected to be, if one turns up in a few tries. A player whose
+     * last turn showed their CABO decision gets hands sampled until one passes the greedy AI's
+     * CABO rule with the probability that rule gives, so that, say, a player who just declared
+     * CABO holds a hand they would declare it with.
+     */
+    private void determinize() {
+      System.arraycopy(root.knowledge, 0, knowledge, 0, knowledge.length);
+      caboPlayer = root.caboPlayer;
+      int next = 0; // deck[0..next - 1] are the cards dealt so far
+      for (int p = 0; p < n; p++) {
+        int first = next;
+        for (int tries = 1; true; tries++) {
+          next = first;
+          for (int i = p * size; i < (p + 1) * size; i++) {
+            if (root.hands[i] >= 0) {
+              hands[i] = root.hands[i];
+              continue;
+            }
+            int j = next + random.nextInt(deck.length - next);
+            if ((root.kept[p] & (1 << (i - p * size))) != 0) {
+              for (int k = 0; k < 8 && CardCodes.SCORE[deck[j]] >= root.unknownValue; k++) {
+                j = next + random.nextInt(deck.length - next);
+              }
+            }
+            byte card = deck[j];
+            deck[j] = deck[next];
+            deck[next] = card;
+            hands[i] = deck[next++];
+          }
+          if (root.caboChoice[p] == 0 || tries == MAX_TRIES
+              || random.nextDouble() < caboLikelihood(p, root.caboChoice[p])) {
+            break;
+          }
+        }
+      }
+      deckStart = next;
+      top = deck.length;
+    }
+
+    /**
+     * Computes the chance that the greedy AI's CABO rule made a decision with the hand a player
+     * has in this determinization
+     *
+     * @param player the player
+     * @param choice DECLINED or DECLARED
+     * @return the probability of that choice
+     */
+    private double caboLikelihood(int player, int choice) {
+      double blind = 0;
+      for (int i = 0; i < size; i++) {
+        blind += believedValue(player, i);
+      }
+      double declined = Math.min(1, Math.max(0, (Math.round(blind) - 13) / 8.0));
+      return choice == DECLINED ? declined : 1 - declined;
+    }
+
+    /**
+     * Draws the next card of the deck
+     *
+     * @return the code of the card
+     */
+    private int draw() {
+      int j = deckStart + random.nextInt(top - deckStart);
+      byte card = deck[j];
+      deck[j] = deck[--top];
+      deck[top] = card;
+      return card;
+    }
+
+    ///////////////////////////////////////////// NODES /////////////////////////////////////////
+
+    /**
+     * Adds a node to the current iteration's path
+     *
+     * @param node the node
+     */
+    private void push(int node) {
+      if (depth == path.length) {
+        path = Arrays.copyOf(path, 2 * depth);
+      }
+      path[depth++] = node;
+    }
+
+    /**
+     * Finds a child of a node
+     *
+     * @param parent the node
+     * @param key    the key of the child
+     * @return the child, or -1 if the node has no child with that key
+     */
+    private int child(int parent, int key) {
+      for (int child = firstChild[parent]; child != -1; child = nextSibling[child]) {
+        if (keys[child] == key) {
+          return child;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Adds a child to a node
+     *
+     * @param parent the node
+     * @param key    the key of the child
+     * @return the new child
+     */
+    private int addChild(int parent, int key) {
+      if (nodes == keys.length) {
+        int capacity = 2 * nodes;
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        visits = Arrays.copyOf(visits, capacity);
+        rewards = Arrays.copyOf(rewards, capacity);
+      }
+      keys[nodes] = key;
+      firstChild[nodes] = -1;
+      nextSibling[nodes] = firstChild[parent];
+      visits[nodes] = 0;
+      rewards[nodes] = 0;
+      firstChild[parent] = nodes;
+      return nodes++;
+    }
+
+    /**
+     * Chooses one of the AI's moves at a decision node: a random move that has not been tried
+     * there yet, and once every move has been tried, the move with the best UCB1 score
+     *
+     * @param node     the decision node
+     * @param numMoves the number of legal moves there
+     * @return the child of the move
+     */
+    private int select(int node, int numMoves) {
+      int children = 0;
+      for (int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+        children++;
+      }
+      if (children < numMoves) {
+        int start = random.nextInt(numMoves);
+        for (int m = 0; m < numMoves; m++) {
+          int move = (start + m) % numMoves;
+          if (child(node, move) == -1) {
+            return addChild(node, move);
+          }
+        }
+      }
+      int best = -1;
+      double bestScore = Double.NEGATIVE_INFINITY;
+      double logVisits = Math.log(visits[node]);
+      for (int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+        double score = rewards[child] / visits[child]
+            + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+        if (score > bestScore) {
+          bestScore = score;
+          best = child;
+        }
+      }
+      return best;
+    }
+
+    /**
+     * Scores the finished determinization for the AI
+     *
+     * @return 1 if the AI wins, 1/k if it ties for the lowest score with k-1 others, 0 otherwise
+     */
+    private double reward() {
+      int myScore = 0;
+      int best = Integer.MAX_VALUE;
+      int winners = 0;
+      for (int p = 0; p < n; p++) {
+        int score = 0;
+        for (int i = 0; i < size; i++) {
+          score += CardCodes.SCORE[hands[p * size + i]];
+        }
+        if (p == root.me) {
+          myScore = score;
+        }
+        if (score < best) {
+          best = score;
+          winners = 1;
+        } else if (score == best) {
+          winners++;
+        }
+      }
+      return myScore == best ? 1.0 / winners : 0.0;
+    }
+
+    ////////////////////////////////////////////// MOVES ////////////////////////////////////////
+
+    /**
+     * Plays one of the moves counted by countMoves()
+     *
+     * @param player the player
+     * @param drawn  the code of the drawn card
+     * @param move   the number of the move
+     */
+    private void playMove(int player, int drawn, int move) {
+      int group = 1 + size + (CardCodes.ACTION[drawn] != CardCodes.NONE ? 1 : 0);
+      int kind = move % group;
+      if (kind > 0 && kind <= size) {
+        swapIn(player, kind - 1, drawn);
+      } else if (kind > size) {
+        action(player, drawn);
+      }
+      if (move >= group) {
+        caboPlayer = player;
+      }
+    }
+
+    /**
+     * Plays a turn as GreedyStrategy would: swap the drawn card into the worst slot if it is
+     * lower, otherwise use its action, and declare CABO below the standard threshold. Cards are
+     * compared by score, as BaseCard.getRank() gives them, so the king of diamonds counts as -1.
+     *
+     * @param player the player
+     * @param drawn  the code of the drawn card
+     * @return what the other players see of the move
+     */
+    private int greedyTurn(int player, int drawn) {
+      int worst = 0;
+      double worstValue = believedValue(player, 0);
+      for (int i = 1; i < size; i++) {
+        double value = believedValue(player, i);
+        if (value > worstValue) {
+          worst = i;
+          worstValue = value;
+        }
+      }
+      int observed = OBSERVED_DISCARD;
+      if (CardCodes.SCORE[drawn] < worstValue) {
+        swapIn(player, worst, drawn);
+        observed = OBSERVED_SWAP | worst << 3;
+      } else if (CardCodes.ACTION[drawn] != CardCodes.NONE) {
+        observed = action(player, drawn);
+      }
+      if (caboPlayer == -1) {
+        double blind = 0;
+        for (int i = 0; i < size; i++) {
+          blind += believedValue(player, i);
+        }
+        if (Math.round(blind) <= 13 + random.nextFloat() * 8) {
+          caboPlayer = player;
+          observed |= OBSERVED_CABO;
+        }
+      }
+      return observed;
+    }
+
+    /**
+     * Returns the value a player believes one of their cards has
+     *
+     * @param player the player
+     * @param slot   the slot of the card
+     * @return the card's value if the player knows it, otherwise the value of an unknown card
+     */
+    private double believedValue(int player, int slot) {
+      if ((knowledge[player * n + player] & (1 << slot)) == 0) {
+        return root.unknownValue;
+      }
+      return CardCodes.SCORE[hands[player * size + slot]];
+    }
+
+    /**
+     * Swaps a drawn card into a player's hand; only that player knows the new card
+     *
+     * @param player the player
+     * @param slot   the slot
+     * @param drawn  the code of the drawn card
+     */
+    private void swapIn(int player, int slot, int drawn) {
+      hands[player * size + slot] = (byte) drawn;
+      for (int p = 0; p < n; p++) {
+        if (p == player) {
+          knowledge[p * n + player] |= 1 << slot;
+        } else {
+          knowledge[p * n + player] &= ~(1 << slot);
+        }
+      }
+    }
+
+    /**
+     * Uses an action card with the targets GreedyStrategy.performAction() would pick
+     *
+     * @param player the player
+     * @param drawn  the code of the action card
+     * @return what the other players see of the move
+     */
+    private int action(int player, int drawn) {
+      int other = root.opponents[player];
+      int mine = player * n + player;
+      int theirs = player * n + other;
+      if (CardCodes.ACTION[drawn] == CardCodes.PEEK) {
+        int unknown = ~knowledge[mine] & ((1 << size) - 1);
+        if (unknown == 0) {
+          return OBSERVED_DISCARD;
+        }
+        knowledge[mine] |= unknown & -unknown;
+        return OBSERVED_PEEK | Integer.numberOfTrailingZeros(unknown) << 3;
+      }
+      if (CardCodes.ACTION[drawn] == CardCodes.SPY) {
+        int unknown = ~knowledge[theirs] & ((1 << size) - 1);
+        if (unknown == 0) {
+          return OBSERVED_DISCARD;
+        }
+        knowledge[theirs] |= unknown & -unknown;
+        return OBSERVED_SPY | Integer.numberOfTrailingZeros(unknown) << 3;
+      }
+
+      // switch the highest known card, if it is worse than an unknown one, for the other player's
+      // lowest known card, if it is better; a random slot otherwise
+      int highest = -1;
+      int highestValue = -1;
+      for (int known = knowledge[mine]; known != 0; known &= known - 1) {
+        int i = Integer.numberOfTrailingZeros(known);
+        if (CardCodes.SCORE[hands[player * size + i]] >= highestValue) {
+          highestValue = CardCodes.SCORE[hands[player * size + i]];
+          highest = i;
+        }
+      }
+      if (highestValue < root.unknownValue) {
+        highest = random.nextInt(size);
+      }
+      int lowest = -1;
+      double lowestValue = root.unknownValue;
+      for (int known = knowledge[theirs]; known != 0; known &= known - 1) {
+        int i = Integer.numberOfTrailingZeros(known);
+        if (CardCodes.SCORE[hands[other * size + i]] < lowestValue) {
+          lowestValue = CardCodes.SCORE[hands[other * size + i]];
+          lowest = i;
+        }
+      }
+      if (lowest == -1) {
+        lowest = random.nextInt(size);
+      }
+      byte card = hands[player * size + highest];
+      hands[player * size + highest] = hands[other * size + lowest];
+      hands[other * size + lowest] = card;
+
+      // every player's knowledge of each card moves along with it
+      for (int p = 0; p < n; p++) {
+        int bit = (knowledge[p * n + player] >>> highest) & 1;
+        int otherBit = (knowledge[p * n + other] >>> lowest) & 1;
+        if (bit != otherBit) {
+          knowledge[p * n + player] ^= 1 << highest;
+          knowledge[p * n + other] ^= 1 << lowest;
+        }
+      }
+      return OBSERVED_SWITCH | highest << 3 | lowest << 8;
+    }
+  }
+}
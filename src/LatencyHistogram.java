@@ -0,0 +1,118 @@
+
+import java.util.Arrays;
+
+/**
+ * The LatencyHistogram class counts durations in power-of-two buckets: bucket 0 holds durations of
+ * zero, and bucket b holds those from 2^(b-1) to 2^b - 1 nanoseconds. Recording a duration is one
+ * leading-zero count and a few adds into a fixed array, with no allocation and no lock, so it is
+ * cheap enough to time every frame, click and turn of a live game. A percentile is read back as the
+ * upper bound of the bucket it falls in, which is within a factor of two of the true value; the
+ * count, mean and maximum are exact. A histogram is recorded and read by one thread.
+ */
+public class LatencyHistogram {
+
+  private static final int BUCKETS = 64; // one more than the bits of the largest positive long
+
+  // data fields
+  private final long[] counts = new long[BUCKETS]; // counts[b] is the number of durations in b
+  private long count;
+  private long totalNanos;
+  private long maxNanos;
+
+  /**
+   * Adds one duration
+   *
+   * @param nanos the duration, in nanoseconds; a negative duration counts as zero
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    counts[64 - Long.numberOfLeadingZeros(nanos)]++;
+    count++;
+    totalNanos += nanos;
+    if (nanos > maxNanos) {
+      maxNanos = nanos;
+    }
+  }
+
+  /**
+   * Forgets every duration recorded so far
+   */
+  public void reset() {
+    Arrays.fill(counts, 0);
+    count = 0;
+    totalNanos = 0;
+    maxNanos = 0;
+  }
+
+  /**
+   * Counts the durations recorded
+   *
+   * @return the number of durations
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the mean of the durations recorded
+   *
+   * @return the mean in nanoseconds, or 0 if nothing has been recorded
+   */
+  public double getMeanNanos() {
+    return count == 0 ? 0 : (double) totalNanos / count;
+  }
+
+  /**
+   * Gets the longest duration recorded
+   *
+   * @return the maximum in nanoseconds, or 0 if nothing has been recorded
+   */
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  /**
+   * Gets a percentile of the durations recorded, to within a factor of two
+   *
+   * @param fraction the percentile, between 0 and 1
+   * @return the upper bound of the bucket holding that percentile, but no more than the maximum,
+   *         in nanoseconds; or 0 if nothing has been recorded
+   */
+  public long getPercentileNanos(double fraction) {
+    long rank = (long) Math.ceil(fraction * count);
+    long seen = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      seen += counts[b];
+      if (seen >= rank && seen > 0) {
+        return Math.min(b == 0 ? 0 : (1L << b) - 1, maxNanos);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Counts the durations in one bucket
+   *
+   * @param bucket the bucket, from 0 to 63
+   * @return the number of durations from 2^(bucket-1) to 2^bucket - 1 nanoseconds, or of zero for
+   *         bucket 0
+   */
+  public long getBucketCount(int bucket) {
+    return counts[bucket];
+  }
+
+  /**
+   * Finds the last bucket that holds a duration, so exports can leave out the empty ones after it
+   *
+   * @return the number of buckets up to and including the last non-empty one
+   */
+  public int getUsedBuckets() {
+    int used = BUCKETS;
+    while (used > 0 && counts[used - 1] == 0) {
+      used--;
+    }
+    return used;
+  }
+}
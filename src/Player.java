@@ -4,7 +4,7 @@ public class Player {
   private Hand hand; // The collection of Cards that this Player is holding at any given time in the
                      // game
   private boolean isComputer; // An indicator of whether this is a human or computer player
-  private int label; // This player's label for running the game (for this project, 0-3)
+  private int label; // This player's label for running the game (0-3 at a table of four)
   private String name; // The identifier associated with this Player
 
   /**
@@ -15,10 +15,22 @@ public class Player {
    * @param isComputer - true if this is a computer player, false if this is a human
    */
   public Player(String name, int label, boolean isComputer) {
+    this(name, label, isComputer, 4);
+  }
+
+  /**
+   * Constructs a new Player object for a table with hands of another size than four
+   * 
+   * @param name       - the new player's identifier
+   * @param label      - the new player's label, from 0 to the number of players minus 1
+   * @param isComputer - true if this is a computer player, false if this is a human
+   * @param handSize   - the number of cards this player is dealt
+   */
+  public Player(String name, int label, boolean isComputer, int handSize) {
     this.name = name;
     this.label = label;
     this.isComputer = isComputer;
-    hand = new Hand();
+    hand = new Hand(handSize);
   }
 
   /**
@@ -0,0 +1,46 @@
+
+/**
+ * Enum representing the four suits of a CABO deck, in the same order as the suit index used by
+ * CardCodes.
+ */
+public enum Suit {
+  CLUBS("Clubs"), DIAMONDS("Diamonds"), HEARTS("Hearts"), SPADES("Spades");
+
+  // data field
+  private final String name; // the display name of this suit, e.g. "Hearts"
+
+  /**
+   * Creates a suit with the given display name
+   *
+   * @param name the display name of the suit
+   */
+  Suit(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Finds the suit with the given name, ignoring case
+   *
+   * @param name the name of the suit (e.g., "Hearts", "diamonds")
+   * @return the matching suit
+   * @throws IllegalArgumentException if the name is not one of the four CABO suits
+   */
+  public static Suit fromName(String name) {
+    for (Suit suit : values()) {
+      if (suit.name.equalsIgnoreCase(name)) {
+        return suit;
+      }
+    }
+    throw new IllegalArgumentException("Unknown suit: " + name);
+  }
+
+  /**
+   * Returns the display name of this suit
+   *
+   * @return the suit's name, e.g. "Hearts"
+   */
+  @Override
+  public String toString() {
+    return name;
+  }
+}
@@ -0,0 +1,197 @@
+import java.util.Arrays;
+
+/**
+ * The TableDeltaEncoder class turns a live game into a stream of compact binary frames for remote
+ * spectators. Each frame holds only what changed since the previous frame: the changed scalars
+ * (deck size, discard top, drawn card, current player, CABO player, turn, game over), the changed
+ * hand slots with their face-up flags, and the game events appended to the log. Every few frames a
+ * full frame is sent instead, so a spectator that missed a frame catches up. A frame is encoded
+ * once and the same bytes go to every spectator, so adding spectators costs no encoding work.
+ *
+ * Frame layout, with numbers as unsigned LEB128 varints as in GameRecordWriter:
+ *
+ * FULL   kind, sequence, number of players, hand size, one byte per slot (card code, or HIDDEN,
+ *        plus 0x80 if face-up), the seven scalars, events
+ * DELTA  kind, sequence, one byte with a bit per changed scalar, the changed scalars, the number of
+ *        changed slots, then the index and byte of each, events
+ *
+ * The events are their number followed by, for each, its GameLog.Type ordinal and actor as bytes
+ * and its three arguments. STATUS entries are instructions for a local player and are not sent.
+ */
+public class TableDeltaEncoder {
+
+  /** Frame kind: the whole table */
+  public static final int FULL = 1;
+  /** Frame kind: the changes since the previous frame */
+  public static final int DELTA = 2;
+
+  // data fields
+  private final int SNAPSHOT_INTERVAL;
+  private final boolean reveal;
+  private final TableView sent = new TableView(1); // the table as the spectators have it
+  private final TableView current = new TableView(1); // scratch view of the game now
+  private long sequence; // the number of frames encoded
+  private long logCount; // the number of log entries handled so far
+  private byte[] buffer = new byte[256];
+  private int position;
+
+  /**
+   * Creates an encoder
+   *
+   * @param snapshotInterval every this many frames, a full frame is sent
+   * @param reveal           true to show every card, false to show only what every player at the
+   *                         table can see: the discard pile during the game, and the hands once it
+   *                         is over
+   */
+  public TableDeltaEncoder(int snapshotInterval, boolean reveal) {
+    this.SNAPSHOT_INTERVAL = snapshotInterval;
+    this.reveal = reveal;
+  }
+
+  /**
+   * Encodes the next frame of a game. The first frame, and every SNAPSHOT_INTERVAL-th one after
+   * it, is full.
+   *
+   * @param engine the game, which must be the same game every time
+   * @return the frame, or null if nothing has changed since the previous frame
+   * @throws IllegalStateException if a frame that does not reveal would show a private card
+   */
+  public byte[] next(CaboEngine engine) {
+    current.capture(engine, reveal);
+    if (!reveal && !current.hidesPrivateCards()) {
+      throw new IllegalStateException("A spectator frame would show a player's private card");
+    }
+    GameLog log = engine.getLog();
+    int events = 0;
+    int firstEvent = (int) Math.max(0, log.size() - (log.getCount() - logCount));
+    for (int i = firstEvent; i < log.size(); i++) {
+      if (log.getType(i) != GameLog.Type.STATUS) {
+        events++;
+      }
+    }
+    logCount = log.getCount();
+
+    position = 0;
+    if (sequence % SNAPSHOT_INTERVAL == 0) {
+      writeFull(current, sequence + 1);
+    } else if (!writeDelta(sequence + 1) && events == 0) {
+      return null;
+    }
+    ensure(1 + 20 * events);
+    writeVarint(events);
+    for (int i = firstEvent; i < log.size(); i++) {
+      if (log.getType(i) != GameLog.Type.STATUS) {
+        ensure(20);
+        buffer[position++] = (byte) log.getType(i).ordinal();
+        buffer[position++] = (byte) log.getActor(i);
+        for (int argument = 0; argument < 3; argument++) {
+          writeVarint(log.getArg(i, argument));
+        }
+      }
+    }
+    sequence++;
+    sent.copyTableFrom(current);
+    return Arrays.copyOf(buffer, position);
+  }
+
+  /**
+   * Encodes a full frame of the table as the spectators have it after the last frame, for a
+   * spectator that joins now. It carries no events, and the next frame from next() follows it.
+   *
+   * @return the frame, or null if no frame has been encoded yet
+   */
+  public byte[] snapshot() {
+    if (sequence == 0) {
+      return null;
+    }
+    position = 0;
+    writeFull(sent, sequence);
+    writeVarint(0);
+    return Arrays.copyOf(buffer, position);
+  }
+
+  /**
+   * Writes the table part of a full frame
+   *
+   * @param view   the table to write
+   * @param number the sequence number of the frame
+   */
+  private void writeFull(TableView view, long number) {
+    int numSlots = view.getNumPlayers() * view.getHandSize();
+    ensure(32 + numSlots + 5 * TableView.SCALARS);
+    buffer[position++] = FULL;
+    writeVarint(number);
+    writeVarint(view.getNumPlayers());
+    writeVarint(view.getHandSize());
+    for (int i = 0; i < numSlots; i++) {
+      buffer[position++] = (byte) view.getSlot(i);
+    }
+    for (int i = 0; i < TableView.SCALARS; i++) {
+      writeVarint(view.getScalar(i));
+    }
+  }
+
+  /**
+   * Writes the table part of a delta frame, from the differences between the sent view and the
+   * current one
+   *
+   * @param number the sequence number of the frame
+   * @return true if anything on the table changed
+   */
+  private boolean writeDelta(long number) {
+    int numSlots = current.getNumPlayers() * current.getHandSize();
+    ensure(32 + 5 * TableView.SCALARS + 6 * numSlots);
+    buffer[position++] = DELTA;
+    writeVarint(number);
+    int changed = 0;
+    for (int i = 0; i < TableView.SCALARS; i++) {
+      if (current.getScalar(i) != sent.getScalar(i)) {
+        changed |= 1 << i;
+      }
+    }
+    buffer[position++] = (byte) changed;
+    for (int i = 0; i < TableView.SCALARS; i++) {
+      if ((changed & 1 << i) != 0) {
+        writeVarint(current.getScalar(i));
+      }
+    }
+    int changedSlots = 0;
+    for (int i = 0; i < numSlots; i++) {
+      if (current.getSlot(i) != sent.getSlot(i)) {
+        changedSlots++;
+      }
+    }
+    writeVarint(changedSlots);
+    for (int i = 0; i < numSlots; i++) {
+      if (current.getSlot(i) != sent.getSlot(i)) {
+        writeVarint(i);
+        buffer[position++] = (byte) current.getSlot(i);
+      }
+    }
+    return changed != 0 || changedSlots != 0;
+  }
+
+  /**
+   * Appends an unsigned LEB128 varint to the buffer; the caller has made room for it
+   *
+   * @param value the value to write, treated as unsigned
+   */
+  private void writeVarint(long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  /**
+   * Makes sure the buffer has room for the given number of bytes, growing it if not
+   *
+   * @param bytes the number of bytes about to be appended
+   */
+  private void ensure(int bytes) {
+    if (position + bytes > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, position + bytes));
+    }
+  }
+}
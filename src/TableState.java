@@ -0,0 +1,350 @@
+
+/**
+ * The TableState class is a compact copy of everything on the table of a recorded game: every
+ * hand, the deck, the discard pile and the drawn card as card codes (see CardCodes), plus whose
+ * turn it is and who declared CABO. It is what a GameHistoryReader replays record events into, so
+ * scanning millions of recorded games never creates a BaseCard.
+ */
+public class TableState {
+
+  // data fields
+  private long seed;
+  private int numPlayers;
+  private int handSize;
+  private byte[] hands; // hands[player * handSize + slot] is the code of that card
+  private ByteDeck deck; // top card last
+  private ByteDeck discard; // top card last
+  private int drawnCard; // the code of the drawn card, or -1 if no card is drawn
+  private int currentPlayer;
+  private int caboPlayer; // -1 until CABO is declared
+  private int turn; // number of completed turns
+  private int events; // number of events applied since the deal
+  private boolean gameOver;
+
+  /**
+   * Creates an empty table; apply a deal before using it
+   */
+  public TableState() {
+    hands = new byte[0];
+    deck = new ByteDeck(CardCodes.DECK_SIZE);
+    discard = new ByteDeck(CardCodes.DECK_SIZE);
+  }
+
+  /**
+   * Resets this table to a freshly dealt game
+   *
+   * @param seed       the seed of the game
+   * @param numPlayers the number of players
+   * @param handSize   the number of cards in each hand
+   * @param deckSize   the number of cards left in the deck after the deal
+   */
+  void deal(long seed, int numPlayers, int handSize, int deckSize) {
+    this.seed = seed;
+    this.numPlayers = numPlayers;
+    this.handSize = handSize;
+    if (hands.length != numPlayers * handSize) {
+      hands = new byte[numPlayers * handSize];
+    }
+    int shoeSize = numPlayers * handSize + deckSize; // a game dealt from several decks
+    if (deck.capacity() < shoeSize) {
+      deck = new ByteDeck(shoeSize);
+      discard = new ByteDeck(shoeSize);
+    }
+    deck.clear();
+    discard.clear();
+    drawnCard = -1;
+    currentPlayer = 0;
+    caboPlayer = -1;
+    turn = 0;
+    events = 1; // the deal itself
+    gameOver = false;
+  }
+
+  /**
+   * Places a card during the deal
+   *
+   * @param player the label of the player
+   * @param slot   the slot in that player's hand
+   * @param code   the code of the card
+   */
+  void setCard(int player, int slot, int code) {
+    hands[player * handSize + slot] = (byte) code;
+  }
+
+  /**
+   * Puts a card on top of the deck during the deal
+   *
+   * @param code the code of the card
+   */
+  void addToDeck(int code) {
+    deck.addCard(code);
+  }
+
+  ///////////////////////////////////////////// EVENTS ////////////////////////////////////////////
+
+  /**
+   * Applies a DRAW event: the current player takes the top card of the deck
+   */
+  void draw() {
+    drawnCard = deck.drawCard();
+    events++;
+  }
+
+  /**
+   * Applies a SWAP event: the drawn card replaces a card of the current player, which is discarded
+   *
+   * @param slot the slot the drawn card goes into
+   */
+  void swap(int slot) {
+    int index = currentPlayer * handSize + slot;
+    discard.addCard(hands[index]);
+    hands[index] = (byte) drawnCard;
+    drawnCard = -1;
+    events++;
+  }
+
+  /**
+   * Applies a DISCARD, PEEK or SPY event: the drawn card goes on the discard pile
+   */
+  void discardDrawnCard() {
+    discard.addCard(drawnCard);
+    drawnCard = -1;
+    events++;
+  }
+
+  /**
+   * Applies a SWITCH event: a card of the current player changes places with another player's card,
+   * and the drawn card is discarded
+   *
+   * @param mySlot     the slot of the current player's card
+   * @param otherLabel the label of the other player
+   * @param otherSlot  the slot of the other player's card
+   */
+  void switchCards(int mySlot, int otherLabel, int otherSlot) {
+    int mine = currentPlayer * handSize + mySlot;
+    int theirs = otherLabel * handSize + otherSlot;
+    byte card = hands[mine];
+    hands[mine] = hands[theirs];
+    hands[theirs] = card;
+    discardDrawnCard();
+  }
+
+  /**
+   * Applies a CABO event
+   */
+  void cabo() {
+    caboPlayer = currentPlayer;
+    events++;
+  }
+
+  /**
+   * Applies an END_TURN event: any drawn card is discarded and the next player's turn begins
+   */
+  void endTurn() {
+    if (drawnCard != -1) {
+      discard.addCard(drawnCard);
+      drawnCard = -1;
+    }
+    turn++;
+    currentPlayer = (currentPlayer + 1) % numPlayers;
+    events++;
+  }
+
+  /**
+   * Applies a SCORES event, which ends the game
+   */
+  void endGame() {
+    gameOver = true;
+    events++;
+  }
+
+  /**
+   * Overwrites this table with another, without allocating if the tables have the same size
+   *
+   * @param other the table to copy
+   */
+  public void copyFrom(TableState other) {
+    seed = other.seed;
+    numPlayers = other.numPlayers;
+    handSize = other.handSize;
+    if (hands.length != other.hands.length) {
+      hands = new byte[other.hands.length];
+    }
+    System.arraycopy(other.hands, 0, hands, 0, hands.length);
+    if (deck.capacity() != other.deck.capacity()) {
+      deck = new ByteDeck(other.deck.capacity());
+      discard = new ByteDeck(other.discard.capacity());
+    }
+    deck.copyFrom(other.deck);
+    discard.copyFrom(other.discard);
+    drawnCard = other.drawnCard;
+    currentPlayer = other.currentPlayer;
+    caboPlayer = other.caboPlayer;
+    turn = other.turn;
+    events = other.events;
+    gameOver = other.gameOver;
+  }
+
+  /**
+   * Creates an independent copy of this table
+   *
+   * @return a new table in the same state
+   */
+  public TableState copy() {
+    TableState copy = new TableState();
+    copy.copyFrom(this);
+    return copy;
+  }
+
+  //////////////////////////////////////////// ACCESSORS //////////////////////////////////////////
+
+  /**
+   * Accesses the seed of the game
+   *
+   * @return the seed the game was created from
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Accesses the number of players
+   *
+   * @return the number of players at the table
+   */
+  public int getNumPlayers() {
+    return numPlayers;
+  }
+
+  /**
+   * Accesses the number of cards in each hand
+   *
+   * @return the hand size
+   */
+  public int getHandSize() {
+    return handSize;
+  }
+
+  /**
+   * Accesses a card in a player's hand
+   *
+   * @param player the label of the player
+   * @param slot   the slot in that player's hand
+   * @return the code of the card
+   */
+  public int getCard(int player, int slot) {
+    return hands[player * handSize + slot];
+  }
+
+  /**
+   * Calculates the value of a player's hand
+   *
+   * @param player the label of the player
+   * @return the sum of the scores of that player's cards
+   */
+  public int getScore(int player) {
+    int total = 0;
+    for (int slot = 0; slot < handSize; slot++) {
+      total += CardCodes.SCORE[hands[player * handSize + slot]];
+    }
+    return total;
+  }
+
+  /**
+   * Accesses the deck
+   *
+   * @return the cards left to draw, top card last
+   */
+  public ByteDeck getDeck() {
+    return deck;
+  }
+
+  /**
+   * Accesses the discard pile
+   *
+   * @return the discarded cards, top card last
+   */
+  public ByteDeck getDiscard() {
+    return discard;
+  }
+
+  /**
+   * Accesses the drawn card
+   *
+   * @return the code of the drawn card, or -1 if no card is drawn
+   */
+  public int getDrawnCard() {
+    return drawnCard;
+  }
+
+  /**
+   * Accesses the label of the player whose turn it is
+   *
+   * @return the current player's label
+   */
+  public int getCurrentPlayer() {
+    return currentPlayer;
+  }
+
+  /**
+   * Accesses the label of the player who declared CABO
+   *
+   * @return that player's label, or -1 if CABO has not been declared
+   */
+  public int getCaboPlayer() {
+    return caboPlayer;
+  }
+
+  /**
+   * Accesses the number of completed turns
+   *
+   * @return the turn number, starting from 0
+   */
+  public int getTurn() {
+    return turn;
+  }
+
+  /**
+   * Accesses the number of events applied, counting the deal
+   *
+   * @return the number of events of the game replayed so far
+   */
+  public int getEvents() {
+    return events;
+  }
+
+  /**
+   * Checks if the game is over
+   *
+   * @return true once the final scores have been applied
+   */
+  public boolean isGameOver() {
+    return gameOver;
+  }
+
+  /**
+   * Returns a readable summary of the table: each hand with its score, the top of the discard pile
+   * and the deck size
+   *
+   * @return a multi-line description of the table
+   */
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    text.append(String.format("turn %d, player %d to play%s%n", turn, currentPlayer,
+        caboPlayer == -1 ? "" : ", CABO by player " + caboPlayer));
+    for (int p = 0; p < numPlayers; p++) {
+      text.append("  player ").append(p).append(":");
+      for (int slot = 0; slot < handSize; slot++) {
+        text.append(" [").append(CardCodes.toString((byte) getCard(p, slot))).append("]");
+      }
+      text.append(" = ").append(getScore(p)).append(System.lineSeparator());
+    }
+    text.append("  deck: ").append(deck.size()).append(" cards, discard top: ")
+        .append(discard.isEmpty() ? "none" : CardCodes.toString((byte) discard.peekTop()));
+    if (drawnCard != -1) {
+      text.append(", drawn: ").append(CardCodes.toString((byte) drawnCard));
+    }
+    return text.append(System.lineSeparator()).toString();
+  }
+}
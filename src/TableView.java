@@ -0,0 +1,331 @@
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The TableView class is what a spectator sees of a table: every hand slot with its face-up flag,
+ * the size of the deck, the top of the discard pile, the drawn card, whose turn it is, who declared
+ * CABO, and the log of game events. Until the game is over, a spectator sees only what every
+ * player sees: the discard pile and the backs of the hands. A card a player has turned face-up to
+ * look at (their first two cards, a peek, a spy) is still HIDDEN, and not marked face-up, unless
+ * the view reveals everything. When the game ends every hand is shown face-up. A TableDeltaEncoder
+ * captures views of a live game and sends the changes between them; a client keeps its own view
+ * and applies the frames it receives with apply().
+ */
+public class TableView {
+
+  /** The code of a card the spectator cannot see */
+  public static final int HIDDEN = 63;
+
+  private static final int FACE_UP = 0x80; // flag bit of a slot; the low bits are the card code
+  static final int SCALARS = 7; // deckSize, discardTop, drawnCard, currentPlayer, caboPlayer,
+                                // turn, gameOver
+
+  // data fields
+  private int numPlayers;
+  private int handSize;
+  private byte[] slots = new byte[0]; // slots[player * handSize + slot]: code | FACE_UP
+  private final int[] scalars = new int[SCALARS]; // card codes and labels are stored plus one
+  private long sequence; // the number of the last frame applied
+  private final GameLog log;
+
+  /**
+   * Creates an empty view; it is filled by the first full frame, or by capture()
+   *
+   * @param logCapacity the number of most recent log entries the view keeps
+   */
+  public TableView(int logCapacity) {
+    log = new GameLog(logCapacity);
+  }
+
+  /**
+   * Overwrites this view with what a spectator sees of a game now. The log is not touched.
+   *
+   * @param engine the game
+   * @param reveal true to show every card as the engine has it, including the drawn card
+   */
+  void capture(CaboEngine engine, boolean reveal) {
+    Player[] players = engine.getPlayers();
+    resize(players.length, players[0].getHand().size());
+    boolean gameOver = engine.isGameOver();
+    boolean visible = reveal || gameOver;
+    for (int p = 0; p < numPlayers; p++) {
+      for (int slot = 0; slot < handSize; slot++) {
+        BaseCard card = players[p].getHand().getCardAtIndex(slot);
+        // face-up in a hand only means its owner may look at it, so it is private until the end
+        boolean faceUp = reveal ? card.isFaceUp() : gameOver;
+        int code = visible ? card.getCode() : HIDDEN;
+        slots[p * handSize + slot] = (byte) (faceUp ? code | FACE_UP : code);
+      }
+    }
+    Deck discard = engine.getDiscard();
+    BaseCard drawn = engine.getDrawnCard();
+    scalars[0] = engine.getDeck().size();
+    scalars[1] = discard.isEmpty() ? 0 : discard.cardAt(discard.size() - 1).getCode() + 1;
+    scalars[2] = drawn == null ? 0 : (visible ? drawn.getCode() : HIDDEN) + 1;
+    scalars[3] = engine.getCurrentPlayer();
+    scalars[4] = engine.getCaboPlayer() + 1;
+    scalars[5] = engine.getTurnCount();
+    scalars[6] = engine.isGameOver() ? 1 : 0;
+  }
+
+  /**
+   * Overwrites the table of this view with another's, leaving the log alone
+   *
+   * @param other the view to copy
+   */
+  void copyTableFrom(TableView other) {
+    resize(other.numPlayers, other.handSize);
+    System.arraycopy(other.slots, 0, slots, 0, slots.length);
+    System.arraycopy(other.scalars, 0, scalars, 0, SCALARS);
+  }
+
+  /**
+   * Changes the shape of the table, reallocating the slots only if their number changes
+   *
+   * @param numPlayers the number of players
+   * @param handSize   the number of cards in each hand
+   */
+  private void resize(int numPlayers, int handSize) {
+    this.numPlayers = numPlayers;
+    this.handSize = handSize;
+    if (slots.length != numPlayers * handSize) {
+      slots = new byte[numPlayers * handSize];
+    }
+  }
+
+  //////////////////////////////////////////// FRAMES /////////////////////////////////////////////
+
+  /**
+   * Applies a frame from a TableDeltaEncoder. A full frame replaces the whole table; a delta frame
+   * only applies on top of the frame just before it, so after a lost frame the view waits for the
+   * next full frame.
+   *
+   * @param frame the frame
+   * @return true if the frame was applied, false if it was a delta that does not follow this view
+   */
+  public boolean apply(byte[] frame) {
+    ByteBuffer in = ByteBuffer.wrap(frame);
+    int kind = in.get();
+    long number = readVarint(in);
+    if (kind == TableDeltaEncoder.FULL) {
+      resize((int) readVarint(in), (int) readVarint(in));
+      in.get(slots);
+      for (int i = 0; i < SCALARS; i++) {
+        scalars[i] = (int) readVarint(in);
+      }
+    } else {
+      if (number != sequence + 1) {
+        return false;
+      }
+      int changed = in.get();
+      for (int i = 0; i < SCALARS; i++) {
+        if ((changed & 1 << i) != 0) {
+          scalars[i] = (int) readVarint(in);
+        }
+      }
+      for (int count = (int) readVarint(in); count > 0; count--) {
+        slots[(int) readVarint(in)] = in.get();
+      }
+    }
+    for (int count = (int) readVarint(in); count > 0; count--) {
+      GameLog.Type type = GameLog.Type.values()[in.get()];
+      int actor = in.get();
+      log.add(type, actor, (int) readVarint(in), (int) readVarint(in), (int) readVarint(in));
+    }
+    sequence = number;
+    return true;
+  }
+
+  /**
+   * Reads an unsigned LEB128 varint
+   *
+   * @param in the frame, positioned at the varint
+   * @return the value
+   */
+  private static long readVarint(ByteBuffer in) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  //////////////////////////////////////////// ACCESSORS //////////////////////////////////////////
+
+  /**
+   * Accesses the number of players
+   *
+   * @return the number of players at the table
+   */
+  public int getNumPlayers() {
+    return numPlayers;
+  }
+
+  /**
+   * Accesses the number of cards in each hand
+   *
+   * @return the hand size
+   */
+  public int getHandSize() {
+    return handSize;
+  }
+
+  /**
+   * Accesses a card in a player's hand
+   *
+   * @param player the label of the player
+   * @param slot   the slot in that player's hand
+   * @return the code of the card, or HIDDEN
+   */
+  public int getCard(int player, int slot) {
+    return slots[player * handSize + slot] & ~FACE_UP & 0xFF;
+  }
+
+  /**
+   * Checks whether a card in a player's hand is face-up
+   *
+   * @param player the label of the player
+   * @param slot   the slot in that player's hand
+   * @return true if the card is face-up
+   */
+  public boolean isFaceUp(int player, int slot) {
+    return (slots[player * handSize + slot] & FACE_UP) != 0;
+  }
+
+  /**
+   * Accesses a raw slot, as sent in frames
+   *
+   * @param index the index of the slot, player * handSize + slot
+   * @return the card code, with the FACE_UP bit set if the card is face-up
+   */
+  int getSlot(int index) {
+    return slots[index] & 0xFF;
+  }
+
+  /**
+   * Accesses a raw scalar, as sent in frames
+   *
+   * @param index the index of the scalar
+   * @return its value
+   */
+  int getScalar(int index) {
+    return scalars[index];
+  }
+
+  /**
+   * Accesses the number of cards left in the deck
+   *
+   * @return the deck size
+   */
+  public int getDeckSize() {
+    return scalars[0];
+  }
+
+  /**
+   * Accesses the top card of the discard pile
+   *
+   * @return its code, or -1 if the discard pile is empty
+   */
+  public int getDiscardTop() {
+    return scalars[1] - 1;
+  }
+
+  /**
+   * Accesses the card the current player has drawn
+   *
+   * @return its code, HIDDEN, or -1 if no card is drawn
+   */
+  public int getDrawnCard() {
+    return scalars[2] - 1;
+  }
+
+  /**
+   * Accesses the label of the player whose turn it is
+   *
+   * @return the current player's label
+   */
+  public int getCurrentPlayer() {
+    return scalars[3];
+  }
+
+  /**
+   * Accesses the label of the player who declared CABO
+   *
+   * @return that player's label, or -1 if CABO has not been declared
+   */
+  public int getCaboPlayer() {
+    return scalars[4] - 1;
+  }
+
+  /**
+   * Accesses the number of completed turns
+   *
+   * @return the turn number, starting from 0
+   */
+  public int getTurn() {
+    return scalars[5];
+  }
+
+  /**
+   * Checks if the game is over
+   *
+   * @return true once the game has ended
+   */
+  public boolean isGameOver() {
+    return scalars[6] != 0;
+  }
+
+  /**
+   * Accesses the number of the last frame applied
+   *
+   * @return the frame's sequence number
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Accesses the game events received so far
+   *
+   * @return the log of the most recent events
+   */
+  public GameLog getLog() {
+    return log;
+  }
+
+  /**
+   * Checks that this view shows nothing a spectator may not see: while the game is on, every hand
+   * slot is HIDDEN and face-down and the drawn card is HIDDEN
+   *
+   * @return true if no private card is shown
+   */
+  boolean hidesPrivateCards() {
+    if (isGameOver()) {
+      return true;
+    }
+    for (byte slot : slots) {
+      if ((slot & 0xFF) != HIDDEN) {
+        return false;
+      }
+    }
+    return scalars[2] == 0 || scalars[2] == HIDDEN + 1;
+  }
+
+  /**
+   * Checks whether this view shows the same table as another; logs and sequence numbers are not
+   * compared
+   *
+   * @param other the other view
+   * @return true if every slot and every scalar is equal
+   */
+  public boolean sameTable(TableView other) {
+    return numPlayers == other.numPlayers && handSize == other.handSize
+        && Arrays.equals(slots, other.slots)
+        && Arrays.equals(scalars, other.scalars);
+  }
+}